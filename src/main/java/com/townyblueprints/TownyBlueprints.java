@@ -6,15 +6,20 @@ import com.townyblueprints.commands.BlueprintCommand;
 import com.townyblueprints.commands.BlueprintAdminCommand;
 import com.townyblueprints.db.Database;
 import com.townyblueprints.db.IStorage;
+import com.townyblueprints.economy.EconomyManager;
 import com.townyblueprints.handlers.BlueprintPlacementHandler;
 import com.townyblueprints.handlers.ResourceCollectionHandler;
 import com.townyblueprints.handlers.UpkeepHandler;
 import com.townyblueprints.listeners.*;
 import com.townyblueprints.managers.*;
 import com.townyblueprints.tasks.BlueprintStatusTask;
+import com.townyblueprints.util.ItemResolver;
 import com.townyblueprints.util.SchematicUtil;
 import com.townyblueprints.visualization.PlacementVisualizer;
+import com.townyblueprints.visualization.DisplayOutlineRenderer;
 import com.townyblueprints.visualization.ExistingBlueprintVisualizer;
+import com.townyblueprints.visualization.OutlineRenderer;
+import com.townyblueprints.visualization.ParticleRenderScheduler;
 import lombok.Getter;
 import org.bukkit.Bukkit;
 import org.bukkit.plugin.Plugin;
@@ -44,6 +49,10 @@ public class TownyBlueprints extends JavaPlugin {
     private IStorage database;
     private DynmapListener dynmapListener;
     private TownBuildLoadManager townBuildLoadManager;
+    private ItemResolver itemResolver;
+    private EconomyManager economyManager;
+    private OutlineRenderer outlineRenderer;
+    private BlueprintMembershipTracker membershipTracker;
 
     @Override
     public void onEnable() {
@@ -59,14 +68,18 @@ public class TownyBlueprints extends JavaPlugin {
         this.blueprintManager = new BlueprintManager(this);
         this.guiManager = new GUIManager(this);
 
-        // Create visualizers first
-        PlacementVisualizer placementVisualizer = new PlacementVisualizer(this);
-        ExistingBlueprintVisualizer existingVisualizer = new ExistingBlueprintVisualizer(this);
+        // Create visualizers first, both draw through the same outline renderer
+        this.outlineRenderer = "display".equalsIgnoreCase(getConfig().getString("visualization.backend", "particles"))
+                ? new DisplayOutlineRenderer(this)
+                : new ParticleRenderScheduler(this);
+        PlacementVisualizer placementVisualizer = new PlacementVisualizer(this, outlineRenderer);
+        ExistingBlueprintVisualizer existingVisualizer = new ExistingBlueprintVisualizer(this, outlineRenderer);
 
         // Then create BlueprintPlacementHandler with both visualizers
         this.placementHandler = new BlueprintPlacementHandler(this, placementVisualizer, existingVisualizer);
 
         this.resourceCollectionHandler = new ResourceCollectionHandler(this);
+        this.economyManager = new EconomyManager(this);
         this.chatInputListener = new ChatInputListener(this);
         this.resourceTemplateManager = new ResourceTemplateManager(this);
         this.warehouseManager = new WarehouseManager(this);
@@ -74,6 +87,7 @@ public class TownyBlueprints extends JavaPlugin {
         this.blockDefinitionManager = new BlockDefinitionManager(this);
         this.toolDefinitionManager = new ToolDefinitionManager(this);
         this.townBuildLoadManager = new TownBuildLoadManager(this);
+        this.membershipTracker = new BlueprintMembershipTracker(this);
 
         // Load configuration and data
         this.configManager.loadConfig();
@@ -83,10 +97,17 @@ public class TownyBlueprints extends JavaPlugin {
         this.toolDefinitionManager.loadDefinitions();
         this.schematicUtil = new SchematicUtil(this);
 
+        // Detect custom item providers once, re-detected on plugin enable/disable
+        this.itemResolver = new ItemResolver(this);
+        this.itemResolver.detectProviders();
+
         // Load placed blueprints from database
         for (var blueprint : this.database.loadAllBlueprints()) {
             this.blueprintManager.addLoadedBlueprint(blueprint);
         }
+        this.resourceCollectionHandler.startSettling(this.blueprintManager.getAllPlacedBlueprints());
+        this.resourceCollectionHandler.loadPendingCollections();
+        this.resourceCollectionHandler.loadNationTaxes();
 
         getServer().getScheduler().runTaskLater(this, () -> {
             warehouseManager.loadWarehouses();
@@ -115,11 +136,25 @@ public class TownyBlueprints extends JavaPlugin {
         this.getServer().getPluginManager().registerEvents(this.resourceCollectionHandler, this);
         this.getServer().getPluginManager().registerEvents(new PlayerMovementListener(this), this);
         this.getServer().getPluginManager().registerEvents(new TownStatusListener(this), this);
+        this.getServer().getPluginManager().registerEvents(new WarehouseBlockListener(this), this);
+        this.getServer().getPluginManager().registerEvents(this.itemResolver, this);
+
+        this.outlineRenderer.start();
 
         // Start blueprint status check based on configuration
         int interval = getConfig().getInt("blueprints.status_check.interval", 100);
         new BlueprintStatusTask(this).runTaskTimer(this, interval, interval);
 
+        // Periodically write changed virtual warehouse contents
+        if (warehouseManager.isVirtual()) {
+            long flushInterval = getConfig().getLong("warehouse.virtual.flush_interval", 1200);
+            getServer().getScheduler().runTaskTimer(this, () -> warehouseManager.flushVirtualWarehouses(true), flushInterval, flushInterval);
+        }
+
+        // Deposit the nation taxes taken during collection in batches
+        long taxInterval = getConfig().getLong("economy.nation_tax.settlement_interval", 6000);
+        getServer().getScheduler().runTaskTimer(this, () -> resourceCollectionHandler.settleNationTaxes(), taxInterval, taxInterval);
+
         this.getLogger().info("TownyBlueprints has been enabled!");
     }
 
@@ -155,6 +190,15 @@ public class TownyBlueprints extends JavaPlugin {
         if (this.blueprintManager != null) {
             this.blueprintManager.saveAll();
         }
+        // Owed nation taxes are already in storage, the settlement timer deposits them after the next start
+        if (this.warehouseManager != null) {
+            // Queued saves go first, so the final flush writes the newest counts last
+            this.warehouseManager.awaitFlushes();
+            this.warehouseManager.flushVirtualWarehouses(false);
+        }
+        if (this.outlineRenderer != null) {
+            this.outlineRenderer.stop();
+        }
 
         this.getLogger().info("TownyBlueprints has been disabled!");
     }
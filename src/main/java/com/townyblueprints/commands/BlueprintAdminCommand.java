@@ -155,9 +155,13 @@ public class BlueprintAdminCommand implements CommandExecutor, TabCompleter {
             // Reload configuration
             plugin.reloadConfig();
             plugin.getConfigManager().loadConfig();
+            plugin.getResourceCollectionHandler().invalidateNationTaxRates();
 
             // Reload blueprints
             plugin.getBlueprintManager().loadAll();
+            if (plugin.getDynmapListener() != null) {
+                plugin.getDynmapListener().invalidateDescriptions();
+            }
 
             // Reload resource templates
             plugin.getResourceTemplateManager().loadTemplates();
@@ -166,6 +170,10 @@ public class BlueprintAdminCommand implements CommandExecutor, TabCompleter {
             plugin.getBlockDefinitionManager().loadDefinitions();
             plugin.getToolDefinitionManager().loadDefinitions();
 
+            // Re-detect item providers and drop cached items
+            plugin.getItemResolver().detectProviders();
+            plugin.getItemResolver().invalidateAll();
+
             // Reload warehouses
             plugin.getWarehouseManager().loadWarehouses();
 
@@ -6,6 +6,7 @@ import com.palmergames.bukkit.towny.object.Resident;
 import com.townyblueprints.TownyBlueprints;
 import com.townyblueprints.models.Blueprint;
 import com.townyblueprints.models.PlacedBlueprint;
+import com.townyblueprints.models.ResourceSpec;
 import com.townyblueprints.models.ResourceTemplate;
 import lombok.RequiredArgsConstructor;
 import org.bukkit.Location;
@@ -56,6 +57,9 @@ public class BlueprintCommand implements CommandExecutor, TabCompleter {
             case "collect":
                 handleCollect(player, args);
                 break;
+            case "warehouse":
+                handleWarehouse(player);
+                break;
             case "cancel":
                 plugin.getPlacementHandler().cancelPlacement(player);
                 player.sendMessage("§aBlueprint placement cancelled.");
@@ -118,9 +122,8 @@ public class BlueprintCommand implements CommandExecutor, TabCompleter {
                 if (bp.isActive()) {
                     // Handle income
                     String incomeType = bp.getBlueprint().getIncomeType();
-                    if (incomeType.startsWith("template:")) {
-                        String templateName = incomeType.substring(9);
-                        ResourceTemplate template = plugin.getResourceTemplateManager().getTemplate(templateName);
+                    if (bp.getBlueprint().getIncomeSpec() instanceof ResourceSpec.Template) {
+                        ResourceTemplate template = bp.getBlueprint().getIncomeTemplate();
                         if (template != null) {
                             player.sendMessage("    §2Income: §a(Resource Template)");
                             for (ResourceTemplate.ResourceEntry resource : template.getResources()) {
@@ -137,13 +140,12 @@ public class BlueprintCommand implements CommandExecutor, TabCompleter {
 
                     // Handle upkeep
                     String upkeepType = bp.getBlueprint().getUpkeepType();
-                    if (upkeepType.startsWith("template:")) {
-                        String templateName = upkeepType.substring(9);
-                        ResourceTemplate template = plugin.getResourceTemplateManager().getTemplate(templateName);
+                    if (bp.getBlueprint().getUpkeepSpec() instanceof ResourceSpec.Template) {
+                        ResourceTemplate template = bp.getBlueprint().getUpkeepTemplate();
                         if (template != null) {
                             player.sendMessage("    §2Upkeep: §c(Resource Template)");
                             for (ResourceTemplate.ResourceEntry resource : template.getResources()) {
-                                if (resource.getType().equals("TOOL")) {
+                                if (resource.getSpec() instanceof ResourceSpec.Tool) {
                                     player.sendMessage(String.format("      §2- §c%d %s durability",
                                             resource.getDurabilityDrain(),
                                             resource.getToolType().toLowerCase().replace("_", " ")));
@@ -170,12 +172,11 @@ public class BlueprintCommand implements CommandExecutor, TabCompleter {
         for (PlacedBlueprint bp : blueprints) {
             if (bp.isActive()) {
                 String upkeepType = bp.getBlueprint().getUpkeepType();
-                if (upkeepType.startsWith("template:")) {
-                    String templateName = upkeepType.substring(9);
-                    ResourceTemplate template = plugin.getResourceTemplateManager().getTemplate(templateName);
+                if (bp.getBlueprint().getUpkeepSpec() instanceof ResourceSpec.Template) {
+                    ResourceTemplate template = bp.getBlueprint().getUpkeepTemplate();
                     if (template != null) {
                         for (ResourceTemplate.ResourceEntry resource : template.getResources()) {
-                            if (resource.getType().equals("TOOL")) {
+                            if (resource.getSpec() instanceof ResourceSpec.Tool) {
                                 toolUpkeep.merge(resource.getToolType(), resource.getDurabilityDrain(), Integer::sum);
                             } else {
                                 totalUpkeep.merge(resource.getType(), (double) resource.getMaxAmount(), Double::sum);
@@ -207,9 +208,7 @@ public class BlueprintCommand implements CommandExecutor, TabCompleter {
         }
 
         // Show collection status after upkeep
-        boolean hasCollectableResources = blueprints.stream()
-                .filter(PlacedBlueprint::isActive)
-                .anyMatch(bp -> bp.getLastCollectionTime() < plugin.getResourceCollectionHandler().getLastNewDay());
+        boolean hasCollectableResources = plugin.getResourceCollectionHandler().hasPendingCollections(town);
 
         if (hasCollectableResources) {
             player.sendMessage("\n§aResources are available for collection!");
@@ -413,6 +412,22 @@ public class BlueprintCommand implements CommandExecutor, TabCompleter {
         plugin.getPlacementHandler().startPlacement(player, blueprint);
     }
 
+    private void handleWarehouse(Player player) {
+        if (!plugin.getWarehouseManager().isVirtual()) {
+            player.sendMessage("§cVirtual warehouses are disabled, use your town's warehouse chests instead.");
+            return;
+        }
+
+        // Get the resident and their town
+        Resident resident = TownyAPI.getInstance().getResident(player);
+        if (resident == null || !resident.hasTown()) {
+            player.sendMessage("§cYou must be a member of a town to open its warehouse!");
+            return;
+        }
+
+        plugin.getGuiManager().openWarehouseMenu(player, resident.getTownOrNull(), 0);
+    }
+
     private void handleCollect(Player player, String[] args) {
         // Get the town at the player's location
         Town town = TownyAPI.getInstance().getTown(player.getLocation());
@@ -459,20 +474,7 @@ public class BlueprintCommand implements CommandExecutor, TabCompleter {
     }
 
     private PlacedBlueprint findBlueprintAtLocation(Location location) {
-        for (PlacedBlueprint blueprint : plugin.getBlueprintManager().getAllPlacedBlueprints()) {
-            Location bpLoc = blueprint.getLocation();
-            if (bpLoc.getWorld().equals(location.getWorld())) {
-                if (location.getX() >= bpLoc.getX() &&
-                        location.getX() < bpLoc.getX() + blueprint.getBlueprint().getSizeX() &&
-                        location.getY() >= bpLoc.getY() &&
-                        location.getY() < bpLoc.getY() + blueprint.getBlueprint().getSizeY() &&
-                        location.getZ() >= bpLoc.getZ() &&
-                        location.getZ() < bpLoc.getZ() + blueprint.getBlueprint().getSizeZ()) {
-                    return blueprint;
-                }
-            }
-        }
-        return null;
+        return plugin.getBlueprintManager().getBlueprintAt(location);
     }
 
     private String capitalizeType(String type) {
@@ -500,6 +502,9 @@ public class BlueprintCommand implements CommandExecutor, TabCompleter {
             completions.add("list");
             completions.add("place");
             completions.add("collect");
+            if (plugin.getWarehouseManager().isVirtual()) {
+                completions.add("warehouse");
+            }
             completions.add("cancel");
             completions.add("mode");
             if (sender.hasPermission("townyblueprints.visualize")) {
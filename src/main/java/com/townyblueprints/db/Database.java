@@ -5,8 +5,11 @@ import com.palmergames.bukkit.towny.TownySettings;
 import com.palmergames.bukkit.towny.db.TownyDataSource;
 import com.palmergames.bukkit.towny.db.TownySQLSource;
 import com.townyblueprints.TownyBlueprints;
+import com.townyblueprints.economy.TownLedger;
 import com.townyblueprints.models.Blueprint;
 import com.townyblueprints.models.PlacedBlueprint;
+import com.townyblueprints.models.VirtualWarehouse;
+import com.townyblueprints.util.ItemKey;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.configuration.file.YamlConfiguration;
@@ -14,17 +17,22 @@ import org.bukkit.configuration.file.YamlConfiguration;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.*;
 import java.util.logging.Level;
 
 public final class Database implements IStorage {
-    public static final int CURRENT_SCHEMA = 1;
+    public static final int CURRENT_SCHEMA = 6;
     private static String prefix;
     private final TownyBlueprints plugin;
     private final boolean usingSQLDatabase;
     private File dataFile;
+    private File warehouseFile;
+    private File pendingFile;
+    private File ledgerFile;
 
     public Database(TownyBlueprints plugin) {
         this.plugin = plugin;
@@ -32,6 +40,9 @@ public final class Database implements IStorage {
 
         if (!usingSQLDatabase) {
             this.dataFile = new File(plugin.getDataFolder(), "blueprints_data.yml");
+            this.warehouseFile = new File(plugin.getDataFolder(), "warehouse_data.yml");
+            this.pendingFile = new File(plugin.getDataFolder(), "pending_collections.yml");
+            this.ledgerFile = new File(plugin.getDataFolder(), "economy_ledger.log");
         }
     }
 
@@ -67,21 +78,15 @@ public final class Database implements IStorage {
                 plugin.getLogger().info("No schema version found, will create new tables");
             }
 
-            // Create or update schema if needed
+            // Create the base schema, then apply each migration the database hasn't seen yet
             if (currentVersion < CURRENT_SCHEMA) {
                 plugin.getLogger().info("Initializing database schema...");
-                String createSchema = loadSQLFile("create_schema.sql");
-                TownySQLSource sqlSource = (TownySQLSource) TownyAPI.getInstance().getDataSource();
-
-                try (var conn = sqlSource.getHikariDataSource().getConnection()) {
-                    for (String query : createSchema.split(";")) {
-                        String trimmedQuery = query.trim();
-                        if (!trimmedQuery.isEmpty()) {
-                            try (var stmt = conn.prepareStatement(trimmedQuery)) {
-                                stmt.executeUpdate();
-                            }
-                        }
-                    }
+                if (currentVersion < 1) {
+                    runSQLScript("create_schema.sql");
+                    currentVersion = 1;
+                }
+                for (int version = currentVersion + 1; version <= CURRENT_SCHEMA; version++) {
+                    runSQLScript("schema_v" + version + ".sql");
                 }
                 plugin.getLogger().info("Database schema initialized successfully!");
             }
@@ -92,6 +97,22 @@ public final class Database implements IStorage {
         }
     }
 
+    private void runSQLScript(String filename) throws SQLException {
+        String script = loadSQLFile(filename);
+        TownySQLSource sqlSource = (TownySQLSource) TownyAPI.getInstance().getDataSource();
+
+        try (var conn = sqlSource.getHikariDataSource().getConnection()) {
+            for (String query : script.split(";")) {
+                String trimmedQuery = query.trim();
+                if (!trimmedQuery.isEmpty()) {
+                    try (var stmt = conn.prepareStatement(trimmedQuery)) {
+                        stmt.executeUpdate();
+                    }
+                }
+            }
+        }
+    }
+
     private void initFlatFile() {
         if (!dataFile.exists()) {
             try {
@@ -150,6 +171,7 @@ public final class Database implements IStorage {
 
                         placedBlueprint.setLastCollectionTime(rs.getLong("last_collection_time"));
                         placedBlueprint.setSuccessfulUpkeep(rs.getBoolean("successful_upkeep"));
+                        placedBlueprint.setLastSettledDay(rs.getLong("last_settled_day"));
 
                         blueprints.add(placedBlueprint);
                     }
@@ -162,7 +184,7 @@ public final class Database implements IStorage {
         return blueprints;
     }
 
-    private Collection<PlacedBlueprint> loadBlueprintsFlatFile() {
+    private synchronized Collection<PlacedBlueprint> loadBlueprintsFlatFile() {
         Set<PlacedBlueprint> blueprints = new HashSet<>();
         YamlConfiguration config = YamlConfiguration.loadConfiguration(dataFile);
 
@@ -202,6 +224,7 @@ public final class Database implements IStorage {
 
             placedBlueprint.setLastCollectionTime(bpSection.getLong("last_collection_time"));
             placedBlueprint.setSuccessfulUpkeep(bpSection.getBoolean("successful_upkeep"));
+            placedBlueprint.setLastSettledDay(bpSection.getLong("last_settled_day", -1));
 
             blueprints.add(placedBlueprint);
         }
@@ -211,70 +234,82 @@ public final class Database implements IStorage {
 
     @Override
     public void saveBlueprint(PlacedBlueprint blueprint) {
+        saveBlueprints(List.of(blueprint));
+    }
+
+    @Override
+    public void saveBlueprints(Collection<PlacedBlueprint> blueprints) {
+        if (blueprints.isEmpty()) return;
         if (usingSQLDatabase) {
-            saveBlueprintSQL(blueprint);
+            saveBlueprintsSQL(blueprints);
         } else {
-            saveBlueprintFlatFile(blueprint);
+            saveBlueprintsFlatFile(blueprints);
         }
     }
 
-    private void saveBlueprintSQL(PlacedBlueprint blueprint) {
+    private void saveBlueprintsSQL(Collection<PlacedBlueprint> blueprints) {
         try {
             String query = loadSQLFile("save_blueprint.sql");
             TownySQLSource sqlSource = (TownySQLSource) TownyAPI.getInstance().getDataSource();
 
             try (var conn = sqlSource.getHikariDataSource().getConnection();
                  var stmt = conn.prepareStatement(query)) {
-                stmt.setString(1, blueprint.getId());
-                stmt.setString(2, blueprint.getTown().getUUID().toString());
-                stmt.setString(3, blueprint.getBlueprint().getName());
-
-                Location loc = blueprint.getLocation();
-                stmt.setString(4, String.format("%s;%f;%f;%f",
-                        loc.getWorld().getName(),
-                        loc.getX(),
-                        loc.getY(),
-                        loc.getZ()
-                ));
-
-                stmt.setBoolean(5, blueprint.isActive());
-                stmt.setLong(6, blueprint.getLastCollectionTime());
-                stmt.setBoolean(7, blueprint.isSuccessfulUpkeep());
-                stmt.setBoolean(8, plugin.getBlueprintManager().getBonusBlockContributions().getOrDefault(blueprint.getId(), blueprint.isActive()));
-
-                stmt.executeUpdate();
+                for (PlacedBlueprint blueprint : blueprints) {
+                    stmt.setString(1, blueprint.getId());
+                    stmt.setString(2, blueprint.getTown().getUUID().toString());
+                    stmt.setString(3, blueprint.getBlueprint().getName());
+
+                    Location loc = blueprint.getLocation();
+                    stmt.setString(4, String.format("%s;%f;%f;%f",
+                            loc.getWorld().getName(),
+                            loc.getX(),
+                            loc.getY(),
+                            loc.getZ()
+                    ));
+
+                    stmt.setBoolean(5, blueprint.isActive());
+                    stmt.setLong(6, blueprint.getLastCollectionTime());
+                    stmt.setBoolean(7, blueprint.isSuccessfulUpkeep());
+                    stmt.setBoolean(8, plugin.getBlueprintManager().getBonusBlockContributions().getOrDefault(blueprint.getId(), blueprint.isActive()));
+                    stmt.setLong(9, blueprint.getLastSettledDay());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
             }
         } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to save blueprint " + blueprint.getId(), e);
+            plugin.getLogger().log(Level.SEVERE, "Failed to save " + blueprints.size() + " blueprints", e);
             throw new RuntimeException(e);
         }
     }
 
-    private void saveBlueprintFlatFile(PlacedBlueprint blueprint) {
+    private synchronized void saveBlueprintsFlatFile(Collection<PlacedBlueprint> blueprints) {
         YamlConfiguration config = YamlConfiguration.loadConfiguration(dataFile);
-        String id = blueprint.getId();
-
-        var bpSection = config.createSection("blueprints." + id);
-        bpSection.set("blueprint_id", blueprint.getBlueprint().getName());
-        bpSection.set("town_id", blueprint.getTown().getUUID().toString());
-
-        Location loc = blueprint.getLocation();
-        bpSection.set("location", String.format("%s;%f;%f;%f",
-                loc.getWorld().getName(),
-                loc.getX(),
-                loc.getY(),
-                loc.getZ()
-        ));
 
-        bpSection.set("active", blueprint.isActive());
-        bpSection.set("last_collection_time", blueprint.getLastCollectionTime());
-        bpSection.set("successful_upkeep", blueprint.isSuccessfulUpkeep());
-        bpSection.set("contributing_bonus_blocks", plugin.getBlueprintManager().getBonusBlockContributions().getOrDefault(id, blueprint.isActive()));
+        for (PlacedBlueprint blueprint : blueprints) {
+            String id = blueprint.getId();
+            var bpSection = config.createSection("blueprints." + id);
+            bpSection.set("blueprint_id", blueprint.getBlueprint().getName());
+            bpSection.set("town_id", blueprint.getTown().getUUID().toString());
+
+            Location loc = blueprint.getLocation();
+            bpSection.set("location", String.format("%s;%f;%f;%f",
+                    loc.getWorld().getName(),
+                    loc.getX(),
+                    loc.getY(),
+                    loc.getZ()
+            ));
+
+            bpSection.set("active", blueprint.isActive());
+            bpSection.set("last_collection_time", blueprint.getLastCollectionTime());
+            bpSection.set("successful_upkeep", blueprint.isSuccessfulUpkeep());
+            bpSection.set("contributing_bonus_blocks", plugin.getBlueprintManager().getBonusBlockContributions().getOrDefault(id, blueprint.isActive()));
+            bpSection.set("last_settled_day", blueprint.getLastSettledDay());
+        }
 
         try {
             config.save(dataFile);
         } catch (IOException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to save blueprint " + id, e);
+            plugin.getLogger().log(Level.SEVERE, "Failed to save " + blueprints.size() + " blueprints", e);
             throw new RuntimeException(e);
         }
     }
@@ -304,7 +339,7 @@ public final class Database implements IStorage {
         }
     }
 
-    private void deleteBlueprintFlatFile(String id) {
+    private synchronized void deleteBlueprintFlatFile(String id) {
         YamlConfiguration config = YamlConfiguration.loadConfiguration(dataFile);
         config.set("blueprints." + id, null);
 
@@ -316,6 +351,503 @@ public final class Database implements IStorage {
         }
     }
 
+    @Override
+    public Map<UUID, List<VirtualWarehouse.Entry>> loadWarehouseContents() {
+        if (usingSQLDatabase) {
+            return loadWarehouseContentsSQL();
+        } else {
+            return loadWarehouseContentsFlatFile();
+        }
+    }
+
+    private Map<UUID, List<VirtualWarehouse.Entry>> loadWarehouseContentsSQL() {
+        Map<UUID, List<VirtualWarehouse.Entry>> contents = new HashMap<>();
+        try {
+            String query = loadSQLFile("load_warehouse.sql");
+            TownySQLSource sqlSource = (TownySQLSource) TownyAPI.getInstance().getDataSource();
+
+            try (var conn = sqlSource.getHikariDataSource().getConnection();
+                 var stmt = conn.prepareStatement(query)) {
+                try (var rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        ItemKey key = ItemKey.of(rs.getString("item_key"));
+                        if (key == null) continue;
+
+                        contents.computeIfAbsent(UUID.fromString(rs.getString("town_id")), k -> new ArrayList<>())
+                                .add(new VirtualWarehouse.Entry(key, rs.getInt("amount"), rs.getInt("wear")));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to load warehouse contents from database", e);
+            throw new RuntimeException(e);
+        }
+        return contents;
+    }
+
+    private synchronized Map<UUID, List<VirtualWarehouse.Entry>> loadWarehouseContentsFlatFile() {
+        Map<UUID, List<VirtualWarehouse.Entry>> contents = new HashMap<>();
+        if (!warehouseFile.exists()) return contents;
+
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(warehouseFile);
+        var townsSection = config.getConfigurationSection("towns");
+        if (townsSection == null) return contents;
+
+        for (String townId : townsSection.getKeys(false)) {
+            List<VirtualWarehouse.Entry> entries = new ArrayList<>();
+            for (Map<?, ?> row : townsSection.getMapList(townId)) {
+                ItemKey key = ItemKey.of(String.valueOf(row.get("item")));
+                if (key == null) continue;
+
+                int amount = row.get("amount") instanceof Number n ? n.intValue() : 0;
+                int wear = row.get("wear") instanceof Number n ? n.intValue() : 0;
+                entries.add(new VirtualWarehouse.Entry(key, amount, wear));
+            }
+            contents.put(UUID.fromString(townId), entries);
+        }
+        return contents;
+    }
+
+    @Override
+    public void saveWarehouseEntries(UUID townId, Collection<VirtualWarehouse.Entry> entries) {
+        if (entries.isEmpty()) return;
+        if (usingSQLDatabase) {
+            saveWarehouseEntriesSQL(townId, entries);
+        } else {
+            saveWarehouseEntriesFlatFile(townId, entries);
+        }
+    }
+
+    private void saveWarehouseEntriesSQL(UUID townId, Collection<VirtualWarehouse.Entry> entries) {
+        try {
+            String saveQuery = loadSQLFile("save_warehouse_entry.sql");
+            String deleteQuery = loadSQLFile("delete_warehouse_entry.sql");
+            TownySQLSource sqlSource = (TownySQLSource) TownyAPI.getInstance().getDataSource();
+
+            try (var conn = sqlSource.getHikariDataSource().getConnection();
+                 var saveStmt = conn.prepareStatement(saveQuery);
+                 var deleteStmt = conn.prepareStatement(deleteQuery)) {
+                for (VirtualWarehouse.Entry entry : entries) {
+                    if (entry.amount() > 0) {
+                        saveStmt.setString(1, townId.toString());
+                        saveStmt.setString(2, entry.key().toString());
+                        saveStmt.setInt(3, entry.amount());
+                        saveStmt.setInt(4, entry.wear());
+                        saveStmt.addBatch();
+                    } else {
+                        deleteStmt.setString(1, townId.toString());
+                        deleteStmt.setString(2, entry.key().toString());
+                        deleteStmt.addBatch();
+                    }
+                }
+                saveStmt.executeBatch();
+                deleteStmt.executeBatch();
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to save warehouse contents for town " + townId, e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    private synchronized void saveWarehouseEntriesFlatFile(UUID townId, Collection<VirtualWarehouse.Entry> entries) {
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(warehouseFile);
+        String path = "towns." + townId;
+
+        // Item keys may contain dots, so rows are stored as a list rather than as section keys
+        Map<String, Map<String, Object>> rows = new LinkedHashMap<>();
+        for (Map<?, ?> row : config.getMapList(path)) {
+            Map<String, Object> copy = new LinkedHashMap<>();
+            row.forEach((k, v) -> copy.put(String.valueOf(k), v));
+            rows.put(String.valueOf(row.get("item")), copy);
+        }
+
+        for (VirtualWarehouse.Entry entry : entries) {
+            String item = entry.key().toString();
+            if (entry.amount() > 0) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("item", item);
+                row.put("amount", entry.amount());
+                row.put("wear", entry.wear());
+                rows.put(item, row);
+            } else {
+                rows.remove(item);
+            }
+        }
+
+        config.set(path, rows.isEmpty() ? null : new ArrayList<>(rows.values()));
+
+        try {
+            config.save(warehouseFile);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to save warehouse contents for town " + townId, e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * The pending collections of every town, per blueprint and resource.
+     */
+    @Override
+    public Map<UUID, Map<String, Map<String, Integer>>> loadAllPendingCollections() {
+        if (usingSQLDatabase) {
+            return loadAllPendingCollectionsSQL();
+        } else {
+            return loadAllPendingCollectionsFlatFile();
+        }
+    }
+
+    private Map<UUID, Map<String, Map<String, Integer>>> loadAllPendingCollectionsSQL() {
+        Map<UUID, Map<String, Map<String, Integer>>> pending = new HashMap<>();
+        try {
+            String query = loadSQLFile("load_pending.sql");
+            TownySQLSource sqlSource = (TownySQLSource) TownyAPI.getInstance().getDataSource();
+
+            try (var conn = sqlSource.getHikariDataSource().getConnection();
+                 var stmt = conn.prepareStatement(query)) {
+                try (var rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        pending.computeIfAbsent(UUID.fromString(rs.getString("town_id")), k -> new HashMap<>())
+                                .computeIfAbsent(rs.getString("blueprint_id"), k -> new HashMap<>())
+                                .put(rs.getString("resource"), rs.getInt("amount"));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to load pending collections", e);
+            throw new RuntimeException(e);
+        }
+        return pending;
+    }
+
+    private synchronized Map<UUID, Map<String, Map<String, Integer>>> loadAllPendingCollectionsFlatFile() {
+        Map<UUID, Map<String, Map<String, Integer>>> pending = new HashMap<>();
+        if (!pendingFile.exists()) return pending;
+
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(pendingFile);
+        var townsSection = config.getConfigurationSection("towns");
+        if (townsSection == null) return pending;
+
+        for (String townId : townsSection.getKeys(false)) {
+            var townSection = townsSection.getConfigurationSection(townId);
+            if (townSection == null) continue;
+
+            Map<String, Map<String, Integer>> town = new HashMap<>();
+            for (String blueprintId : townSection.getKeys(false)) {
+                Map<String, Integer> resources = new HashMap<>();
+                for (Map<?, ?> row : townSection.getMapList(blueprintId)) {
+                    int amount = row.get("amount") instanceof Number n ? n.intValue() : 0;
+                    if (amount > 0) {
+                        resources.put(String.valueOf(row.get("resource")), amount);
+                    }
+                }
+                town.put(blueprintId, resources);
+            }
+            pending.put(UUID.fromString(townId), town);
+        }
+        return pending;
+    }
+
+    /**
+     * Replace the pending collections of each given blueprint, grouped by town. An empty map clears a blueprint.
+     */
+    @Override
+    public void savePendingCollections(Map<UUID, Map<String, Map<String, Integer>>> pending) {
+        if (pending.isEmpty()) return;
+        if (usingSQLDatabase) {
+            savePendingCollectionsSQL(pending);
+        } else {
+            savePendingCollectionsFlatFile(pending);
+        }
+    }
+
+    private void savePendingCollectionsSQL(Map<UUID, Map<String, Map<String, Integer>>> pending) {
+        try {
+            String saveQuery = loadSQLFile("save_pending_entry.sql");
+            String deleteQuery = loadSQLFile("delete_pending.sql");
+            TownySQLSource sqlSource = (TownySQLSource) TownyAPI.getInstance().getDataSource();
+
+            try (var conn = sqlSource.getHikariDataSource().getConnection();
+                 var saveStmt = conn.prepareStatement(saveQuery);
+                 var deleteStmt = conn.prepareStatement(deleteQuery)) {
+                for (Map.Entry<UUID, Map<String, Map<String, Integer>>> town : pending.entrySet()) {
+                    for (Map.Entry<String, Map<String, Integer>> blueprint : town.getValue().entrySet()) {
+                        deleteStmt.setString(1, blueprint.getKey());
+                        deleteStmt.addBatch();
+
+                        for (Map.Entry<String, Integer> resource : blueprint.getValue().entrySet()) {
+                            if (resource.getValue() <= 0) continue;
+                            saveStmt.setString(1, blueprint.getKey());
+                            saveStmt.setString(2, town.getKey().toString());
+                            saveStmt.setString(3, resource.getKey());
+                            saveStmt.setInt(4, resource.getValue());
+                            saveStmt.addBatch();
+                        }
+                    }
+                }
+                deleteStmt.executeBatch();
+                saveStmt.executeBatch();
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to save pending collections", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    private synchronized void savePendingCollectionsFlatFile(Map<UUID, Map<String, Map<String, Integer>>> pending) {
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(pendingFile);
+
+        for (Map.Entry<UUID, Map<String, Map<String, Integer>>> town : pending.entrySet()) {
+            String townPath = "towns." + town.getKey();
+            for (Map.Entry<String, Map<String, Integer>> blueprint : town.getValue().entrySet()) {
+                // Resource ids may contain dots, so rows are stored as a list rather than as section keys
+                List<Map<String, Object>> rows = new ArrayList<>();
+                for (Map.Entry<String, Integer> resource : blueprint.getValue().entrySet()) {
+                    if (resource.getValue() <= 0) continue;
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    row.put("resource", resource.getKey());
+                    row.put("amount", resource.getValue());
+                    rows.add(row);
+                }
+                config.set(townPath + "." + blueprint.getKey(), rows.isEmpty() ? null : rows);
+            }
+
+            var townSection = config.getConfigurationSection(townPath);
+            if (townSection != null && townSection.getKeys(false).isEmpty()) {
+                config.set(townPath, null);
+            }
+        }
+
+        try {
+            config.save(pendingFile);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to save pending collections", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Map<UUID, Map<String, Integer>> loadNationTaxes() {
+        if (usingSQLDatabase) {
+            return loadNationTaxesSQL();
+        } else {
+            return loadNationTaxesFlatFile();
+        }
+    }
+
+    private Map<UUID, Map<String, Integer>> loadNationTaxesSQL() {
+        Map<UUID, Map<String, Integer>> owed = new HashMap<>();
+        try {
+            String query = loadSQLFile("load_nation_taxes.sql");
+            TownySQLSource sqlSource = (TownySQLSource) TownyAPI.getInstance().getDataSource();
+
+            try (var conn = sqlSource.getHikariDataSource().getConnection();
+                 var stmt = conn.prepareStatement(query)) {
+                try (var rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        owed.computeIfAbsent(UUID.fromString(rs.getString("nation_id")), k -> new HashMap<>())
+                                .put(rs.getString("resource"), rs.getInt("amount"));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to load nation taxes", e);
+            throw new RuntimeException(e);
+        }
+        return owed;
+    }
+
+    private synchronized Map<UUID, Map<String, Integer>> loadNationTaxesFlatFile() {
+        Map<UUID, Map<String, Integer>> owed = new HashMap<>();
+        if (!pendingFile.exists()) return owed;
+
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(pendingFile);
+        var nationsSection = config.getConfigurationSection("nations");
+        if (nationsSection == null) return owed;
+
+        for (String nationId : nationsSection.getKeys(false)) {
+            Map<String, Integer> resources = new HashMap<>();
+            for (Map<?, ?> row : nationsSection.getMapList(nationId)) {
+                int amount = row.get("amount") instanceof Number n ? n.intValue() : 0;
+                if (amount > 0) {
+                    resources.put(String.valueOf(row.get("resource")), amount);
+                }
+            }
+            owed.put(UUID.fromString(nationId), resources);
+        }
+        return owed;
+    }
+
+    /**
+     * Replace the taxes owed to each given nation. An empty map clears a nation.
+     */
+    @Override
+    public void saveNationTaxes(Map<UUID, Map<String, Integer>> owed) {
+        if (owed.isEmpty()) return;
+        if (usingSQLDatabase) {
+            saveNationTaxesSQL(owed);
+        } else {
+            saveNationTaxesFlatFile(owed);
+        }
+    }
+
+    private void saveNationTaxesSQL(Map<UUID, Map<String, Integer>> owed) {
+        try {
+            String saveQuery = loadSQLFile("save_nation_tax_entry.sql");
+            String deleteQuery = loadSQLFile("delete_nation_taxes.sql");
+            TownySQLSource sqlSource = (TownySQLSource) TownyAPI.getInstance().getDataSource();
+
+            try (var conn = sqlSource.getHikariDataSource().getConnection();
+                 var saveStmt = conn.prepareStatement(saveQuery);
+                 var deleteStmt = conn.prepareStatement(deleteQuery)) {
+                for (Map.Entry<UUID, Map<String, Integer>> nation : owed.entrySet()) {
+                    deleteStmt.setString(1, nation.getKey().toString());
+                    deleteStmt.addBatch();
+
+                    for (Map.Entry<String, Integer> resource : nation.getValue().entrySet()) {
+                        if (resource.getValue() <= 0) continue;
+                        saveStmt.setString(1, nation.getKey().toString());
+                        saveStmt.setString(2, resource.getKey());
+                        saveStmt.setInt(3, resource.getValue());
+                        saveStmt.addBatch();
+                    }
+                }
+                deleteStmt.executeBatch();
+                saveStmt.executeBatch();
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to save nation taxes", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    private synchronized void saveNationTaxesFlatFile(Map<UUID, Map<String, Integer>> owed) {
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(pendingFile);
+
+        for (Map.Entry<UUID, Map<String, Integer>> nation : owed.entrySet()) {
+            // Resource ids may contain dots, so rows are stored as a list rather than as section keys
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (Map.Entry<String, Integer> resource : nation.getValue().entrySet()) {
+                if (resource.getValue() <= 0) continue;
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("resource", resource.getKey());
+                row.put("amount", resource.getValue());
+                rows.add(row);
+            }
+            config.set("nations." + nation.getKey(), rows.isEmpty() ? null : rows);
+        }
+
+        try {
+            config.save(pendingFile);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to save nation taxes", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public long loadCurrentDay() {
+        if (usingSQLDatabase) {
+            try {
+                String query = loadSQLFile("load_state.sql");
+                TownySQLSource sqlSource = (TownySQLSource) TownyAPI.getInstance().getDataSource();
+
+                try (var conn = sqlSource.getHikariDataSource().getConnection();
+                     var stmt = conn.prepareStatement(query)) {
+                    stmt.setString(1, "current_day");
+                    try (var rs = stmt.executeQuery()) {
+                        return rs.next() ? rs.getLong("value") : 0;
+                    }
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to load the current day", e);
+                throw new RuntimeException(e);
+            }
+        } else {
+            return YamlConfiguration.loadConfiguration(dataFile).getLong("current_day", 0);
+        }
+    }
+
+    @Override
+    public void saveCurrentDay(long day) {
+        if (usingSQLDatabase) {
+            try {
+                String query = loadSQLFile("save_state.sql");
+                TownySQLSource sqlSource = (TownySQLSource) TownyAPI.getInstance().getDataSource();
+
+                try (var conn = sqlSource.getHikariDataSource().getConnection();
+                     var stmt = conn.prepareStatement(query)) {
+                    stmt.setString(1, "current_day");
+                    stmt.setLong(2, day);
+                    stmt.executeUpdate();
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to save the current day", e);
+                throw new RuntimeException(e);
+            }
+        } else {
+            YamlConfiguration config = YamlConfiguration.loadConfiguration(dataFile);
+            config.set("current_day", day);
+
+            try {
+                config.save(dataFile);
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to save the current day", e);
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Append a town ledger's lines to the audit trail. The flat file trail is a tab separated log.
+     */
+    @Override
+    public void saveLedgerLines(UUID townId, long day, List<TownLedger.Line> lines) {
+        if (lines.isEmpty()) return;
+        long now = System.currentTimeMillis();
+        if (usingSQLDatabase) {
+            try {
+                String query = loadSQLFile("save_ledger_entry.sql");
+                TownySQLSource sqlSource = (TownySQLSource) TownyAPI.getInstance().getDataSource();
+
+                try (var conn = sqlSource.getHikariDataSource().getConnection();
+                     var stmt = conn.prepareStatement(query)) {
+                    for (TownLedger.Line line : lines) {
+                        stmt.setString(1, townId.toString());
+                        stmt.setLong(2, day);
+                        stmt.setString(3, line.blueprintId());
+                        stmt.setString(4, line.reason());
+                        stmt.setDouble(5, line.amount());
+                        stmt.setBoolean(6, line.applied());
+                        stmt.setLong(7, now);
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to save ledger lines", e);
+            }
+        } else {
+            saveLedgerLinesFlatFile(townId, day, lines, now);
+        }
+    }
+
+    private synchronized void saveLedgerLinesFlatFile(UUID townId, long day, List<TownLedger.Line> lines, long now) {
+        StringBuilder out = new StringBuilder();
+        for (TownLedger.Line line : lines) {
+            out.append(now).append('\t').append(day).append('\t').append(townId).append('\t')
+                    .append(line.blueprintId() != null ? line.blueprintId() : "-").append('\t')
+                    .append(line.amount()).append('\t')
+                    .append(line.applied() ? "applied" : "refused").append('\t')
+                    .append(line.reason()).append('\n');
+        }
+
+        try {
+            Files.writeString(ledgerFile.toPath(), out, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to save ledger lines", e);
+        }
+    }
+
     private String loadSQLFile(String filename) {
         try (InputStream is = plugin.getResource("sql/" + filename)) {
             if (is == null) {
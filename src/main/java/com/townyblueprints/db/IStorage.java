@@ -1,11 +1,27 @@
 package com.townyblueprints.db;
 
+import com.townyblueprints.economy.TownLedger;
 import com.townyblueprints.models.PlacedBlueprint;
+import com.townyblueprints.models.VirtualWarehouse;
+
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 public sealed interface IStorage permits Database {
     void init();
     Collection<PlacedBlueprint> loadAllBlueprints();
     void saveBlueprint(PlacedBlueprint blueprint);
+    void saveBlueprints(Collection<PlacedBlueprint> blueprints);
     void deleteBlueprint(String id);
+    Map<UUID, List<VirtualWarehouse.Entry>> loadWarehouseContents();
+    void saveWarehouseEntries(UUID townId, Collection<VirtualWarehouse.Entry> entries);
+    Map<UUID, Map<String, Map<String, Integer>>> loadAllPendingCollections();
+    void savePendingCollections(Map<UUID, Map<String, Map<String, Integer>>> pending);
+    Map<UUID, Map<String, Integer>> loadNationTaxes();
+    void saveNationTaxes(Map<UUID, Map<String, Integer>> owed);
+    long loadCurrentDay();
+    void saveCurrentDay(long day);
+    void saveLedgerLines(UUID townId, long day, List<TownLedger.Line> lines);
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.townyblueprints.economy;
+
+import com.townyblueprints.TownyBlueprints;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Commits town ledgers to the towns' banks and records their line items in the audit trail.
+ */
+@RequiredArgsConstructor
+public class EconomyManager {
+    private final TownyBlueprints plugin;
+
+    public boolean commit(TownLedger ledger, String reason) {
+        if (ledger.getLines().isEmpty()) return true;
+
+        boolean committed = ledger.commit(reason);
+        if (!committed) {
+            plugin.getLogger().warning("Bank of " + ledger.getTown().getName() + " refused the net withdrawal of "
+                    + (-ledger.getNet()) + " for " + reason);
+        }
+
+        if (plugin.getConfig().getBoolean("economy.ledger.audit", true)) {
+            plugin.getDatabase().saveLedgerLines(ledger.getTown().getUUID(),
+                    plugin.getResourceCollectionHandler().getCurrentDay(), ledger.getLines());
+        }
+
+        // Debug logging
+        if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
+            plugin.getLogger().info("[Ledger] " + reason + " for " + ledger.getTown().getName() + ": "
+                    + ledger.getLines().size() + " lines, net " + ledger.getNet());
+        }
+        return committed;
+    }
+}
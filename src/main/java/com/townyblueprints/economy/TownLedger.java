@@ -0,0 +1,111 @@
+package com.townyblueprints.economy;
+
+import com.palmergames.bukkit.towny.object.Town;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Money movements of one town during a batch, such as a new day's upkeep or a collection.
+ * Withdrawals and deposits only update a running balance, commit() then moves the net amount in one
+ * call to the town's bank. A withdrawal is refused when the running balance can't cover it, so which
+ * blueprints fail their upkeep only depends on the opening balance and the order of the calls.
+ * Not thread safe, a ledger belongs to the batch that created it.
+ */
+public class TownLedger {
+    /**
+     * A line item. Amounts are negative for withdrawals, refused withdrawals are kept with applied false.
+     */
+    public record Line(@Nullable String blueprintId, String reason, double amount, boolean applied) {}
+
+    private final Town town;
+    // Read from the bank on the first withdrawal, deposits alone never need it
+    private Double openingBalance;
+    private final List<Line> lines = new ArrayList<>();
+    private double net;
+    private boolean committed;
+
+    public TownLedger(Town town) {
+        this.town = town;
+    }
+
+    TownLedger(Town town, double openingBalance) {
+        this.town = town;
+        this.openingBalance = openingBalance;
+    }
+
+    public Town getTown() {
+        return town;
+    }
+
+    public double getBalance() {
+        if (openingBalance == null) {
+            openingBalance = town.getAccount().getHoldingBalance();
+        }
+        return openingBalance + net;
+    }
+
+    public double getNet() {
+        return net;
+    }
+
+    public List<Line> getLines() {
+        return Collections.unmodifiableList(lines);
+    }
+
+    public boolean withdraw(@Nullable String blueprintId, double amount, String reason) {
+        if (amount <= 0) return true;
+
+        boolean covered = getBalance() >= amount;
+        lines.add(new Line(blueprintId, reason, -amount, covered));
+        if (covered) {
+            net -= amount;
+        }
+        return covered;
+    }
+
+    public void deposit(@Nullable String blueprintId, double amount, String reason) {
+        if (amount <= 0) return;
+        lines.add(new Line(blueprintId, reason, amount, true));
+        net += amount;
+    }
+
+    /**
+     * Move the net amount to or from the town's bank. Returns false if the bank refused the final withdrawal,
+     * which only happens if the balance was changed by someone else since the ledger was opened.
+     * Nothing moved then, so every line is marked as not applied and the refusal is added as a line of its own.
+     */
+    public boolean commit(String reason) {
+        if (committed) {
+            throw new IllegalStateException("Ledger of " + town.getName() + " was already committed");
+        }
+        committed = true;
+
+        if (net > 0) {
+            town.getAccount().deposit(net, reason);
+        } else if (net < 0 && !town.getAccount().withdraw(-net, reason)) {
+            lines.replaceAll(line -> line.applied()
+                    ? new Line(line.blueprintId(), line.reason(), line.amount(), false) : line);
+            lines.add(new Line(null, "Refused by bank: " + reason, net, false));
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Blueprints that were charged in this ledger, whether or not the withdrawal went through.
+     */
+    public Set<String> getChargedBlueprints() {
+        Set<String> charged = new HashSet<>();
+        for (Line line : lines) {
+            if (line.blueprintId() != null && line.amount() < 0) {
+                charged.add(line.blueprintId());
+            }
+        }
+        return charged;
+    }
+}
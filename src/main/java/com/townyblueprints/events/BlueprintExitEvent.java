@@ -0,0 +1,38 @@
+package com.townyblueprints.events;
+
+import com.townyblueprints.models.PlacedBlueprint;
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.player.PlayerEvent;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Called when a player leaves a placed blueprint's area. A blueprint removed while a player
+ * is in it is left on the player's next move.
+ */
+public class BlueprintExitEvent extends PlayerEvent {
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final PlacedBlueprint blueprint;
+
+    public BlueprintExitEvent(@NotNull Player player, @NotNull PlacedBlueprint blueprint) {
+        super(player);
+        this.blueprint = blueprint;
+    }
+
+    @NotNull
+    public PlacedBlueprint getBlueprint() {
+        return blueprint;
+    }
+
+    @NotNull
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    @NotNull
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
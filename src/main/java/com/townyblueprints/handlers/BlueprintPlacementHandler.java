@@ -30,7 +30,6 @@ public class BlueprintPlacementHandler {
     private final Map<UUID, Set<TownBlock>> selectedPlots = new HashMap<>();
     private final Map<UUID, Boolean> centerMode = new HashMap<>();
     private final Map<UUID, Boolean> visualizationMode = new HashMap<>();
-    private final Map<UUID, Boolean> disabledVisualizationMode = new HashMap<>();
 
     public BlueprintPlacementHandler(TownyBlueprints plugin, PlacementVisualizer placementVisualizer, ExistingBlueprintVisualizer existingVisualizer) {
         this.plugin = plugin;
@@ -226,23 +225,20 @@ public class BlueprintPlacementHandler {
         Blueprint blueprint = playerPlacements.get(playerId);
         if (blueprint == null) return;
 
-            // Only update location if no location is selected yet
-            if (!selectedLocations.containsKey(playerId)) {
-                if (centerMode.getOrDefault(playerId, false)) {
-                    location = location.clone().add(
-                            -blueprint.getSizeX() / 2,
-                            0,
-                            -blueprint.getSizeZ() / 2
-                    );
-                }
-                placementVisualizer.updateLocation(player, location);
+        // Only update location if no location is selected yet
+        if (!selectedLocations.containsKey(playerId)) {
+            // Block aligned like a clicked location, so the preview only changes when the block does
+            Location corner = new Location(location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+            if (centerMode.getOrDefault(playerId, false)) {
+                corner.add(-blueprint.getSizeX() / 2, 0, -blueprint.getSizeZ() / 2);
             }
+            placementVisualizer.updateLocation(player, corner);
+        }
     }
 
     public void stopVisualization(Player player) {
         UUID playerId = player.getUniqueId();
         visualizationMode.remove(playerId);
-        disabledVisualizationMode.remove(playerId);
         placementVisualizer.stopVisualization(player);
         existingVisualizer.stopVisualization(player);
     }
@@ -400,22 +396,14 @@ public class BlueprintPlacementHandler {
         }
     }
 
-    public void updateVisualization(Player player, PlacedBlueprint blueprint) {
-        UUID playerId = player.getUniqueId();
+    /**
+     * Update the outline of a blueprint whose state changed, for the players who have it shown.
+     */
+    public void updateVisualization(PlacedBlueprint blueprint) {
+        existingVisualizer.updateBlueprintState(blueprint);
+    }
 
-        // Only update visualization if the player has visualization mode enabled
-        if (visualizationMode.getOrDefault(playerId, false)) {
-            if (blueprint.isActive()) {
-                existingVisualizer.startVisualization(player, blueprint, false);
-            } else {
-                existingVisualizer.stopVisualization(player);
-            }
-        } else if (disabledVisualizationMode.getOrDefault(playerId, false)) {
-            if (!blueprint.isActive()) {
-                existingVisualizer.startVisualization(player, blueprint, true);
-            } else {
-                existingVisualizer.stopVisualization(player);
-            }
-        }
+    public void removeVisualization(PlacedBlueprint blueprint) {
+        existingVisualizer.removeBlueprint(blueprint);
     }
 }
\ No newline at end of file
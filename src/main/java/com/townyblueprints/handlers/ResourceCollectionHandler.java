@@ -1,14 +1,17 @@
 package com.townyblueprints.handlers;
 
+import com.palmergames.bukkit.towny.TownyAPI;
 import com.palmergames.bukkit.towny.event.NewDayEvent;
 import com.palmergames.bukkit.towny.object.Town;
 import com.palmergames.bukkit.towny.object.Nation;
 import com.palmergames.bukkit.towny.exceptions.NotRegisteredException;
 import com.townyblueprints.TownyBlueprints;
+import com.townyblueprints.economy.TownLedger;
 import com.townyblueprints.models.PlacedBlueprint;
+import com.townyblueprints.models.ResourceSpec;
 import com.townyblueprints.models.ResourceTemplate;
+import com.townyblueprints.tasks.AutoCollectionTask;
 import com.townyblueprints.util.ItemUtil;
-import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.bukkit.Location;
 import org.bukkit.Material;
@@ -22,45 +25,233 @@ import org.bukkit.event.Listener;
 import org.bukkit.inventory.ItemStack;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 public class ResourceCollectionHandler implements Listener {
     private final TownyBlueprints plugin;
-    private final Map<String, Map<String, Integer>> pendingCollections = new HashMap<>();
-    @Getter
-    private long lastNewDay = System.currentTimeMillis();
+    // Uncollected income per town, then per blueprint id and resource. Read from storage on startup.
+    private final Map<UUID, Map<String, Map<String, Integer>>> pendingCollections = new ConcurrentHashMap<>();
+
+    // Number of Towny days seen so far, read from storage on first use
+    private long currentDay = -1;
+    // Nation tax rates resolved for the current day, per nation
+    private final Map<UUID, NationTaxRates> nationTaxRates = new ConcurrentHashMap<>();
+    // Taxes owed to each nation, deposited in one batch per nation by settleNationTaxes. Written through to storage
+    // as they change, so a crash before the next settlement doesn't lose them
+    private final Map<UUID, Map<String, Integer>> nationTaxes = new ConcurrentHashMap<>();
+
+    private record NationTaxRates(long day, Map<String, Double> rates, Map<String, Double> byResource) {}
 
     @EventHandler
     public void onNewDay(NewDayEvent event) {
-        lastNewDay = System.currentTimeMillis();
-
-        // Process all active blueprints and store their resources
-        for (PlacedBlueprint blueprint : plugin.getBlueprintManager().getAllPlacedBlueprints()) {
-            if (blueprint.isActive()) {
-                String blueprintId = blueprint.getId();
-                Map<String, Integer> resources = new HashMap<>();
-
-                if (blueprint.getBlueprint().getIncomeType().startsWith("template:")) {
-                    String templateName = blueprint.getBlueprint().getIncomeType().substring(9);
-                    ResourceTemplate template = plugin.getResourceTemplateManager().getTemplate(templateName);
-                    if (template != null) {
-                        for (ResourceTemplate.ResourceEntry resource : template.getSelectedResources()) {
-                            resources.put(resource.getType(), resource.getRandomAmount());
-                        }
-                    }
-                } else {
-                    resources.put(blueprint.getBlueprint().getIncomeType(),
-                            (int)blueprint.getBlueprint().getDailyIncome());
+        // Income is settled lazily when a town collects, a new day only moves the day index
+        currentDay = getCurrentDay() + 1;
+        plugin.getDatabase().saveCurrentDay(currentDay);
+    }
+
+    /**
+     * Start delivering the new day's income of opted in blueprints. Auto deposit only pays blueprints whose
+     * upkeep succeeded, so DailyTaskListener calls this once the day's upkeep has run, not the NewDayEvent.
+     */
+    public void startAutoDeposit() {
+        if (plugin.getConfig().getBoolean("economy.collection.auto_deposit.enabled", false)) {
+            new AutoCollectionTask(plugin).runTaskTimer(plugin, 1L, 1L);
+        }
+    }
+
+    public long getCurrentDay() {
+        if (currentDay < 0) {
+            currentDay = plugin.getDatabase().loadCurrentDay();
+        }
+        return currentDay;
+    }
+
+    /**
+     * The income a blueprint produced on a given day. Rolls only depend on the blueprint's seed and the day,
+     * so they come out the same however late the day is settled.
+     */
+    private Map<String, Integer> rollIncome(PlacedBlueprint blueprint, long day, double scale) {
+        Map<String, Integer> resources = new HashMap<>();
+        if (scale <= 0) return resources;
+
+        if (blueprint.getBlueprint().getIncomeSpec() instanceof ResourceSpec.Template) {
+            ResourceTemplate template = blueprint.getBlueprint().getIncomeTemplate();
+            if (template != null) {
+                SplittableRandom random = new SplittableRandom(blueprint.getAccrualSeed() ^ (day * 0x9E3779B97F4A7C15L));
+                for (ResourceTemplate.ResourceEntry resource : template.getSelectedResources(random)) {
+                    resources.put(resource.getType(), (int) Math.round(resource.getRandomAmount(random) * scale));
                 }
+            }
+        } else {
+            resources.put(blueprint.getBlueprint().getIncomeType(),
+                    (int) (blueprint.getBlueprint().getDailyIncome() * scale));
+        }
+        return resources;
+    }
+
+    /**
+     * Add the income of every day since the blueprint was last settled to its pending collections,
+     * up to economy.collection.max_storage per resource. Returns whether the blueprint has to be saved.
+     */
+    private boolean settle(PlacedBlueprint blueprint, Map<String, Integer> pending, int maxStorage) {
+        long today = getCurrentDay();
+        long lastSettled = blueprint.getLastSettledDay();
+        if (lastSettled >= today) return false;
+
+        blueprint.setLastSettledDay(today);
+        // Blueprints from before lazy settling are given a day when they're loaded, see startSettling
+        if (lastSettled < 0) return true;
+        // Inactive blueprints accrue nothing, and becoming active settles and saves them first
+        if (!blueprint.isActive()) return false;
+
+        // Group size is constant between settlements, any change to it settles the group first
+        int groupSize = plugin.getBlueprintManager().getActiveTypeCount(blueprint.getTown(), blueprint.getBlueprint().getType());
+        double scale = blueprint.getBlueprint().getIncomeScale(groupSize);
+        for (long day = lastSettled + 1; day <= today; day++) {
+            for (Map.Entry<String, Integer> resource : rollIncome(blueprint, day, scale).entrySet()) {
+                if (resource.getValue() <= 0) continue;
+                long total = (long) pending.getOrDefault(resource.getKey(), 0) + resource.getValue();
+                pending.put(resource.getKey(), (int) (maxStorage > 0 ? Math.min(total, maxStorage) : Math.min(total, Integer.MAX_VALUE)));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Settle all of a town's blueprints and write what changed.
+     */
+    public void settleTown(Town town) {
+        settleBlueprints(town, plugin.getBlueprintManager().getPlacedBlueprintsForTown(town));
+    }
+
+    /**
+     * Settle a single blueprint, for example before collecting from it.
+     */
+    public void settleBlueprint(PlacedBlueprint blueprint) {
+        if (blueprint.getTown() == null) return;
+        settleBlueprints(blueprint.getTown(), List.of(blueprint));
+    }
+
+    /**
+     * Settle a blueprint and the other blueprints of its type in the town, before the group's size changes.
+     */
+    public void settleGroup(PlacedBlueprint blueprint) {
+        Town town = blueprint.getTown();
+        if (town == null) return;
+
+        String type = blueprint.getBlueprint().getType();
+        settleBlueprints(town, plugin.getBlueprintManager().getPlacedBlueprintsForTown(town).stream()
+                .filter(bp -> bp == blueprint || bp.getBlueprint().getType().equalsIgnoreCase(type))
+                .toList());
+    }
+
+    private void settleBlueprints(Town town, Collection<PlacedBlueprint> blueprints) {
+        int maxStorage = plugin.getConfig().getInt("economy.collection.max_storage", 1000);
+        Map<String, Map<String, Integer>> pending = getPendingCollections(town.getUUID());
+        Map<String, Map<String, Integer>> changes = new HashMap<>();
+        List<PlacedBlueprint> settled = new ArrayList<>();
+
+        for (PlacedBlueprint blueprint : blueprints) {
+            Map<String, Integer> resources = pending.computeIfAbsent(blueprint.getId(), k -> new HashMap<>());
+            if (settle(blueprint, resources, maxStorage)) {
+                settled.add(blueprint);
+                if (!resources.isEmpty()) {
+                    changes.put(blueprint.getId(), new HashMap<>(resources));
+                }
+            }
+            if (resources.isEmpty()) {
+                pending.remove(blueprint.getId());
+            }
+        }
+
+        if (!changes.isEmpty()) {
+            plugin.getDatabase().savePendingCollections(Map.of(town.getUUID(), changes));
+        }
+        plugin.getDatabase().saveBlueprints(settled);
+    }
 
-                pendingCollections.put(blueprintId, resources);
+    /**
+     * Give loaded blueprints from before lazy settling a settled day, so they start counting from today.
+     * Called once on startup, the blueprints are written in one batch.
+     */
+    public void startSettling(Collection<PlacedBlueprint> blueprints) {
+        long today = getCurrentDay();
+        List<PlacedBlueprint> unsettled = new ArrayList<>();
+        for (PlacedBlueprint blueprint : blueprints) {
+            if (blueprint.getLastSettledDay() < 0) {
+                blueprint.setLastSettledDay(today);
+                unsettled.add(blueprint);
+            }
+        }
+        plugin.getDatabase().saveBlueprints(unsettled);
+    }
+
+    private Map<String, Map<String, Integer>> getPendingCollections(UUID townId) {
+        return pendingCollections.computeIfAbsent(townId, id -> new HashMap<>());
+    }
+
+    /**
+     * Read every town's uncollected income. Called once on startup, so lookups never touch storage.
+     */
+    public void loadPendingCollections() {
+        pendingCollections.clear();
+        plugin.getDatabase().loadAllPendingCollections().forEach((townId, pending) -> {
+            Map<String, Map<String, Integer>> town = new HashMap<>();
+            pending.forEach((blueprintId, resources) -> town.put(blueprintId, new HashMap<>(resources)));
+            pendingCollections.put(townId, town);
+        });
+    }
+
+    /**
+     * Whether any of the town's blueprints has income waiting to be collected.
+     */
+    public boolean hasPendingCollections(Town town) {
+        if (getPendingCollections(town.getUUID()).values().stream().anyMatch(resources -> !resources.isEmpty())) {
+            return true;
+        }
+        // Active blueprints with unsettled days will have income once they're settled
+        long today = getCurrentDay();
+        return plugin.getBlueprintManager().getPlacedBlueprintsForTown(town).stream()
+                .anyMatch(bp -> bp.isActive() && bp.getLastSettledDay() >= 0 && bp.getLastSettledDay() < today);
+    }
+
+    /**
+     * Forget the uncollected income of a blueprint that's being removed.
+     */
+    public void removePendingCollections(PlacedBlueprint blueprint) {
+        if (blueprint.getTown() == null) return;
+        clearPendingCollections(blueprint.getTown().getUUID(), List.of(blueprint.getId()), Set.of());
+    }
+
+    /**
+     * Clear the pending resources of blueprints, except for the resources in kept.
+     */
+    private void clearPendingCollections(UUID townId, Collection<String> blueprintIds, Set<String> kept) {
+        if (blueprintIds.isEmpty()) return;
+
+        Map<String, Map<String, Integer>> pending = getPendingCollections(townId);
+        Map<String, Map<String, Integer>> cleared = new HashMap<>();
+        for (String blueprintId : blueprintIds) {
+            Map<String, Integer> resources = pending.get(blueprintId);
+            if (resources != null) {
+                resources.keySet().retainAll(kept);
+            }
+            if (resources == null || resources.isEmpty()) {
+                pending.remove(blueprintId);
+                cleared.put(blueprintId, Map.of());
+            } else {
+                cleared.put(blueprintId, new HashMap<>(resources));
             }
         }
+        plugin.getDatabase().savePendingCollections(Map.of(townId, cleared));
     }
 
     public void collectResources(Player player, Town town, String type) {
-        boolean anyResourcesCollected = false;
+        settleTown(town);
+        Map<String, Map<String, Integer>> pending = getPendingCollections(town.getUUID());
 
         // Get all placed blueprints for the town
         List<PlacedBlueprint> blueprints = new ArrayList<>(plugin.getBlueprintManager().getPlacedBlueprintsForTown(town));
@@ -72,65 +263,41 @@ public class ResourceCollectionHandler implements Listener {
                     .collect(Collectors.toList());
         }
 
-        // Process each blueprint
+        // Add up what every blueprint has waiting, so each resource is deposited only once
+        Map<String, Integer> totals = new LinkedHashMap<>();
+        List<String> collectedIds = new ArrayList<>();
         for (PlacedBlueprint blueprint : blueprints) {
             // Skip if upkeep wasn't successful
             if (!blueprint.isSuccessfulUpkeep()) {
                 continue;
             }
 
-            String blueprintId = blueprint.getId();
-            Map<String, Integer> resources = pendingCollections.get(blueprintId);
-
-            if (resources != null && !resources.isEmpty()) {
-                // Process each resource
-                for (Map.Entry<String, Integer> entry : resources.entrySet()) {
-                    String resourceType = entry.getKey();
-                    int amount = entry.getValue();
-
-                    if (resourceType.equals("MONEY")) {
-                        town.getAccount().deposit(amount, "Blueprint income");
-                        player.sendMessage(String.format("§aCollected §6%d" + plugin.getConfigManager().getCurrencyName() + "§a from %s!",
-                                amount, blueprint.getBlueprint().getName()));
-                    } else {
-                        ItemStack item = ItemUtil.getItemStack(resourceType, amount, player);
-                        if (item != null) {
-                            // Try to store in warehouse first
-                            if (plugin.getWarehouseManager().storeItems(town, item, player)) {
-                                player.sendMessage(String.format("§aStored §6%dx %s§a in warehouse from %s!",
-                                        amount,
-                                        ItemUtil.getDisplayName(resourceType) != null ?
-                                                ItemUtil.getDisplayName(resourceType) :
-                                                resourceType.toLowerCase().replace("_", " "),
-                                        blueprint.getBlueprint().getName()));
-                            } else {
-                                // If warehouse storage fails, give to player
-                                Map<Integer, ItemStack> overflow = player.getInventory().addItem(item);
-                                if (!overflow.isEmpty()) {
-                                    for (ItemStack leftover : overflow.values()) {
-                                        player.getWorld().dropItem(player.getLocation(), leftover);
-                                        player.sendMessage("§eInventory full! Some items have been dropped at your feet.");
-                                    }
-                                }
-                                player.sendMessage(String.format("§aCollected §6%dx %s§a from %s!",
-                                        amount,
-                                        ItemUtil.getDisplayName(resourceType) != null ?
-                                                ItemUtil.getDisplayName(resourceType) :
-                                                resourceType.toLowerCase().replace("_", " "),
-                                        blueprint.getBlueprint().getName()));
-                            }
-                        }
-                    }
-                }
-                anyResourcesCollected = true;
-                pendingCollections.remove(blueprintId);
-                blueprint.setLastCollectionTime(System.currentTimeMillis());
+            Map<String, Integer> resources = pending.get(blueprint.getId());
+            if (resources == null || resources.isEmpty()) {
+                continue;
             }
+
+            for (Map.Entry<String, Integer> entry : resources.entrySet()) {
+                totals.merge(entry.getKey(), entry.getValue(), (a, b) -> (int) Math.min((long) a + b, Integer.MAX_VALUE));
+            }
+            collectedIds.add(blueprint.getId());
+            blueprint.setLastCollectionTime(System.currentTimeMillis());
         }
 
-        if (!anyResourcesCollected) {
+        if (collectedIds.isEmpty()) {
             player.sendMessage("§cNo resources available for collection! Please wait until the next Towny day.");
+            return;
         }
+
+        Set<String> unresolved = takeUnresolved(totals);
+        clearPendingCollections(town.getUUID(), collectedIds, unresolved);
+        if (!totals.isEmpty()) {
+            Map<String, Integer> taxes = takeNationTax(town, totals);
+            player.sendMessage(String.format("§aCollected from §6%d§a blueprints:", collectedIds.size()));
+            depositResources(player, town, totals).forEach(player::sendMessage);
+            sendNationTaxSummary(player, town, taxes);
+        }
+        sendUnresolvedSummary(player, unresolved);
     }
 
     public void collectResourcesAtLocation(Player player, Location location) {
@@ -146,79 +313,180 @@ public class ResourceCollectionHandler implements Listener {
         }
 
         Town town = blueprint.getTown();
-        boolean collected = false;
-
         String blueprintId = blueprint.getId();
-        Map<String, Integer> resources = pendingCollections.get(blueprintId);
+        settleBlueprint(blueprint);
+        Map<String, Integer> resources = town != null ? getPendingCollections(town.getUUID()).get(blueprintId) : null;
+
+        if (resources == null || resources.isEmpty()) {
+            player.sendMessage("§cNo resources available for collection from this blueprint!");
+            return;
+        }
+
+        Map<String, Integer> collected = new LinkedHashMap<>(resources);
+        Set<String> unresolved = takeUnresolved(collected);
+        clearPendingCollections(town.getUUID(), List.of(blueprintId), unresolved);
+        blueprint.setLastCollectionTime(System.currentTimeMillis());
+        if (!collected.isEmpty()) {
+            Map<String, Integer> taxes = takeNationTax(town, collected);
+            player.sendMessage(String.format("§aCollected from %s:", blueprint.getBlueprint().getName()));
+            depositResources(player, town, collected).forEach(player::sendMessage);
+            sendNationTaxSummary(player, town, taxes);
+        }
+        sendUnresolvedSummary(player, unresolved);
+    }
+
+    /**
+     * Remove the item resources that don't resolve to an item right now, for example because the plugin
+     * providing them isn't loaded. Their amounts stay pending so they can be collected once they resolve again.
+     */
+    private Set<String> takeUnresolved(Map<String, Integer> resources) {
+        Set<String> unresolved = new LinkedHashSet<>();
+        for (String resourceType : resources.keySet()) {
+            if (!resourceType.equals("MONEY") && !ItemUtil.isValidItem(resourceType)) {
+                unresolved.add(resourceType);
+            }
+        }
+        resources.keySet().removeAll(unresolved);
+        return unresolved;
+    }
+
+    private void sendUnresolvedSummary(Player player, Set<String> unresolved) {
+        if (unresolved.isEmpty()) return;
+        player.sendMessage("§eThese items could not be created and are still waiting to be collected: §6"
+                + String.join(", ", unresolved));
+    }
+
+    /**
+     * Deliver the pending income of a town's opted in blueprints straight into its bank and warehouses.
+     * Items the warehouses have no room for stay pending until collected or delivered another day.
+     */
+    public void autoDeposit(Town town, Predicate<PlacedBlueprint> optedIn) {
+        settleTown(town);
+        Map<String, Map<String, Integer>> pending = getPendingCollections(town.getUUID());
+
+        Map<String, Integer> totals = new LinkedHashMap<>();
+        List<PlacedBlueprint> eligible = new ArrayList<>();
+        for (PlacedBlueprint blueprint : plugin.getBlueprintManager().getPlacedBlueprintsForTown(town)) {
+            Map<String, Integer> resources = pending.get(blueprint.getId());
+            if (!blueprint.isSuccessfulUpkeep() || !optedIn.test(blueprint) || resources == null || resources.isEmpty()) {
+                continue;
+            }
 
-        if (resources != null && !resources.isEmpty()) {
-            // Process resources
             for (Map.Entry<String, Integer> entry : resources.entrySet()) {
-                String resourceType = entry.getKey();
-                int amount = entry.getValue();
-
-                if (resourceType.equals("MONEY")) {
-                    town.getAccount().deposit(amount, "Blueprint income");
-                    player.sendMessage(String.format("§aCollected §6%d" + plugin.getConfigManager().getCurrencyName() + "§a from %s!",
-                            amount, blueprint.getBlueprint().getName()));
-                    collected = true;
+                totals.merge(entry.getKey(), entry.getValue(), (a, b) -> (int) Math.min((long) a + b, Integer.MAX_VALUE));
+            }
+            eligible.add(blueprint);
+        }
+        if (eligible.isEmpty()) return;
+
+        Nation nation = getTaxingNation(town);
+        TownLedger ledger = new TownLedger(town);
+        Map<String, Integer> delivered = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : totals.entrySet()) {
+            int amount = entry.getValue();
+            int tax = nation != null ? getNationTax(nation, entry.getKey(), amount) : 0;
+            if (entry.getKey().equals("MONEY")) {
+                ledger.deposit(null, amount - tax, "Blueprint income (auto deposit)");
+                delivered.put(entry.getKey(), amount);
+            } else {
+                // Only the share of the tax that belongs to what fit in the warehouses is taken
+                int net = amount - tax;
+                int stored = plugin.getWarehouseManager().storeAvailable(town, entry.getKey(), net);
+                tax = stored == net ? tax : (int) ((long) tax * stored / Math.max(1, net));
+                delivered.put(entry.getKey(), stored + tax);
+            }
+            if (tax > 0) {
+                recordNationTax(nation, entry.getKey(), tax);
+            }
+        }
+
+        // Take what was delivered off the blueprints' pending resources
+        Map<String, Map<String, Integer>> changes = new HashMap<>();
+        for (PlacedBlueprint blueprint : eligible) {
+            Map<String, Integer> resources = pending.get(blueprint.getId());
+            Iterator<Map.Entry<String, Integer>> iterator = resources.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Integer> entry = iterator.next();
+                int available = delivered.getOrDefault(entry.getKey(), 0);
+                int taken = Math.min(available, entry.getValue());
+                if (taken <= 0) continue;
+
+                delivered.put(entry.getKey(), available - taken);
+                if (taken == entry.getValue()) {
+                    iterator.remove();
                 } else {
-                    ItemStack item = ItemUtil.getItemStack(resourceType, amount, player);
-                    if (item != null) {
-                        if (plugin.getWarehouseManager().storeItems(town, item, player)) {
-                            player.sendMessage(String.format("§aStored §6%dx %s§a in warehouse from %s!",
-                                    amount,
-                                    ItemUtil.getDisplayName(resourceType) != null ?
-                                            ItemUtil.getDisplayName(resourceType) :
-                                            resourceType.toLowerCase().replace("_", " "),
-                                    blueprint.getBlueprint().getName()));
-                            collected = true;
-                        } else {
-                            Map<Integer, ItemStack> overflow = player.getInventory().addItem(item);
-                            if (!overflow.isEmpty()) {
-                                for (ItemStack leftover : overflow.values()) {
-                                    player.getWorld().dropItem(player.getLocation(), leftover);
-                                    player.sendMessage("§eInventory full! Some items have been dropped at your feet.");
-                                }
-                            }
-                            player.sendMessage(String.format("§aCollected §6%dx %s§a from %s!",
-                                    amount,
-                                    ItemUtil.getDisplayName(resourceType) != null ?
-                                            ItemUtil.getDisplayName(resourceType) :
-                                            resourceType.toLowerCase().replace("_", " "),
-                                    blueprint.getBlueprint().getName()));
-                            collected = true;
-                        }
-                    }
+                    entry.setValue(entry.getValue() - taken);
                 }
             }
 
-            if (collected) {
-                pendingCollections.remove(blueprintId);
+            changes.put(blueprint.getId(), new HashMap<>(resources));
+            if (resources.isEmpty()) {
+                pending.remove(blueprint.getId());
                 blueprint.setLastCollectionTime(System.currentTimeMillis());
             }
         }
+        plugin.getEconomyManager().commit(ledger, "Blueprint income");
+        plugin.getDatabase().savePendingCollections(Map.of(town.getUUID(), changes));
+        if (nation != null) {
+            saveNationTaxes(nation.getUUID());
+        }
 
-        if (!collected) {
-            player.sendMessage("§cNo resources available for collection from this blueprint!");
+        // Debug logging
+        if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
+            plugin.getLogger().info("[AutoCollection] Delivered income of " + eligible.size() + " blueprints for " + town.getName());
         }
     }
 
-    private PlacedBlueprint findBlueprintAtLocation(Location location) {
-        for (PlacedBlueprint blueprint : plugin.getBlueprintManager().getAllPlacedBlueprints()) {
-            Location bpLoc = blueprint.getLocation();
-            if (bpLoc.getWorld().equals(location.getWorld())) {
-                if (location.getX() >= bpLoc.getX() &&
-                        location.getX() < bpLoc.getX() + blueprint.getBlueprint().getSizeX() &&
-                        location.getY() >= bpLoc.getY() &&
-                        location.getY() < bpLoc.getY() + blueprint.getBlueprint().getSizeY() &&
-                        location.getZ() >= bpLoc.getZ() &&
-                        location.getZ() < bpLoc.getZ() + blueprint.getBlueprint().getSizeZ()) {
-                    return blueprint;
+    /**
+     * Deposit collected resources in one go: all money as a single town account deposit, and each item as one
+     * planned warehouse insertion, or into the player's inventory if the town has no room for it.
+     * Returns a summary line per resource.
+     */
+    private List<String> depositResources(Player player, Town town, Map<String, Integer> resources) {
+        List<String> summary = new ArrayList<>();
+        boolean dropped = false;
+
+        for (Map.Entry<String, Integer> entry : resources.entrySet()) {
+            String resourceType = entry.getKey();
+            int amount = entry.getValue();
+
+            if (resourceType.equals("MONEY")) {
+                TownLedger ledger = new TownLedger(town);
+                ledger.deposit(null, amount, "Blueprint income (collected by " + player.getName() + ")");
+                plugin.getEconomyManager().commit(ledger, "Blueprint income");
+                summary.add(String.format("  §6%d %s §7to the town bank", amount, plugin.getConfigManager().getCurrencyName()));
+            } else if (plugin.getWarehouseManager().storeItems(town, resourceType, amount, player)) {
+                summary.add(String.format("  §6%dx %s §7stored in the warehouse", amount, formatResourceName(resourceType)));
+            } else {
+                ItemStack item = ItemUtil.getItemStack(resourceType, amount, player);
+                if (item == null) {
+                    summary.add(String.format("  §c%dx %s §7could not be created", amount, formatResourceName(resourceType)));
+                    plugin.getLogger().warning("Could not create " + amount + "x " + resourceType + " collected by " + player.getName());
+                    continue;
                 }
+
+                // If warehouse storage fails, give to player
+                for (ItemStack leftover : player.getInventory().addItem(item).values()) {
+                    player.getWorld().dropItem(player.getLocation(), leftover);
+                    dropped = true;
+                }
+                summary.add(String.format("  §6%dx %s §7given to you", amount, formatResourceName(resourceType)));
             }
         }
-        return null;
+
+        if (dropped) {
+            summary.add("§eInventory full! Some items have been dropped at your feet.");
+        }
+        return summary;
+    }
+
+    private String formatResourceName(String resourceType) {
+        String displayName = ItemUtil.getDisplayName(resourceType);
+        return displayName != null ? displayName : resourceType.toLowerCase().replace("_", " ");
+    }
+
+    private PlacedBlueprint findBlueprintAtLocation(Location location) {
+        return plugin.getBlueprintManager().getBlueprintAt(location);
     }
 
     public void processBlueprint(PlacedBlueprint blueprint) {
@@ -272,11 +540,144 @@ public class ResourceCollectionHandler implements Listener {
                     return found != null && found >= required;
                 });
 
-        blueprint.setActive(hasAllBlocks);
-        plugin.getBlueprintManager().saveAll();
+        plugin.getBlueprintManager().setBlueprintActive(blueprint, hasAllBlocks);
+    }
+
+    /**
+     * Take the nation's share out of a town's collected resources. The taxes are added to the nation's
+     * ledger and deposited later by settleNationTaxes. Returns the amounts taken per resource.
+     */
+    private Map<String, Integer> takeNationTax(Town town, Map<String, Integer> resources) {
+        Nation nation = getTaxingNation(town);
+        if (nation == null) return Map.of();
+
+        Map<String, Integer> taxes = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : resources.entrySet()) {
+            int tax = getNationTax(nation, entry.getKey(), entry.getValue());
+            if (tax <= 0) continue;
+
+            entry.setValue(entry.getValue() - tax);
+            taxes.put(entry.getKey(), tax);
+            recordNationTax(nation, entry.getKey(), tax);
+        }
+        if (!taxes.isEmpty()) {
+            saveNationTaxes(nation.getUUID());
+        }
+        resources.values().removeIf(amount -> amount <= 0);
+        return taxes;
+    }
+
+    private void sendNationTaxSummary(Player player, Town town, Map<String, Integer> taxes) {
+        if (taxes.isEmpty()) return;
+
+        Nation nation = town.getNationOrNull();
+        player.sendMessage(String.format("§7Nation tax paid to §6%s§7:", nation != null ? nation.getName() : "the nation"));
+        for (Map.Entry<String, Integer> entry : taxes.entrySet()) {
+            if (entry.getKey().equals("MONEY")) {
+                player.sendMessage(String.format("  §6%d %s", entry.getValue(), plugin.getConfigManager().getCurrencyName()));
+            } else {
+                player.sendMessage(String.format("  §6%dx %s", entry.getValue(), formatResourceName(entry.getKey())));
+            }
+        }
+    }
+
+    // The nation a town pays tax to, or null if taxation is off, the town has no nation or it's the capital
+    private Nation getTaxingNation(Town town) {
+        if (!plugin.getConfig().getBoolean("economy.nation_tax.enabled", true)) return null;
+        Nation nation = town.getNationOrNull();
+        if (nation == null || town.isCapital()) return null;
+        return nation;
+    }
+
+    private int getNationTax(Nation nation, String resourceType, int amount) {
+        if (amount <= 0) return 0;
+        double rate = getTaxRateForResource(getNationTaxRates(nation), resourceType);
+        return (int) Math.min(amount, Math.floor(amount * rate / 100.0));
     }
 
-    private Map<String, Double> getNationTaxRates(Nation nation) {
+    private void recordNationTax(Nation nation, String resourceType, int amount) {
+        nationTaxes.computeIfAbsent(nation.getUUID(), id -> new ConcurrentHashMap<>())
+                .merge(resourceType, amount, (a, b) -> (int) Math.min((long) a + b, Integer.MAX_VALUE));
+    }
+
+    private void saveNationTaxes(UUID nationId) {
+        Map<String, Integer> owed = nationTaxes.get(nationId);
+        plugin.getDatabase().saveNationTaxes(Map.of(nationId, owed != null ? new HashMap<>(owed) : Map.of()));
+    }
+
+    /**
+     * Read the taxes owed from before the last shutdown. Called once on startup.
+     */
+    public void loadNationTaxes() {
+        nationTaxes.clear();
+        plugin.getDatabase().loadNationTaxes().forEach((nationId, owed) -> {
+            if (!owed.isEmpty()) {
+                nationTaxes.put(nationId, new ConcurrentHashMap<>(owed));
+            }
+        });
+    }
+
+    /**
+     * Deposit the taxes every nation is owed: money as one deposit into the nation bank, items into the
+     * capital's warehouses. Items the capital has no room for stay owed until the next settlement.
+     */
+    public void settleNationTaxes() {
+        for (UUID nationId : new ArrayList<>(nationTaxes.keySet())) {
+            Map<String, Integer> owed = nationTaxes.remove(nationId);
+            if (owed == null || owed.isEmpty()) continue;
+
+            Nation nation = TownyAPI.getInstance().getNation(nationId);
+            Town capital = nation != null ? nation.getCapital() : null;
+            if (capital == null) {
+                // Debug logging
+                if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
+                    plugin.getLogger().warning("[NationTax] Dropping taxes of nation " + nationId + ", it no longer has a capital");
+                }
+                saveNationTaxes(nationId);
+                continue;
+            }
+
+            int carried = 0;
+            for (Map.Entry<String, Integer> entry : owed.entrySet()) {
+                if (entry.getKey().equals("MONEY")) {
+                    nation.getAccount().deposit(entry.getValue(), "Blueprint nation tax");
+                    continue;
+                }
+
+                int left = entry.getValue() - plugin.getWarehouseManager().storeAvailable(capital, entry.getKey(), entry.getValue());
+                if (left > 0) {
+                    recordNationTax(nation, entry.getKey(), left);
+                    carried++;
+                }
+            }
+            saveNationTaxes(nationId);
+
+            // Debug logging
+            if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
+                plugin.getLogger().info("[NationTax] Settled " + owed.size() + " resources for " + nation.getName()
+                        + (carried > 0 ? ", " + carried + " carried over for lack of warehouse space" : ""));
+            }
+        }
+    }
+
+    /**
+     * Drop the cached nation tax rates, for example after the config was reloaded.
+     */
+    public void invalidateNationTaxRates() {
+        nationTaxRates.clear();
+    }
+
+    private NationTaxRates getNationTaxRates(Nation nation) {
+        long today = getCurrentDay();
+        NationTaxRates cached = nationTaxRates.get(nation.getUUID());
+        if (cached == null || cached.day() != today) {
+            cached = new NationTaxRates(today, resolveNationTaxRates(nation), new ConcurrentHashMap<>());
+            nationTaxRates.put(nation.getUUID(), cached);
+        }
+        return cached;
+    }
+
+    private Map<String, Double> resolveNationTaxRates(Nation nation) {
         Map<String, Double> rates = new HashMap<>();
 
         // Check if we should use Towny's tax rate
@@ -312,49 +713,28 @@ public class ResourceCollectionHandler implements Listener {
         return rates;
     }
 
-    private double getTaxRateForResource(Map<String, Double> taxRates, String resourceType) {
-        if (taxRates.containsKey(resourceType)) {
-            return taxRates.get(resourceType);
-        }
-
-        String category = getResourceCategory(resourceType);
-        if (taxRates.containsKey(category)) {
-            return taxRates.get(category);
-        }
-
-        return taxRates.getOrDefault("DEFAULT",
-                plugin.getConfig().getDouble("economy.nation_tax.default_rate", 10));
+    private double getTaxRateForResource(NationTaxRates taxRates, String resourceType) {
+        return taxRates.byResource().computeIfAbsent(resourceType, type -> {
+            Map<String, Double> rates = taxRates.rates();
+            double rate;
+            if (rates.containsKey(type)) {
+                rate = rates.get(type);
+            } else if (rates.containsKey(getResourceCategory(type))) {
+                rate = rates.get(getResourceCategory(type));
+            } else {
+                rate = rates.getOrDefault("DEFAULT", plugin.getConfig().getDouble("economy.nation_tax.default_rate", 10));
+            }
+            double min = plugin.getConfig().getDouble("economy.nation_tax.min_rate", 0);
+            double max = plugin.getConfig().getDouble("economy.nation_tax.max_rate", 100);
+            return Math.max(min, Math.min(max, rate));
+        });
     }
 
     private String getResourceCategory(String resourceType) {
-        if (resourceType.equals("MONEY")) {
-            return "MONEY";
-        } else if (resourceType.startsWith("vanilla:") ||
-                resourceType.startsWith("itemsadder:") ||
-                resourceType.startsWith("mmoitems:") ||
-                resourceType.startsWith("mythicmobs:") ||
-                resourceType.startsWith("oraxen:")) {
-            return "ITEMS";
-        } else {
-            return "OTHER";
-        }
-    }
-
-    private void storeNationTax(Nation nation, String resourceType, int amount, Player player) {
-        Town capital = nation.getCapital();
-        if (capital != null) {
-            ItemStack taxItems = ItemUtil.getItemStack(resourceType, amount, null);
-            if (taxItems != null) {
-                if (plugin.getWarehouseManager().storeItems(capital, taxItems, player)) {
-                    player.sendMessage(String.format("§7Nation tax collected: §6%dx %s",
-                            amount,
-                            ItemUtil.getDisplayName(resourceType) != null ?
-                                    ItemUtil.getDisplayName(resourceType) :
-                                    resourceType.toLowerCase().replace("_", " ")));
-                } else {
-                    player.sendMessage("§cNation capital warehouse full! Tax converted to money.");
-                }
-            }
-        }
+        return switch (ResourceSpec.parse(resourceType)) {
+            case ResourceSpec.Money money -> "MONEY";
+            case ResourceSpec.Item item when item.key() != null -> "ITEMS";
+            default -> "OTHER";
+        };
     }
 }
\ No newline at end of file
@@ -2,21 +2,25 @@ package com.townyblueprints.handlers;
 
 import com.palmergames.bukkit.towny.object.Town;
 import com.townyblueprints.TownyBlueprints;
+import com.townyblueprints.economy.TownLedger;
+import com.townyblueprints.inventory.ItemFingerprint;
+import com.townyblueprints.inventory.ToolPool;
 import com.townyblueprints.models.PlacedBlueprint;
+import com.townyblueprints.models.ResourceSpec;
 import com.townyblueprints.models.ResourceTemplate;
+import com.townyblueprints.util.ItemKey;
 import com.townyblueprints.util.ItemUtil;
 import lombok.RequiredArgsConstructor;
 import org.bukkit.Material;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.block.Block;
+import org.bukkit.Bukkit;
+import org.bukkit.block.BlockState;
 import org.bukkit.block.Container;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.Damageable;
-import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.Location;
 
 import java.io.File;
@@ -29,6 +33,9 @@ import java.util.Map;
 public class UpkeepHandler {
     private final TownyBlueprints plugin;
     private final Map<String, List<Material>> toolDefinitions = new HashMap<>();
+    // Tool pools of blueprints' own containers, shared by every drain of one upkeep pass and dropped on the next tick
+    private final Map<String, ToolPool> blueprintTools = new HashMap<>();
+    private int blueprintToolsTick = -1;
 
     public Map<String, List<Material>> getToolDefinitions() {
         return toolDefinitions;
@@ -63,72 +70,69 @@ public class UpkeepHandler {
         }
     }
 
-    public boolean processUpkeep(PlacedBlueprint blueprint) {
+    /**
+     * Take a blueprint's daily upkeep. Money goes through the town's ledger, which is committed by the caller.
+     */
+    public boolean processUpkeep(PlacedBlueprint blueprint, TownLedger ledger) {
         String upkeepType = blueprint.getBlueprint().getUpkeepType();
-        double upkeep = blueprint.getBlueprint().getDailyUpkeep();
+        // Blueprints of the same type in a town share or scale their upkeep as a group
+        int groupSize = plugin.getBlueprintManager().getActiveTypeCount(blueprint.getTown(), blueprint.getBlueprint().getType());
+        double scale = blueprint.getBlueprint().getUpkeepScale(groupSize);
+        double upkeep = blueprint.getBlueprint().calculateUpkeep(groupSize);
 
         // Debug logging
         if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
             plugin.getLogger().info("[Upkeep] Processing upkeep for blueprint " + blueprint.getId());
             plugin.getLogger().info("[Upkeep] Type: " + upkeepType + ", Amount: " + upkeep);
         }
-        boolean upkeepMet = false;
-
-        if (upkeepType.startsWith("template:")) {
-            ResourceTemplate template = plugin.getResourceTemplateManager().getTemplate(upkeepType);
-            if (template != null) {
+        boolean upkeepMet = switch (blueprint.getBlueprint().getUpkeepSpec()) {
+            case ResourceSpec.Template spec -> {
+                ResourceTemplate template = blueprint.getBlueprint().getUpkeepTemplate();
+                if (template == null) {
+                    // Debug logging
+                    if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
+                        plugin.getLogger().warning("[Upkeep] Template not found: " + spec.name());
+                    }
+                    yield false;
+                }
                 // Debug logging
                 if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
                     plugin.getLogger().info("[Upkeep] Processing template upkeep: " + template.getName());
                 }
-                upkeepMet = processTemplateUpkeep(blueprint, template);
-            } else {
+                yield processTemplateUpkeep(blueprint, template, scale, ledger);
+            }
+            case ResourceSpec.Money money -> {
+                boolean withdrawn = ledger.withdraw(blueprint.getId(), upkeep, "Blueprint daily upkeep");
                 // Debug logging
                 if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-                    plugin.getLogger().warning("[Upkeep] Template not found: " + upkeepType);
+                    plugin.getLogger().info("[Upkeep] Money withdrawal " + (withdrawn ? "successful" : "failed"));
                 }
+                yield withdrawn;
             }
-        } else if (upkeepType.equals("MONEY")) {
-            // Debug logging
-            if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-                plugin.getLogger().info("[Upkeep] Processing money upkeep");
-            }
-            upkeepMet = blueprint.getTown().getAccount().withdraw(upkeep, "Blueprint daily upkeep");
-            // Debug logging
-            if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-                plugin.getLogger().info("[Upkeep] Money withdrawal " + (upkeepMet ? "successful" : "failed"));
-            }
-        } else if (upkeepType.equals("TOOL")) {
-            // Debug logging
-            if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-                plugin.getLogger().info("[Upkeep] Processing tool upkeep");
-            }
-        upkeepMet = processDurabilityUpkeep(blueprint);
-            // Debug logging
-            if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-                plugin.getLogger().info("[Upkeep] Tool durability drain " + (upkeepMet ? "successful" : "failed"));
-            }
-        } else {
-            // Handle vanilla items by prefixing with "vanilla:" if not already prefixed
-            String processedUpkeepType = upkeepType.contains(":") ? upkeepType : "vanilla:" + upkeepType;
-            // Debug logging
-            if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-                plugin.getLogger().info("[Upkeep] Processing resource upkeep for " + processedUpkeepType);
+            case ResourceSpec.Tool tool -> {
+                boolean drained = processDurabilityUpkeep(blueprint, scale);
+                // Debug logging
+                if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
+                    plugin.getLogger().info("[Upkeep] Tool durability drain " + (drained ? "successful" : "failed"));
+                }
+                yield drained;
             }
-            upkeepMet = processResourceUpkeep(blueprint, processedUpkeepType, (int) upkeep);
-            // Debug logging
-            if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-                plugin.getLogger().info("[Upkeep] Resource collection " + (upkeepMet ? "successful" : "failed"));
+            case ResourceSpec.Item item -> {
+                boolean removed = (int) upkeep <= 0 || processResourceUpkeep(blueprint, item.key(), (int) upkeep);
+                // Debug logging
+                if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
+                    plugin.getLogger().info("[Upkeep] Resource collection " + (removed ? "successful" : "failed"));
+                }
+                yield removed;
             }
-        }
+        };
 
         if (!upkeepMet && blueprint.isActive()) {
             // Debug logging
             if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
                 plugin.getLogger().warning("[Upkeep] Blueprint " + blueprint.getId() + " deactivated due to insufficient upkeep");
             }
-            blueprint.setActive(false);
-            plugin.getBlueprintManager().saveAll();
+            plugin.getBlueprintManager().setBlueprintActive(blueprint, false);
 
             plugin.getServer().getScheduler().runTask(plugin, () -> {
                 blueprint.getTown().getResidents().forEach(resident -> {
@@ -145,13 +149,13 @@ public class UpkeepHandler {
         return upkeepMet;
     }
 
-    private boolean processResourceUpkeep(PlacedBlueprint blueprint, String upkeepType, int amount) {
+    private boolean processResourceUpkeep(PlacedBlueprint blueprint, ItemKey key, int amount) {
         // Debug logging
         if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-            plugin.getLogger().info("[Upkeep] Attempting to remove " + amount + " of " + upkeepType + " from warehouses");
+            plugin.getLogger().info("[Upkeep] Attempting to remove " + amount + " of " + key + " from warehouses");
         }
         // Try to remove items from warehouses first
-        if (plugin.getWarehouseManager().removeItems(blueprint.getTown(), upkeepType, amount)) {
+        if (plugin.getWarehouseManager().removeItems(blueprint.getTown(), key, amount)) {
             // Debug logging
             if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
                 plugin.getLogger().info("[Upkeep] Successfully removed items from warehouse");
@@ -164,25 +168,13 @@ public class UpkeepHandler {
             plugin.getLogger().info("[Upkeep] Warehouse removal failed, checking blueprint containers");
         }
 
-        // Create ItemStack for the required items
-        ItemStack requiredItem;
-        if (upkeepType.startsWith("vanilla:")) {
-            try {
-                Material material = Material.valueOf(upkeepType.replace("vanilla:", "").toUpperCase());
-                requiredItem = new ItemStack(material, amount);
-            } catch (IllegalArgumentException e) {
-                plugin.getLogger().warning("[Upkeep] Invalid material: " + upkeepType);
-                return false;
-            }
-        } else {
-            requiredItem = ItemUtil.getItemStack(upkeepType, amount, null);
-            if (requiredItem == null) {
-                // Debug logging
-                if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-                    plugin.getLogger().warning("[Upkeep] Failed to create ItemStack for " + upkeepType);
-                    return false;
-                }
+        ItemStack requiredItem = ItemUtil.getItemStack(key, amount, null);
+        if (requiredItem == null) {
+            // Debug logging
+            if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
+                plugin.getLogger().warning("[Upkeep] Failed to create ItemStack for " + key);
             }
+            return false;
         }
 
         List<Container> containers = findContainersInBlueprint(blueprint);
@@ -203,31 +195,21 @@ public class UpkeepHandler {
         return false;
     }
 
-	private boolean processDurabilityUpkeep(PlacedBlueprint blueprint) {
+	private boolean processDurabilityUpkeep(PlacedBlueprint blueprint, double scale) {
 		if (blueprint.getBlueprint().getToolType() == null || blueprint.getBlueprint().getDurabilityDrain() <= 0) {
 			return false;
 		}
 
 		Material toolType = blueprint.getBlueprint().getToolType();
-		int durabilityDrain = blueprint.getBlueprint().getDurabilityDrain();
-
-		// Try warehouse first
-		if (plugin.getWarehouseManager().drainToolDurability(blueprint.getTown(), toolType, durabilityDrain)) {
+		int durabilityDrain = scaled(blueprint.getBlueprint().getDurabilityDrain(), scale);
+		if (durabilityDrain <= 0) {
 			return true;
 		}
 
-		// If warehouse fails, check containers
-		List<Container> containers = findContainersInBlueprint(blueprint);
-		for (Container container : containers) {
-			if (drainToolDurability(container, toolType, durabilityDrain, blueprint)) {
-				return true;
-			}
-		}
-
-		return false;
+		return drainTools(blueprint, List.of(toolType), durabilityDrain);
 	}
 
-    private boolean processTemplateUpkeep(PlacedBlueprint blueprint, ResourceTemplate template) {
+    private boolean processTemplateUpkeep(PlacedBlueprint blueprint, ResourceTemplate template, double scale, TownLedger ledger) {
         // Debug logging
         if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
             plugin.getLogger().info("[Upkeep] Processing template upkeep for " + blueprint.getId());
@@ -240,95 +222,41 @@ public class UpkeepHandler {
             plugin.getLogger().info("[Upkeep] Processing resource: " + resource.getType());
         }
         
-        if (resource.getType().equals("TOOL")) {
+        if (resource.getSpec() instanceof ResourceSpec.Tool) {
             String toolType = resource.getToolType();
-            int durabilityDrain = resource.getDurabilityDrain();
+            int durabilityDrain = scaled(resource.getDurabilityDrain(), scale);
+            if (durabilityDrain <= 0) continue;
             
-            // Try to parse as a specific Material first
-            try {
-                Material specificTool = Material.valueOf(toolType.toUpperCase());
-                // Try warehouse first
-                if (plugin.getWarehouseManager().drainToolDurability(blueprint.getTown(), specificTool, durabilityDrain)) {
-                    // Debug logging
-                    if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-                        plugin.getLogger().info("[Upkeep] Successfully drained specific tool: " + specificTool.name());
-                    }
-                    continue;
-                }
-
-                // If warehouse fails, check containers
-                List<Container> containers = findContainersInBlueprint(blueprint);
-                boolean toolFound = false;
-                for (Container container : containers) {
-                    if (drainToolDurability(container, specificTool, durabilityDrain, blueprint)) {
-                        toolFound = true;
-                        break;
-                    }
-                }
-
-                if (!toolFound) {
-                    // Debug logging
-                    if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-                        plugin.getLogger().warning("[Upkeep] No suitable specific tool found: " + specificTool.name());
-                    }
-                    allUpkeepMet = false;
+            // A specific Material, or else a tool definition
+            Material specificTool = Material.matchMaterial(toolType);
+            List<Material> validTools = specificTool != null
+                    ? List.of(specificTool)
+                    : plugin.getToolDefinitionManager().getDefinition(toolType.toLowerCase());
+            if (validTools.isEmpty()) {
+                // Debug logging
+                if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
+                    plugin.getLogger().warning("[Upkeep] No valid tools found for type: " + toolType);
                 }
+                allUpkeepMet = false;
                 continue;
-            } catch (IllegalArgumentException e) {
-                // Not a specific material, try tool definition
-                List<Material> validTools = plugin.getToolDefinitionManager().getDefinition(toolType.toLowerCase());
-                if (validTools.isEmpty()) {
-                    // Debug logging
-                    if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-                        plugin.getLogger().warning("[Upkeep] No valid tools found for type: " + toolType);
-                    }
-                    allUpkeepMet = false;
-                    continue;
-                }
-
-                // Try warehouse first with each valid tool type
-                boolean toolFound = false;
-                for (Material toolMaterial : validTools) {
-                    // Debug logging
-                    if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-                        plugin.getLogger().info("[Upkeep] Trying tool: " + toolMaterial.name());
-                    }
-                    if (plugin.getWarehouseManager().drainToolDurability(blueprint.getTown(), toolMaterial, durabilityDrain)) {
-                        toolFound = true;
-                        break;
-                    }
-                }
-
-                // If warehouse fails, check containers
-                if (!toolFound) {
-                    List<Container> containers = findContainersInBlueprint(blueprint);
-                    for (Container container : containers) {
-                        for (Material toolMaterial : validTools) {
-                            if (drainToolDurability(container, toolMaterial, durabilityDrain, blueprint)) {
-                                toolFound = true;
-                                break;
-                            }
-                        }
-                        if (toolFound) break;
-                    }
-                }
+            }
 
-                if (!toolFound) {
-                    // Debug logging
-                    if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-                        plugin.getLogger().warning("[Upkeep] No suitable tool found for durability drain");
-                    }
-                    allUpkeepMet = false;
+            if (!drainTools(blueprint, validTools, durabilityDrain)) {
+                // Debug logging
+                if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
+                    plugin.getLogger().warning("[Upkeep] No suitable tool found for durability drain");
                 }
+                allUpkeepMet = false;
             }
-        } else if (resource.getType().equals("MONEY")) {
-            int amount = resource.getRandomAmount();
+        } else if (resource.getSpec() instanceof ResourceSpec.Money) {
+            int amount = scaled(resource.getRandomAmount(), scale);
+            if (amount <= 0) continue;
             // Debug logging
             if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
                 plugin.getLogger().info("[Upkeep] Processing money upkeep: " + amount);
             }
             
-            if (!blueprint.getTown().getAccount().withdraw(amount, "Blueprint daily upkeep")) {
+            if (!ledger.withdraw(blueprint.getId(), amount, "Blueprint daily upkeep (" + template.getName() + ")")) {
                 // Debug logging
                 if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
                     plugin.getLogger().warning("[Upkeep] Failed to withdraw money: " + amount);
@@ -340,8 +268,9 @@ public class UpkeepHandler {
                     plugin.getLogger().info("[Upkeep] Successfully withdrew money: " + amount);
                 }
             }
-        } else {
-            int amount = resource.getRandomAmount();
+        } else if (resource.getSpec() instanceof ResourceSpec.Item item) {
+            int amount = scaled(resource.getRandomAmount(), scale);
+            if (amount <= 0) continue;
             String resourceType = resource.getType();
             // Debug logging
             if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
@@ -349,7 +278,7 @@ public class UpkeepHandler {
             }
             
             // Try warehouse first
-            if (plugin.getWarehouseManager().removeItems(blueprint.getTown(), resourceType, amount)) {
+            if (plugin.getWarehouseManager().removeItems(blueprint.getTown(), item.key(), amount)) {
                 // Debug logging
                 if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
                     plugin.getLogger().info("[Upkeep] Successfully removed items from warehouse");
@@ -358,7 +287,7 @@ public class UpkeepHandler {
             }
             
             // If warehouse fails, check containers
-            ItemStack requiredItem = ItemUtil.getItemStack(resourceType, amount, null);
+            ItemStack requiredItem = ItemUtil.getItemStack(item.key(), amount, null);
             if (requiredItem == null) {
                 // Debug logging
                 if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
@@ -389,6 +318,9 @@ public class UpkeepHandler {
                 }
                 allUpkeepMet = false;
             }
+        } else {
+            // Templates can't be nested
+            allUpkeepMet = false;
         }
     }
 
@@ -400,81 +332,60 @@ public class UpkeepHandler {
 }
 
 
-    private boolean drainToolDurability(Container container, Material toolType, int durabilityDrain, PlacedBlueprint blueprint) {
-        ItemStack[] contents = container.getInventory().getContents();
-        boolean success = plugin.getWarehouseManager().drainToolDurability(blueprint.getTown(), toolType, durabilityDrain);
-        if (!success) {
+    private static int scaled(int amount, double scale) {
+        return (int) Math.round(amount * scale);
+    }
+
+    /**
+     * Drain tool durability from the town's warehouses, or else from the tools kept in the blueprint itself.
+     * Either way the drain may span several tools, but it's taken from only one of the two.
+     */
+    private boolean drainTools(PlacedBlueprint blueprint, List<Material> validTools, int durabilityDrain) {
+        if (plugin.getWarehouseManager().drainToolDurability(blueprint.getTown(), validTools, durabilityDrain)) {
+            return true;
+        }
+
+        boolean drained = getBlueprintTools(blueprint).drain(validTools, durabilityDrain);
+        if (!drained && getBlueprintTools(blueprint).isStale()) {
+            blueprintTools.remove(blueprint.getId());
+            drained = getBlueprintTools(blueprint).drain(validTools, durabilityDrain);
+        }
+        if (!drained) {
             // Debug logging
             if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-                plugin.getLogger().warning("Tool upkeep failed: Insufficient durability in warehouse for " + toolType);
-            }
-		}
-		// Check if we're looking for a generic tool type
-        String genericType = toolType.name();
-        boolean isGenericTool = toolDefinitions.containsKey(genericType);
-        List<Material> validTools = isGenericTool ? toolDefinitions.get(genericType) : null;
-        
-        for (int i = 0; i < contents.length; i++) {
-            ItemStack item = contents[i];
-            if (item != null && item.getItemMeta() instanceof Damageable) {
-                // Check if the item matches our tool requirements
-                boolean isMatchingTool = isGenericTool ? 
-                    validTools.contains(item.getType()) : 
-                    item.getType() == toolType;
-
-                if (isMatchingTool) {
-                    Damageable damageable = (Damageable) item.getItemMeta();
-                    int maxDurability = item.getType().getMaxDurability();
-                    int currentDurability = maxDurability - damageable.getDamage();
-
-                    if (currentDurability > durabilityDrain) {
-                        // Tool has enough durability, drain it
-                        damageable.setDamage(damageable.getDamage() + durabilityDrain);
-                        item.setItemMeta((ItemMeta) damageable);
-                        
-                        // If tool is about to break (less than 10% durability), send warning
-                        if (maxDurability - damageable.getDamage() < (maxDurability * 0.1)) {
-                            plugin.getServer().getScheduler().runTask(plugin, () -> {
-                                blueprint.getTown().getResidents().forEach(resident -> {
-                                    if (resident.isOnline()) {
-                                        resident.getPlayer().sendMessage(
-                                            "c[Warning] A " + item.getType().name().toLowerCase().replace("_", " ") + 
-                                            " in your " + blueprint.getBlueprint().getName() + 
-                                            " blueprint is about to break!"
-                                        );
-                                    }
-                                });
-                            });
-                        }
-                        return true;
-                    } else if (currentDurability > 0) {
-                        // Tool will break after this use
-                        container.getInventory().setItem(i, null);
-                        return false;
-                    }
-                }
+                plugin.getLogger().warning("Tool upkeep failed: Insufficient durability for " + validTools);
             }
         }
-        // Debug logging
-        if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-            plugin.getLogger().warning("Tool upkeep failed: No matching tools found for " + toolType);
+        return drained;
+    }
+
+    private ToolPool getBlueprintTools(PlacedBlueprint blueprint) {
+        // Inventories can be replaced when their chunk reloads, so pools aren't kept past the tick they were built in
+        int tick = Bukkit.getCurrentTick();
+        if (tick != blueprintToolsTick) {
+            blueprintTools.clear();
+            blueprintToolsTick = tick;
         }
-		return false;
+        return blueprintTools.computeIfAbsent(blueprint.getId(), id -> ToolPool.build(findContainersInBlueprint(blueprint)));
     }
 
+    // Containers are block entities, so only the block entities of the chunks the blueprint touches are checked
     private List<Container> findContainersInBlueprint(PlacedBlueprint blueprint) {
         List<Container> containers = new ArrayList<>();
         Location base = blueprint.getLocation();
-        int sizeX = blueprint.getBlueprint().getSizeX();
-        int sizeY = blueprint.getBlueprint().getSizeY();
-        int sizeZ = blueprint.getBlueprint().getSizeZ();
-
-        for (int x = 0; x < sizeX; x++) {
-            for (int y = 0; y < sizeY; y++) {
-                for (int z = 0; z < sizeZ; z++) {
-                    Block block = base.clone().add(x, y, z).getBlock();
-                    if (block.getState() instanceof Container) {
-                        containers.add((Container) block.getState());
+        int minX = base.getBlockX(), minY = base.getBlockY(), minZ = base.getBlockZ();
+        int maxX = minX + blueprint.getBlueprint().getSizeX();
+        int maxY = minY + blueprint.getBlueprint().getSizeY();
+        int maxZ = minZ + blueprint.getBlueprint().getSizeZ();
+
+        for (int chunkX = minX >> 4; chunkX <= (maxX - 1) >> 4; chunkX++) {
+            for (int chunkZ = minZ >> 4; chunkZ <= (maxZ - 1) >> 4; chunkZ++) {
+                for (BlockState state : base.getWorld().getChunkAt(chunkX, chunkZ).getTileEntities(false)) {
+                    if (state instanceof Container container
+                            && state.getX() >= minX && state.getX() < maxX
+                            && state.getY() >= minY && state.getY() < maxY
+                            && state.getZ() >= minZ && state.getZ() < maxZ) {
+                        containers.add(container);
                     }
                 }
             }
@@ -484,9 +395,10 @@ public class UpkeepHandler {
     }
 
     private boolean hasEnoughItems(Container container, ItemStack required) {
+        ItemFingerprint fingerprint = ItemFingerprint.of(required);
         int found = 0;
         for (ItemStack item : container.getInventory().getContents()) {
-            if (item != null && item.isSimilar(required)) {
+            if (fingerprint.matches(item)) {
                 found += item.getAmount();
                 if (found >= required.getAmount()) {
                     return true;
@@ -499,10 +411,11 @@ public class UpkeepHandler {
     private void removeItems(Container container, ItemStack required) {
         int remaining = required.getAmount();
         ItemStack[] contents = container.getInventory().getContents();
+        ItemFingerprint fingerprint = ItemFingerprint.of(required);
 
         for (int i = 0; i < contents.length && remaining > 0; i++) {
             ItemStack item = contents[i];
-            if (item != null && item.isSimilar(required)) {
+            if (fingerprint.matches(item)) {
                 if (item.getAmount() <= remaining) {
                     remaining -= item.getAmount();
                     container.getInventory().setItem(i, null);
@@ -9,6 +9,7 @@ import org.bukkit.inventory.ItemStack;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
+import org.jetbrains.annotations.Nullable;
 import java.util.*;
 import java.util.logging.Logger;
 
@@ -41,6 +42,26 @@ public class InventoryManager {
         return operations.addItems(containers, items, player);
     }
 
+    public int insertItems(List<Container> containers, ItemStack items, ItemFingerprint fingerprint) {
+        return insertItems(containers, items, fingerprint, null);
+    }
+
+    public int insertItems(List<Container> containers, ItemStack items, ItemFingerprint fingerprint, @Nullable ToolPool tools) {
+        if (!Bukkit.isPrimaryThread()) {
+            // Debug logging
+            if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
+                logger.warning("[InventoryManager] Attempted to insert items from non-main thread!");
+            }
+            return items.getAmount();
+        }
+
+        return operations.insertItems(containers, items, fingerprint, tools);
+    }
+
+    public boolean spillItems(List<Container> containers, ItemStack leftover, Player player) {
+        return operations.spillItems(containers, leftover, player);
+    }
+
     public boolean removeItems(List<Container> containers, ItemStack required) {
         if (!Bukkit.isPrimaryThread()) {
             // Debug logging
@@ -77,6 +98,18 @@ public class InventoryManager {
         return operations.hasSpace(containers);
     }
 
+    public int countFreeSpace(List<Container> containers, Map<ItemFingerprint, Integer> partialSpace) {
+        if (!Bukkit.isPrimaryThread()) {
+            // Debug logging
+            if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
+                logger.warning("[InventoryManager] Attempted to check space from non-main thread!");
+            }
+            return 0;
+        }
+
+        return operations.countFreeSpace(containers, partialSpace);
+    }
+
     public int countItems(List<Container> containers, String itemType) {
         if (!Bukkit.isPrimaryThread()) {
             // Debug logging
@@ -1,16 +1,16 @@
 package com.townyblueprints.inventory;
 
 import com.townyblueprints.TownyBlueprints;
-import com.townyblueprints.util.ItemUtil;
+import com.townyblueprints.util.ItemKey;
 import org.bukkit.Material;
 import org.bukkit.block.Container;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.Damageable;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.Location;
+import org.jetbrains.annotations.Nullable;
 import java.util.*;
 import java.util.logging.Logger;
 
@@ -42,12 +42,14 @@ public class InventoryOperations {
             logger.info("[InventoryOperations] Attempting to remove " + toRemove + " " + required.getType().name());
         }
 
+    ItemFingerprint fingerprint = ItemFingerprint.of(required);
+
     // First, verify we have enough items across all containers
     int totalAvailable = 0;
     for (Container container : containers) {
         Inventory inv = container.getInventory();
         for (ItemStack item : inv.getContents()) {
-            if (item != null && item.isSimilar(required)) {
+            if (fingerprint.matches(item)) {
                 totalAvailable += item.getAmount();
             }
         }
@@ -74,7 +76,7 @@ public class InventoryOperations {
         for (int slot = 0; slot < inv.getSize() && remainingToRemove > 0; slot++) {
             ItemStack currentItem = inv.getItem(slot);
 
-            if (currentItem != null && currentItem.isSimilar(required)) {
+            if (fingerprint.matches(currentItem)) {
                 int currentAmount = currentItem.getAmount();
 
                 if (currentAmount <= remainingToRemove) {
@@ -147,14 +149,45 @@ public class InventoryOperations {
             return false;
         }
 
-        int toAdd = items.getAmount();
+        int remainingToAdd = insertItems(containers, items, ItemFingerprint.forStacking(items));
+		boolean success = remainingToAdd == 0;
         // Debug logging
         if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-            logger.info("[InventoryOperations] Attempting to add " + toAdd + " " + items.getType().name());
+            logger.info("[InventoryOperations] Add operation " + (success ? "successful" : "failed") +
+                    " (Remaining to add: " + remainingToAdd + ")");
         }
+	   // Handle remaining items
+        if (!success) {
+            ItemStack leftoverItems = items.clone();
+            leftoverItems.setAmount(remainingToAdd);
+            return spillItems(containers, leftoverItems, player);
+        }
+        return success;
+    }
 
-        int remainingToAdd = toAdd;
-        boolean modified = false;
+    /**
+     * Insert items into the containers, topping up existing stacks before using empty slots.
+     * Nothing is spilled, the amount that didn't fit is returned. The fingerprint decides which stacks
+     * are topped up, so it has to come from {@link ItemFingerprint#forStacking}.
+     */
+    public int insertItems(List<Container> containers, ItemStack items, ItemFingerprint fingerprint) {
+        return insertItems(containers, items, fingerprint, null);
+    }
+
+    /**
+     * Insert items like {@link #insertItems(List, ItemStack, ItemFingerprint)}, telling the tool pool
+     * about each slot that got a new stack so it doesn't have to be rebuilt.
+     */
+    public int insertItems(List<Container> containers, ItemStack items, ItemFingerprint fingerprint, @Nullable ToolPool tools) {
+        if (!Bukkit.isPrimaryThread()) {
+            throw new IllegalStateException("Inventory operations must be done on the main thread!");
+        }
+
+        int remainingToAdd = items.getAmount();
+        // Debug logging
+        if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
+            logger.info("[InventoryOperations] Attempting to add " + remainingToAdd + " " + items.getType().name());
+        }
 
         // Loop over each container
         for (Container container : containers) {
@@ -165,12 +198,11 @@ public class InventoryOperations {
             // First try to stack with existing items
             for (int slot = 0; slot < inv.getSize() && remainingToAdd > 0; slot++) {
                 ItemStack current = inv.getItem(slot);
-                if (current != null && current.isSimilar(items) && current.getAmount() < current.getMaxStackSize()) {
+                if (fingerprint.matches(current) && current.getAmount() < current.getMaxStackSize()) {
                     int space = current.getMaxStackSize() - current.getAmount();
                     int add = Math.min(space, remainingToAdd);
                     current.setAmount(current.getAmount() + add);
                     remainingToAdd -= add;
-                    modified = true;
                     // Debug logging
                     if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
                         logger.info("[InventoryOperations] Added " + add + " to existing stack in slot " + slot);
@@ -186,8 +218,10 @@ public class InventoryOperations {
                     ItemStack newStack = items.clone();
                     newStack.setAmount(add);
                     inv.setItem(slot, newStack);
+                    if (tools != null) {
+                        tools.track(inv, slot);
+                    }
                     remainingToAdd -= add;
-                    modified = true;
                     // Debug logging
                     if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
                     logger.info("[InventoryOperations] Added " + add + " to empty slot " + slot);
@@ -196,53 +230,68 @@ public class InventoryOperations {
             }
         }
 
-		boolean success = remainingToAdd == 0;
-        // Debug logging
-        if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-            logger.info("[InventoryOperations] Add operation " + (success ? "successful" : "failed") +
-                    " (Remaining to add: " + remainingToAdd + ")");
+        return remainingToAdd;
+    }
+
+    /**
+     * Hand items that didn't fit to the player, or drop them in front of the first container.
+     */
+    public boolean spillItems(List<Container> containers, ItemStack leftoverItems, Player player) {
+        int itemsNotAdded = leftoverItems.getAmount();
+
+        if (player != null) {
+            // If there's a player, try their inventory first
+            player.sendMessage("§eThe warehouse is full, some items couldn't be added. Trying to add them to your inventory...");
+            Map<Integer, ItemStack> overflow = player.getInventory().addItem(leftoverItems);
+
+            if (!overflow.isEmpty()) {
+                // If player inventory is also full, drop at their feet
+                for (ItemStack drop : overflow.values()) {
+                    player.getWorld().dropItemNaturally(player.getLocation(), drop);
+                }
+                player.sendMessage("§eYour inventory is full, the remaining items were dropped at your feet.");
+            }
+        } else {
+            // If no player is specified, drop items in front of the first container
+            if (!containers.isEmpty()) {
+                Container firstContainer = containers.get(0);
+                Location dropLocation = firstContainer.getLocation().add(0.5, 0.5, 0.5); // Center of the block
+                firstContainer.getWorld().dropItemNaturally(dropLocation, leftoverItems);
+                // Debug logging
+                if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
+                    logger.info("[InventoryOperations] Dropped " + itemsNotAdded + " items at warehouse location: " + dropLocation);
+                }
+            } else {
+                // Debug logging
+                if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
+                    logger.warning("[InventoryOperations] No containers available to drop items!");
+                }
+                return false;
+            }
         }
-	   // Handle remaining items
-        if (!success) {
-			if (remainingToAdd > 0) {
-				// Calculate how many items couldn't be added
-				int itemsNotAdded = remainingToAdd;
-				ItemStack leftoverItems = items.clone();
-				leftoverItems.setAmount(itemsNotAdded);
-
-				if (player != null) {
-					// If there's a player, try their inventory first
-					player.sendMessage("§eThe warehouse is full, some items couldn't be added. Trying to add them to your inventory...");
-					Map<Integer, ItemStack> overflow = player.getInventory().addItem(leftoverItems);
-
-					if (!overflow.isEmpty()) {
-						// If player inventory is also full, drop at their feet
-						for (ItemStack drop : overflow.values()) {
-							player.getWorld().dropItemNaturally(player.getLocation(), drop);
-						}
-						player.sendMessage("§eYour inventory is full, the remaining items were dropped at your feet.");
-					}
-				} else {
-					// If no player is specified, drop items in front of the first container
-					if (!containers.isEmpty()) {
-						Container firstContainer = containers.get(0);
-						Location dropLocation = firstContainer.getLocation().add(0.5, 0.5, 0.5); // Center of the block
-						firstContainer.getWorld().dropItemNaturally(dropLocation, leftoverItems);
-                        // Debug logging
-                        if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-                            logger.info("[InventoryOperations] Dropped " + itemsNotAdded + " items at warehouse location: " + dropLocation);
-                        }
-					} else {
-                        // Debug logging
-                        if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-                            logger.warning("[InventoryOperations] No containers available to drop items!");
-                        }
-						return false;
-					}
-				}
-			}
-		}
-        return success;
+        return false;
+    }
+
+    /**
+     * Count empty slots and, per item, the room left on partially filled stacks. Keyed by stacking
+     * fingerprints, the same rule insertItems tops up stacks by.
+     */
+    public int countFreeSpace(List<Container> containers, Map<ItemFingerprint, Integer> partialSpace) {
+        if (!Bukkit.isPrimaryThread()) {
+            throw new IllegalStateException("Inventory operations must be done on the main thread!");
+        }
+
+        int emptySlots = 0;
+        for (Container container : containers) {
+            for (ItemStack item : container.getInventory().getStorageContents()) {
+                if (item == null || item.getType() == Material.AIR) {
+                    emptySlots++;
+                } else if (item.getAmount() < item.getMaxStackSize()) {
+                    partialSpace.merge(ItemFingerprint.forStacking(item), item.getMaxStackSize() - item.getAmount(), Integer::sum);
+                }
+            }
+        }
+        return emptySlots;
     }
 
 // Helper method to add items to the player's inventory
@@ -302,45 +351,13 @@ private void dropItemsAtFeet(Player player, ItemStack item, int remainingItems)
             return false;
         }
 
-        for (Container container : containers) {
-            Inventory inv = container.getInventory();
-            boolean modified = false;
-
-            for (int slot = 0; slot < inv.getSize(); slot++) {
-                ItemStack item = inv.getItem(slot);
-                if (item != null && item.getType() == toolType && item.getItemMeta() instanceof Damageable) {
-                    Damageable meta = (Damageable) item.getItemMeta();
-                    int maxDurability = item.getType().getMaxDurability();
-                    int currentDurability = maxDurability - meta.getDamage();
-
-                    if (currentDurability > durabilityDrain) {
-                        meta.setDamage(meta.getDamage() + durabilityDrain);
-                        item.setItemMeta(meta);
-                        inv.setItem(slot, item);
-                        modified = true;
-                        // Debug logging
-                        if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-                            logger.info("[InventoryOperations] Drained " + durabilityDrain + " durability from tool in slot " + slot);
-                        }
-                        return true; // Return true when durability is successfully drained
-                    } else {
-                        inv.clear(slot);
-                        modified = true;
-                        // Debug logging
-                        if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-                            logger.info("[InventoryOperations] Tool in slot " + slot + " broke during use");
-                        }
-                        return true; // Return true when tool breaks (durability fully consumed)
-                    }
-                }
-            }
-
-            if (modified) {
-                container.update(true);
-            }
+        boolean drained = ToolPool.build(containers).drain(List.of(toolType), durabilityDrain);
+        // Debug logging
+        if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
+            logger.info("[InventoryOperations] Durability drain of " + durabilityDrain + " from " + toolType.name()
+                    + (drained ? " successful" : " failed, not enough durability left"));
         }
-
-        return false;
+        return drained;
     }
 
     public boolean hasSpace(List<Container> containers) {
@@ -361,22 +378,26 @@ private void dropItemsAtFeet(Player player, ItemStack item, int remainingItems)
             throw new IllegalStateException("Inventory operations must be done on the main thread!");
         }
 
+        // Resolve the comparison item once instead of once per slot
+        ItemKey key = ItemKey.of(itemType);
+        if (key == null) return 0;
+        Material material = key.isVanilla() ? Material.matchMaterial(key.id()) : null;
+        ItemStack compareItem = key.isVanilla() ? null : TownyBlueprints.getInstance().getItemResolver().getPrototype(key);
+        if (material == null && compareItem == null) return 0;
+        ItemFingerprint fingerprint = compareItem != null ? ItemFingerprint.of(compareItem) : null;
+
         int count = 0;
         for (Container container : containers) {
             Inventory inv = container.getInventory();
 
             for (ItemStack item : inv.getContents()) {
                 if (item != null) {
-                    if (itemType.startsWith("vanilla:")) {
-                        String materialName = itemType.replace("vanilla:", "").toUpperCase();
-                        if (item.getType().name().equals(materialName)) {
-                            count += item.getAmount();
-                        }
-                    } else {
-                        ItemStack compareItem = ItemUtil.getItemStack(itemType, 1, null);
-                        if (compareItem != null && item.isSimilar(compareItem)) {
+                    if (material != null) {
+                        if (item.getType() == material) {
                             count += item.getAmount();
                         }
+                    } else if (fingerprint.matches(item)) {
+                        count += item.getAmount();
                     }
                 }
             }
@@ -0,0 +1,157 @@
+package com.townyblueprints.inventory;
+
+import com.townyblueprints.TownyBlueprints;
+import com.townyblueprints.util.ItemResolver;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Compact identity of an ItemStack, used to match items without deep-comparing their meta.
+ * Plain items are identified by material alone, custom items by the id their provider tags them with,
+ * and anything else by a hash of its meta. Matching a candidate compares the cheap fields first and
+ * only reads ids or compares the full meta when those agree.
+ * Stacking fingerprints never match on the custom id alone: two custom items with the same id can still
+ * carry different meta, such as rolled stats or a name, and must not be merged into one stack.
+ */
+public final class ItemFingerprint {
+    // Persistent data keys custom item plugins use to tag their items with an id
+    private static final List<NamespacedKey> CUSTOM_ID_KEYS = List.of(
+            Objects.requireNonNull(NamespacedKey.fromString("oraxen:id")),
+            Objects.requireNonNull(NamespacedKey.fromString("mythicmobs:type"))
+    );
+
+    private final Material material;
+    private final boolean stacking;
+    private final boolean hasMeta;
+    private final boolean hasDisplayName;
+    private final boolean hasCustomModelData;
+    @Nullable
+    private final String customId;
+    private final int metaHash;
+    // Kept for the isSimilar comparisons only
+    private final ItemStack stack;
+
+    private ItemFingerprint(ItemStack stack, boolean stacking) {
+        this.stack = stack;
+        this.stacking = stacking;
+        this.material = stack.getType();
+        this.hasMeta = stack.hasItemMeta();
+
+        if (hasMeta) {
+            ItemMeta meta = stack.getItemMeta();
+            this.hasDisplayName = meta.hasDisplayName();
+            this.hasCustomModelData = meta.hasCustomModelData();
+            this.customId = stacking ? null : readCustomId(stack, meta);
+            this.metaHash = customId == null ? meta.hashCode() : 0;
+        } else {
+            this.hasDisplayName = false;
+            this.hasCustomModelData = false;
+            this.customId = null;
+            this.metaHash = 0;
+        }
+    }
+
+    /**
+     * Fingerprint for counting and removing items, custom items match on their id alone.
+     */
+    public static ItemFingerprint of(ItemStack stack) {
+        return new ItemFingerprint(stack, false);
+    }
+
+    /**
+     * Fingerprint for topping up existing stacks and counting the room left on them, items only match
+     * if their whole meta is the same.
+     */
+    public static ItemFingerprint forStacking(ItemStack stack) {
+        return new ItemFingerprint(stack, true);
+    }
+
+    @Nullable
+    private static String readCustomId(ItemStack stack, ItemMeta meta) {
+        PersistentDataContainer container = meta.getPersistentDataContainer();
+        if (!container.isEmpty()) {
+            for (NamespacedKey key : CUSTOM_ID_KEYS) {
+                String id = container.get(key, PersistentDataType.STRING);
+                if (id != null) {
+                    return key.getNamespace() + ":" + id;
+                }
+            }
+        }
+
+        // ItemsAdder and MMOItems keep their ids outside the container
+        TownyBlueprints plugin = TownyBlueprints.getInstance();
+        ItemResolver resolver = plugin != null ? plugin.getItemResolver() : null;
+        return resolver != null ? resolver.identify(stack) : null;
+    }
+
+    /**
+     * Check whether a stack is the same item as this fingerprint, ignoring amount.
+     */
+    public boolean matches(@Nullable ItemStack candidate) {
+        if (candidate == null || candidate.getType() != material) {
+            return false;
+        }
+
+        // Cheap path for plain items, no meta has to be read
+        if (!candidate.hasItemMeta()) {
+            return !hasMeta;
+        }
+        if (!hasMeta) {
+            return false;
+        }
+
+        // Fields that are cheap to read rule out most different items before any id or full meta comparison
+        ItemMeta meta = candidate.getItemMeta();
+        if (meta.hasDisplayName() != hasDisplayName || meta.hasCustomModelData() != hasCustomModelData) {
+            return false;
+        }
+
+        if (!stacking) {
+            String otherId = readCustomId(candidate, meta);
+            if (customId != null || otherId != null) {
+                return Objects.equals(customId, otherId);
+            }
+        }
+        // isSimilar compares the full meta, hashing the candidate first would only add a second pass
+        return stack.isSimilar(candidate);
+    }
+
+    public Material getMaterial() {
+        return material;
+    }
+
+    @Nullable
+    public String getCustomId() {
+        return customId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ItemFingerprint other)) return false;
+        if (material != other.material || stacking != other.stacking || hasMeta != other.hasMeta
+                || metaHash != other.metaHash || !Objects.equals(customId, other.customId)) {
+            return false;
+        }
+        // Equal hashes don't make equal meta, stacking keys have to be the same item
+        return !stacking || !hasMeta || stack.isSimilar(other.stack);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(material, stacking, hasMeta, customId, metaHash);
+    }
+
+    @Override
+    public String toString() {
+        return customId != null ? material + "[" + customId + "]" : material + (hasMeta ? "#" + metaHash : "");
+    }
+}
@@ -0,0 +1,178 @@
+package com.townyblueprints.inventory;
+
+import org.bukkit.Material;
+import org.bukkit.block.Container;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.Damageable;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.*;
+
+/**
+ * Index of the damageable tools in a set of containers, ordered by remaining durability per material.
+ * Draining uses up the most worn tool first and carries on with the next one when it breaks, so a drain
+ * can span several tools. Every step is a TreeSet removal or insertion, and a container whose contents
+ * changed is re-read on its own with {@link #rescan}, so the pool only has to be built once.
+ * Not thread safe, and entries are checked against their slot before use: if the containers changed
+ * behind the index's back the drain is refused and the pool reports itself stale so it can be rebuilt.
+ */
+public final class ToolPool {
+    private record ToolSlot(Inventory inventory, int slot, Material material, int remaining, long id) {}
+
+    private static final Comparator<ToolSlot> ORDER = Comparator.comparingInt(ToolSlot::remaining)
+            .thenComparingLong(ToolSlot::id);
+
+    private final Map<Material, TreeSet<ToolSlot>> tools = new EnumMap<>(Material.class);
+    private final Map<Material, Long> durability = new EnumMap<>(Material.class);
+    // The same entries by inventory and slot, to find what to replace when one inventory changes
+    private final Map<Inventory, Map<Integer, ToolSlot>> slots = new HashMap<>();
+    private long nextId;
+    private boolean stale;
+
+    public static ToolPool build(List<Container> containers) {
+        ToolPool pool = new ToolPool();
+        for (Container container : containers) {
+            Inventory inventory = container.getInventory();
+            pool.slots.putIfAbsent(inventory, new HashMap<>());
+            for (int slot = 0; slot < inventory.getSize(); slot++) {
+                pool.track(inventory, slot);
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Re-read a single slot, for example after a tool was put into it.
+     */
+    public void track(Inventory inventory, int slot) {
+        Map<Integer, ToolSlot> inventorySlots = slots.get(inventory);
+        if (inventorySlots == null) {
+            // Not one of the pool's containers
+            stale = true;
+            return;
+        }
+
+        ToolSlot previous = inventorySlots.get(slot);
+        if (previous != null) {
+            remove(previous);
+        }
+        ItemStack item = inventory.getItem(slot);
+        if (item != null && item.getType().getMaxDurability() > 0) {
+            add(new ToolSlot(inventory, slot, item.getType(), remainingDurability(item), nextId++));
+        }
+    }
+
+    /**
+     * Re-read every slot of an inventory whose contents changed. An inventory the pool doesn't know,
+     * such as a double chest seen from the other half, marks the pool stale instead.
+     */
+    public void rescan(Inventory inventory) {
+        if (!slots.containsKey(inventory)) {
+            stale = true;
+            return;
+        }
+        for (int slot = 0; slot < inventory.getSize(); slot++) {
+            track(inventory, slot);
+        }
+    }
+
+    private static int remainingDurability(ItemStack item) {
+        int damage = item.getItemMeta() instanceof Damageable damageable ? damageable.getDamage() : 0;
+        return Math.max(0, item.getType().getMaxDurability() - damage);
+    }
+
+    private void add(ToolSlot tool) {
+        tools.computeIfAbsent(tool.material(), k -> new TreeSet<>(ORDER)).add(tool);
+        durability.merge(tool.material(), (long) tool.remaining(), Long::sum);
+        slots.computeIfAbsent(tool.inventory(), k -> new HashMap<>()).put(tool.slot(), tool);
+    }
+
+    private void remove(ToolSlot tool) {
+        TreeSet<ToolSlot> set = tools.get(tool.material());
+        if (set != null && set.remove(tool)) {
+            durability.merge(tool.material(), (long) -tool.remaining(), Long::sum);
+        }
+        Map<Integer, ToolSlot> inventorySlots = slots.get(tool.inventory());
+        if (inventorySlots != null) {
+            inventorySlots.remove(tool.slot(), tool);
+        }
+    }
+
+    public long getDurability(Collection<Material> materials) {
+        long total = 0;
+        for (Material material : materials) {
+            total += durability.getOrDefault(material, 0L);
+        }
+        return total;
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * Drain durability from the tools of any of the given materials, breaking tools that run out.
+     * Nothing is drained if they don't have enough durability left between them.
+     */
+    public boolean drain(Collection<Material> materials, int amount) {
+        if (amount <= 0) return true;
+        if (stale || getDurability(materials) < amount) return false;
+
+        List<ToolSlot> plan = plan(materials, amount);
+        for (ToolSlot tool : plan) {
+            ItemStack item = tool.inventory().getItem(tool.slot());
+            if (item == null || item.getType() != tool.material() || remainingDurability(item) != tool.remaining()) {
+                stale = true;
+                return false;
+            }
+        }
+
+        int left = amount;
+        for (ToolSlot tool : plan) {
+            remove(tool);
+            if (tool.remaining() <= left) {
+                // Used up, the tool breaks
+                tool.inventory().clear(tool.slot());
+                left -= tool.remaining();
+            } else {
+                ItemStack item = tool.inventory().getItem(tool.slot());
+                ItemMeta meta = item.getItemMeta();
+                ((Damageable) meta).setDamage(((Damageable) meta).getDamage() + left);
+                item.setItemMeta(meta);
+                tool.inventory().setItem(tool.slot(), item);
+                add(new ToolSlot(tool.inventory(), tool.slot(), tool.material(), tool.remaining() - left, tool.id()));
+                left = 0;
+            }
+        }
+        return true;
+    }
+
+    // Most worn tools across all materials until their durability covers the amount
+    private List<ToolSlot> plan(Collection<Material> materials, int amount) {
+        List<Iterator<ToolSlot>> cursors = new ArrayList<>();
+        PriorityQueue<Map.Entry<ToolSlot, Integer>> heads = new PriorityQueue<>(Map.Entry.comparingByKey(ORDER));
+        for (Material material : materials) {
+            TreeSet<ToolSlot> set = tools.get(material);
+            if (set == null || set.isEmpty()) continue;
+
+            Iterator<ToolSlot> cursor = set.iterator();
+            heads.add(Map.entry(cursor.next(), cursors.size()));
+            cursors.add(cursor);
+        }
+
+        List<ToolSlot> plan = new ArrayList<>();
+        long planned = 0;
+        while (planned < amount && !heads.isEmpty()) {
+            Map.Entry<ToolSlot, Integer> head = heads.poll();
+            plan.add(head.getKey());
+            planned += head.getKey().remaining();
+
+            Iterator<ToolSlot> cursor = cursors.get(head.getValue());
+            if (cursor.hasNext()) {
+                heads.add(Map.entry(cursor.next(), head.getValue()));
+            }
+        }
+        return plan;
+    }
+}
@@ -5,7 +5,9 @@ import com.palmergames.bukkit.towny.event.NewDayEvent;
 import com.palmergames.bukkit.towny.object.Resident;
 import com.palmergames.bukkit.towny.object.Town;
 import com.townyblueprints.TownyBlueprints;
+import com.townyblueprints.economy.TownLedger;
 import com.townyblueprints.models.PlacedBlueprint;
+import com.townyblueprints.models.ResourceSpec;
 import com.townyblueprints.models.ResourceTemplate;
 import lombok.RequiredArgsConstructor;
 import net.kyori.adventure.text.Component;
@@ -37,16 +39,7 @@ public class DailyTaskListener implements Listener {
         }
 
         try {
-            // Refresh warehouse data first
-            // Debug logging
-            if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-                plugin.getLogger().info("Refreshing warehouse data...");
-            }
-            plugin.getWarehouseManager().loadWarehouses();
-            // Debug logging
-            if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-            plugin.getLogger().info("Warehouse data refresh complete");
-}
+            // The warehouse registry is kept up to date as blueprints change, no refresh needed here
             List<PlacedBlueprint> blueprints = new ArrayList<>(plugin.getBlueprintManager().getAllPlacedBlueprints());
 
             // Group blueprints by town for combined messages
@@ -62,15 +55,31 @@ public class DailyTaskListener implements Listener {
                         Map<String, Integer> totalUpkeep = new HashMap<>();
                         Map<String, Integer> toolUpkeep = new HashMap<>();
                         Town town = entry.getValue().get(0).getTown();
+                        // Money upkeep of all the town's blueprints is one withdrawal from its bank
+                        TownLedger ledger = new TownLedger(town);
 
                         for (PlacedBlueprint blueprint : entry.getValue()) {
                             try {
-                                processUpkeepAndCollectTotals(blueprint, totalUpkeep, toolUpkeep);
+                                processUpkeepAndCollectTotals(blueprint, ledger, totalUpkeep, toolUpkeep);
                             } catch (Exception e) {
                                 plugin.getLogger().severe("Error processing blueprint " + blueprint.getId() + ": " + e.getMessage());
                                 e.printStackTrace();
                             }
                         }
+                        if (!plugin.getEconomyManager().commit(ledger, "Blueprint daily upkeep")) {
+                            // The bank refused the net withdrawal, so none of the money upkeep was paid
+                            Set<String> charged = ledger.getChargedBlueprints();
+                            for (PlacedBlueprint blueprint : entry.getValue()) {
+                                if (charged.contains(blueprint.getId())) {
+                                    blueprint.setSuccessfulUpkeep(false);
+                                    plugin.getBlueprintManager().setBlueprintActive(blueprint, false);
+                                }
+                            }
+                            totalUpkeep.remove("MONEY");
+                            sendUpkeepRefusedMessage(town);
+                        }
+                        // Upkeep results are written once per town rather than once per blueprint
+                        plugin.getDatabase().saveBlueprints(entry.getValue());
 
                         // Update town's bonus blocks
                         int currentBonusBlocks = town.getBonusBlocks();
@@ -81,6 +90,9 @@ public class DailyTaskListener implements Listener {
                             sendCombinedUpkeepMessage(town, totalUpkeep, toolUpkeep);
                         }
                     }
+
+                    // Auto deposit reads each blueprint's upkeep result, so it starts only after every town's upkeep ran
+                    plugin.getResourceCollectionHandler().startAutoDeposit();
                 } finally {
                     isProcessing.set(false);
                 }
@@ -93,17 +105,16 @@ public class DailyTaskListener implements Listener {
     }
 
     // Rest of the class remains unchanged
-    private void processUpkeepAndCollectTotals(PlacedBlueprint blueprint, Map<String, Integer> totalUpkeep, Map<String, Integer> toolUpkeep) {
+    private void processUpkeepAndCollectTotals(PlacedBlueprint blueprint, TownLedger ledger, Map<String, Integer> totalUpkeep, Map<String, Integer> toolUpkeep) {
         try {
             String upkeepType = blueprint.getBlueprint().getUpkeepType();
 
             // Handle template-based upkeep
-            if (upkeepType.startsWith("template:")) {
-                String templateName = upkeepType.substring(9); // Remove "template:" prefix
-                ResourceTemplate template = plugin.getResourceTemplateManager().getTemplate(templateName);
+            if (blueprint.getBlueprint().getUpkeepSpec() instanceof ResourceSpec.Template) {
+                ResourceTemplate template = blueprint.getBlueprint().getUpkeepTemplate();
                 if (template != null) {
                     for (ResourceTemplate.ResourceEntry resource : template.getResources()) {
-                        if (resource.getType().equals("TOOL")) {
+                        if (resource.getSpec() instanceof ResourceSpec.Tool) {
                             // Add tool upkeep to the separate map
                             toolUpkeep.merge(resource.getToolType(), resource.getDurabilityDrain(), Integer::sum);
                         } else {
@@ -112,26 +123,26 @@ public class DailyTaskListener implements Listener {
                         }
                     }
                 }
-            } else if (upkeepType.equals("TOOL")) {
+            } else if (blueprint.getBlueprint().getUpkeepSpec() instanceof ResourceSpec.Tool) {
                 // Handle standard tool upkeep
                 double upkeepAmount = blueprint.getBlueprint().getDailyUpkeep();
                 Material toolMaterial = blueprint.getBlueprint().getToolType();
                 String toolType = toolMaterial != null ? toolMaterial.name() : "UNKNOWN";
                 toolUpkeep.merge(toolType, (int) upkeepAmount, Integer::sum);
             } else {
-                // Handle standard upkeep (money or items)
-                double upkeepAmount = blueprint.getBlueprint().getDailyUpkeep();
+                // Handle standard upkeep (money or items), scaled by the size of the blueprint's group
+                double upkeepAmount = blueprint.getBlueprint().calculateUpkeep(plugin.getBlueprintManager()
+                        .getActiveTypeCount(blueprint.getTown(), blueprint.getBlueprint().getType()));
                 totalUpkeep.merge(upkeepType, (int) upkeepAmount, Integer::sum);
             }
 
             // Process the upkeep
-            boolean upkeepSuccess = plugin.getUpkeepHandler().processUpkeep(blueprint);
+            boolean upkeepSuccess = plugin.getUpkeepHandler().processUpkeep(blueprint, ledger);
             blueprint.setSuccessfulUpkeep(upkeepSuccess);
 
             // If upkeep failed, deactivate the blueprint
             if (!upkeepSuccess) {
-                blueprint.setActive(false);
-                plugin.getBlueprintManager().saveAll();
+                plugin.getBlueprintManager().setBlueprintActive(blueprint, false);
             }
         } catch (Exception e) {
             plugin.getLogger().severe("Error processing upkeep for blueprint " + blueprint.getId() + ": " + e.getMessage());
@@ -176,6 +187,15 @@ public class DailyTaskListener implements Listener {
         }
     }
 
+    private void sendUpkeepRefusedMessage(Town town) {
+        for (Resident resident : town.getResidents()) {
+            Player player = TownyAPI.getInstance().getPlayer(resident);
+            if (player != null && player.isOnline()) {
+                player.sendMessage("§c[Warning] Your town's bank refused the blueprint upkeep, the blueprints it was due for have been deactivated!");
+            }
+        }
+    }
+
     private String formatResourceType(String type) {
         if (type.equals("MONEY")) return plugin.getConfigManager().getCurrencyName();
         if (type.equals("TOOL")) return "tool durability";
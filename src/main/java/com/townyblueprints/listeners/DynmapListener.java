@@ -1,9 +1,11 @@
 package com.townyblueprints.listeners;
 
 import com.townyblueprints.TownyBlueprints;
+import com.townyblueprints.models.Blueprint;
 import com.townyblueprints.models.PlacedBlueprint;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
+import org.dynmap.markers.AreaMarker;
 import org.dynmap.markers.MarkerAPI;
 import org.dynmap.markers.MarkerSet;
 import org.dynmap.markers.Marker;
@@ -11,15 +13,45 @@ import org.dynmap.markers.MarkerIcon;
 import org.dynmap.towny.events.BuildTownMarkerDescriptionEvent;
 import org.dynmap.towny.events.TownSetMarkerIconEvent;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 
 public class DynmapListener implements Listener {
+    private static final String MARKER_PREFIX = "blueprint_";
+
+    // What was last applied to a blueprint's markers, compared to skip unchanged updates
+    private record MarkerState(String world, int x, int y, int z, int sizeX, int sizeY, int sizeZ,
+                               String label, String icon, String description) {
+        double centerX() {
+            return x + sizeX / 2.0;
+        }
+
+        double centerY() {
+            return y + sizeY / 2.0;
+        }
+
+        double centerZ() {
+            return z + sizeZ / 2.0;
+        }
+
+        boolean sameLocation(MarkerState other) {
+            return world.equals(other.world) && x == other.x && y == other.y && z == other.z
+                    && sizeX == other.sizeX && sizeY == other.sizeY && sizeZ == other.sizeZ;
+        }
+    }
+
     private final TownyBlueprints plugin;
     private final MarkerAPI markerAPI;
     private final MarkerSet markerSet;
-    private final Map<String, Marker> blueprintMarkers = new HashMap<>();
+    private final Map<String, MarkerState> applied = new HashMap<>();
+    // Blueprint ids waiting to be synced, with the tick they are due
+    private final LinkedHashMap<String, Long> pending = new LinkedHashMap<>();
+    // Rendered descriptions by blueprint definition, until definitions change
+    private final Map<Blueprint, String> descriptions = new IdentityHashMap<>();
+    private final long debounceTicks;
+    private final int batchSize;
+    private final boolean areaMarkers;
+    private final int areaColor;
+    private long tick;
 
     public DynmapListener(TownyBlueprints plugin, MarkerAPI markerAPI) {
         this.plugin = plugin;
@@ -33,8 +65,33 @@ public class DynmapListener implements Listener {
             this.markerSet = existingSet;
         }
 
-        // Load existing blueprints
+        this.debounceTicks = Math.max(0, plugin.getConfig().getLong("dynmap.sync.debounce_ticks", 20));
+        this.batchSize = Math.max(1, plugin.getConfig().getInt("dynmap.sync.batch_size", 10));
+        this.areaMarkers = plugin.getConfig().getBoolean("dynmap.area_markers.enabled", true);
+        this.areaColor = parseColor(plugin.getConfig().getString("dynmap.area_markers.color", "#00AA00"));
+
+        // Load existing blueprints, and check the markers left from before a restart
+        for (Marker marker : markerSet.getMarkers()) {
+            if (marker.getMarkerID().startsWith(MARKER_PREFIX)) {
+                queue(marker.getMarkerID().substring(MARKER_PREFIX.length()));
+            }
+        }
+        for (AreaMarker area : markerSet.getAreaMarkers()) {
+            if (area.getMarkerID().startsWith(MARKER_PREFIX)) {
+                queue(area.getMarkerID().substring(MARKER_PREFIX.length()));
+            }
+        }
         updateAllBlueprints();
+        plugin.getServer().getScheduler().runTaskTimer(plugin, this::processQueue, 1L, 1L);
+    }
+
+    private int parseColor(String color) {
+        try {
+            return Integer.parseInt(color.startsWith("#") ? color.substring(1) : color, 16);
+        } catch (NumberFormatException e) {
+            plugin.getLogger().warning("Invalid dynmap area marker color in config: " + color + ". Using #00AA00.");
+            return 0x00AA00;
+        }
     }
 
     @EventHandler
@@ -86,81 +143,166 @@ public class DynmapListener implements Listener {
         }
     }
 
+    /**
+     * Queue every blueprint and every marker we have applied, so stale markers are deleted as well.
+     */
     public void updateAllBlueprints() {
-        // Clear existing markers
-        for (Marker marker : blueprintMarkers.values()) {
-            marker.deleteMarker();
+        for (PlacedBlueprint blueprint : plugin.getBlueprintManager().getAllPlacedBlueprints()) {
+            queue(blueprint.getId());
+        }
+        for (String blueprintId : new ArrayList<>(applied.keySet())) {
+            queue(blueprintId);
         }
-        blueprintMarkers.clear();
+    }
 
-        // Add markers for all active blueprints
-        for (PlacedBlueprint blueprint : plugin.getBlueprintManager().getAllPlacedBlueprints()) {
-            if (blueprint.isActive()) {
-                addBlueprintMarker(blueprint);
-            }
+    public void updateBlueprintMarker(PlacedBlueprint blueprint) {
+        queue(blueprint.getId());
+    }
+
+    public void removeBlueprintMarker(String blueprintId) {
+        queue(blueprintId);
+    }
+
+    /**
+     * Drop the cached descriptions, for when blueprint definitions were edited or reloaded.
+     */
+    public void invalidateDescriptions() {
+        descriptions.clear();
+        updateAllBlueprints();
+    }
+
+    // Queued again before it's due, a blueprint waits for the debounce time from the latest change
+    private void queue(String blueprintId) {
+        pending.remove(blueprintId);
+        pending.put(blueprintId, tick + debounceTicks);
+    }
+
+    private void processQueue() {
+        tick++;
+        int processed = 0;
+        Iterator<Map.Entry<String, Long>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext() && processed < batchSize) {
+            Map.Entry<String, Long> entry = iterator.next();
+            // Entries are in the order they were last queued, so the first one not due ends the batch
+            if (entry.getValue() > tick) break;
+
+            iterator.remove();
+            sync(entry.getKey());
+            processed++;
         }
     }
 
-    public void addBlueprintMarker(PlacedBlueprint blueprint) {
-        // Get blueprint location
-        double x = blueprint.getLocation().getBlockX();
-        double y = blueprint.getLocation().getBlockY();
-        double z = blueprint.getLocation().getBlockZ();
-        // Calculate the center of the blueprint
-        double centerX = x + (blueprint.getBlueprint().getSizeX() / 2.0);
-        double centerY = y + (blueprint.getBlueprint().getSizeY() / 2.0); //for vertical placement
-        double centerZ = z + (blueprint.getBlueprint().getSizeZ() / 2.0);
-        // Create or update marker
-        String markerId = "blueprint_" + blueprint.getId();
-        Marker marker = blueprintMarkers.get(markerId);
+    /**
+     * Bring the markers of one blueprint in line with its current state, changing only what differs.
+     */
+    private void sync(String blueprintId) {
+        PlacedBlueprint blueprint = plugin.getBlueprintManager().getPlacedBlueprint(blueprintId);
+        MarkerState desired = blueprint != null && blueprint.isActive() ? getState(blueprint) : null;
+        MarkerState current = applied.get(blueprintId);
+        // Without a desired state the markers are still looked up, persistent ones can be left from before a restart
+        if (desired != null && desired.equals(current)) return;
 
-        if (marker == null) {
-            MarkerIcon icon = markerAPI.getMarkerIcon(plugin.getConfig().getString("dynmap.icons." + blueprint.getBlueprint().getType(), "default"));
-
-            marker = markerSet.createMarker(
-                    markerId,
-                    blueprint.getBlueprint().getName(),
-                    blueprint.getLocation().getWorld().getName(),  // World name
-                    centerX, centerY, centerZ,  // Coordinates (x, y, z) for the point marker
-                    icon,      // MarkerIcon
-                    true       // Is the marker persistent? (true means it won't be removed on reload)
-            );
-            blueprintMarkers.put(markerId, marker);
-        } else {
-            // Updating the location correctly with world name and coordinates
-            marker.setLocation(blueprint.getLocation().getWorld().getName(), centerX, centerY, centerZ);
-        }
-
-        // Set marker description with blueprint information
-        String description = String.format("<div class=\"blueprint-info\">" +
-                        "<h3>%s</h3>" +
-                        "<p>Type: %s</p>" +
-                        "<p>Income: %s %s/day</p>" +
-                        "<p>Upkeep: %s %s/day</p>" +
-                        "</div>",
-                blueprint.getBlueprint().getName(),
-                blueprint.getBlueprint().getType(),
-                blueprint.getBlueprint().getDailyIncome(),
-                blueprint.getBlueprint().getIncomeType(),
-                blueprint.getBlueprint().getDailyUpkeep(),
-                blueprint.getBlueprint().getUpkeepType());
-
-        marker.setDescription(description);
+        String markerId = MARKER_PREFIX + blueprintId;
+        if (desired == null) {
+            Marker marker = markerSet.findMarker(markerId);
+            if (marker != null) {
+                marker.deleteMarker();
+            }
+            AreaMarker area = markerSet.findAreaMarker(markerId);
+            if (area != null) {
+                area.deleteMarker();
+            }
+            applied.remove(blueprintId);
+            return;
+        }
+
+        syncPointMarker(markerId, desired, current);
+        if (areaMarkers) {
+            syncAreaMarker(markerId, desired, current);
+        } else if (current == null) {
+            AreaMarker area = markerSet.findAreaMarker(markerId);
+            if (area != null) {
+                area.deleteMarker();
+            }
+        }
+        applied.put(blueprintId, desired);
     }
-    public void updateBlueprintMarker(PlacedBlueprint blueprint) {
-        if (blueprint.isActive()) {
-            addBlueprintMarker(blueprint);  // Add marker if blueprint is active
-        } else {
-            removeBlueprintMarker(blueprint.getId());  // Remove marker if blueprint is disabled
+
+    private void syncPointMarker(String markerId, MarkerState desired, MarkerState current) {
+        MarkerIcon icon = markerAPI.getMarkerIcon(desired.icon());
+        // Markers are persistent, so one can be left from before a restart
+        Marker marker = markerSet.findMarker(markerId);
+        if (marker == null) {
+            marker = markerSet.createMarker(markerId, desired.label(), desired.world(),
+                    desired.centerX(), desired.centerY(), desired.centerZ(), icon, true);
+            if (marker == null) return;
+            marker.setDescription(desired.description());
+            return;
+        }
+
+        if (current == null || !current.sameLocation(desired)) {
+            marker.setLocation(desired.world(), desired.centerX(), desired.centerY(), desired.centerZ());
+        }
+        if (current == null || !current.label().equals(desired.label())) {
+            marker.setLabel(desired.label());
+        }
+        if (current == null || !current.icon().equals(desired.icon())) {
+            marker.setMarkerIcon(icon);
+        }
+        if (current == null || !current.description().equals(desired.description())) {
+            marker.setDescription(desired.description());
         }
     }
 
-    public void removeBlueprintMarker(String blueprintId) {
-        String markerId = "blueprint_" + blueprintId;
-        Marker marker = blueprintMarkers.remove(markerId);
-        if (marker != null) {
-            marker.setDescription("<div class=\"blueprint-info\"><h3></h3></div>");
-            marker.deleteMarker();
+    private void syncAreaMarker(String markerId, MarkerState desired, MarkerState current) {
+        double[] xs = {desired.x(), desired.x() + desired.sizeX()};
+        double[] zs = {desired.z(), desired.z() + desired.sizeZ()};
+        AreaMarker area = markerSet.findAreaMarker(markerId);
+        if (area == null) {
+            area = markerSet.createAreaMarker(markerId, desired.label(), false, desired.world(), xs, zs, true);
+            if (area == null) return;
+            area.setRangeY(desired.y() + desired.sizeY(), desired.y());
+            area.setLineStyle(2, 0.8, areaColor);
+            area.setFillStyle(0.25, areaColor);
+            area.setDescription(desired.description());
+            return;
         }
+
+        if (current == null || !current.sameLocation(desired)) {
+            if (!area.getWorld().equals(desired.world())) {
+                // Area markers can't change world
+                area.deleteMarker();
+                syncAreaMarker(markerId, desired, null);
+                return;
+            }
+            area.setCornerLocations(xs, zs);
+            area.setRangeY(desired.y() + desired.sizeY(), desired.y());
+        }
+        if (current == null || !current.label().equals(desired.label())) {
+            area.setLabel(desired.label());
+        }
+        if (current == null || !current.description().equals(desired.description())) {
+            area.setDescription(desired.description());
+        }
+    }
+
+    private MarkerState getState(PlacedBlueprint placed) {
+        Blueprint blueprint = placed.getBlueprint();
+        return new MarkerState(
+                placed.getLocation().getWorld().getName(),
+                placed.getLocation().getBlockX(), placed.getLocation().getBlockY(), placed.getLocation().getBlockZ(),
+                blueprint.getSizeX(), blueprint.getSizeY(), blueprint.getSizeZ(),
+                blueprint.getName(),
+                plugin.getConfig().getString("dynmap.icons." + blueprint.getType(), "default"),
+                descriptions.computeIfAbsent(blueprint, this::buildDescription));
+    }
+
+    private String buildDescription(Blueprint blueprint) {
+        return "<div class=\"blueprint-info\">" +
+                "<h3>" + blueprint.getName() + "</h3>" +
+                "<p>Type: " + blueprint.getType() + "</p>" +
+                "<p>Income: " + blueprint.getDailyIncome() + " " + blueprint.getIncomeType() + "/day</p>" +
+                "<p>Upkeep: " + blueprint.getDailyUpkeep() + " " + blueprint.getUpkeepType() + "/day</p>" +
+                "</div>";
     }
 }
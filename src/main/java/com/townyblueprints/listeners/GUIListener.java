@@ -1,7 +1,11 @@
 package com.townyblueprints.listeners;
 
+import com.palmergames.bukkit.towny.TownyAPI;
+import com.palmergames.bukkit.towny.object.Resident;
 import com.townyblueprints.TownyBlueprints;
+import com.townyblueprints.managers.GUIManager;
 import com.townyblueprints.models.Blueprint;
+import com.townyblueprints.util.ItemKey;
 import lombok.RequiredArgsConstructor;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
@@ -41,6 +45,9 @@ public class GUIListener implements Listener {
         } else if (title.equals("Select Blueprint to Edit")) {
             event.setCancelled(true);
             handleEditSelection(event, player);
+        } else if (title.equals(GUIManager.WAREHOUSE_MENU_TITLE)) {
+            event.setCancelled(true);
+            handleWarehouseMenu(event, player);
         }
     }
 
@@ -50,6 +57,10 @@ public class GUIListener implements Listener {
         Player player = (Player) event.getPlayer();
         String title = event.getView().getTitle();
 
+        if (title.equals(GUIManager.WAREHOUSE_MENU_TITLE)) {
+            plugin.getGuiManager().removeWarehouseView(player);
+        }
+
         if ((title.equals("Create Blueprint") || title.equals("Edit Blueprint"))) {
             // Only clear states if we're not in chat input mode
             if (!plugin.getChatInputListener().isInChatInput(player)) {
@@ -89,6 +100,41 @@ public class GUIListener implements Listener {
         }
     }
 
+    private void handleWarehouseMenu(InventoryClickEvent event, Player player) {
+        GUIManager.WarehouseView view = plugin.getGuiManager().getWarehouseView(player);
+        if (view == null || event.getClickedInventory() != event.getView().getTopInventory()) return;
+
+        int slot = event.getRawSlot();
+        if (slot == GUIManager.WAREHOUSE_PREVIOUS_SLOT && view.page() > 0) {
+            plugin.getGuiManager().openWarehouseMenu(player, view.town(), view.page() - 1);
+            return;
+        }
+        if (slot == GUIManager.WAREHOUSE_NEXT_SLOT) {
+            plugin.getGuiManager().openWarehouseMenu(player, view.town(), view.page() + 1);
+            return;
+        }
+        if (slot < 0 || slot >= view.keys().size()) return;
+
+        Resident resident = TownyAPI.getInstance().getResident(player);
+        if (resident == null || !resident.isMayor() && !player.hasPermission("townyblueprints.collect")
+                && !player.hasPermission("townyblueprints.assistant")) {
+            player.sendMessage("§cOnly the mayor or assistants can take items from the warehouse!");
+            return;
+        }
+
+        ItemKey key = view.keys().get(slot);
+        ItemStack clicked = event.getCurrentItem();
+        int stackSize = clicked != null ? clicked.getMaxStackSize() : 64;
+        // Shift-click takes at most a full inventory
+        int amount = event.isShiftClick() ? player.getInventory().getStorageContents().length * stackSize : stackSize;
+
+        int taken = plugin.getWarehouseManager().withdrawToPlayer(view.town(), key, amount, player);
+        if (taken <= 0) {
+            player.sendMessage("§cCouldn't take that item, is your inventory full?");
+        }
+        plugin.getGuiManager().openWarehouseMenu(player, view.town(), view.page());
+    }
+
     private void handleAdminMenu(InventoryClickEvent event, Player player) {
         ItemStack clicked = event.getCurrentItem();
         if (clicked == null || clicked.getType() == Material.AIR) return;
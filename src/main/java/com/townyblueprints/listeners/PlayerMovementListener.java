@@ -1,10 +1,8 @@
 package com.townyblueprints.listeners;
 
-import com.palmergames.bukkit.towny.TownyAPI;
 import com.palmergames.bukkit.towny.object.Town;
 import com.townyblueprints.TownyBlueprints;
-import com.townyblueprints.models.Blueprint;
-import com.townyblueprints.models.PlacedBlueprint;
+import com.townyblueprints.events.BlueprintEnterEvent;
 import lombok.RequiredArgsConstructor;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
@@ -15,92 +13,73 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
-
 @RequiredArgsConstructor
 public class PlayerMovementListener implements Listener {
+    private static final int TIMING_SAMPLE = 1000;
+
     private final TownyBlueprints plugin;
-    private final Map<UUID, String> playerInBlueprint = new HashMap<>();
+    private long moveNanos;
+    private int moveEvents;
 
     @EventHandler
     public void onPlayerMove(PlayerMoveEvent event) {
-        Player player = event.getPlayer();
-        Location location = event.getTo();
-
-        // Update visualization location if player is placing a blueprint
-        Blueprint placingBlueprint = plugin.getPlacementHandler().getPlayerPlacements().get(player.getUniqueId());
-        if (placingBlueprint != null) {
-            Location adjustedLocation = location.clone();
-            if (plugin.getPlacementHandler().isCenterMode(player)) {
-                adjustedLocation.add(
-                    -placingBlueprint.getSizeX() / 2,
-                    0,
-                    -placingBlueprint.getSizeZ() / 2
-                );
-            }
-            plugin.getPlacementHandler().updateVisualizationLocation(player, adjustedLocation);
+        if (!plugin.getConfigManager().isDebugMode()) {
+            handleMove(event);
             return;
         }
 
-        // Only check if player has moved to a new block
-        if (event.getFrom().getBlockX() == event.getTo().getBlockX() &&
-            event.getFrom().getBlockY() == event.getTo().getBlockY() &&
-            event.getFrom().getBlockZ() == event.getTo().getBlockZ()) {
+        long start = System.nanoTime();
+        handleMove(event);
+        moveNanos += System.nanoTime() - start;
+
+        // Debug logging
+        if (++moveEvents == TIMING_SAMPLE) {
+            plugin.getLogger().info("[Movement] Average move handler time " + (moveNanos / moveEvents) + "ns over " + moveEvents + " events");
+            moveEvents = 0;
+            moveNanos = 0;
+        }
+    }
+
+    private void handleMove(PlayerMoveEvent event) {
+        // Head rotation and moves within the same block change nothing here
+        Location from = event.getFrom();
+        Location location = event.getTo();
+        if (from.getBlockX() == location.getBlockX() &&
+            from.getBlockY() == location.getBlockY() &&
+            from.getBlockZ() == location.getBlockZ() &&
+            from.getWorld() == location.getWorld()) {
             return;
         }
 
-        Town town = TownyAPI.getInstance().getTown(location);
+        Player player = event.getPlayer();
+        // Players placing a blueprint still enter and leave the ones around them
+        Town town = plugin.getMembershipTracker().update(player, location);
+
+        // Move the placement preview, the handler applies the center offset
+        if (plugin.getPlacementHandler().getPlayerPlacements().containsKey(player.getUniqueId())) {
+            plugin.getPlacementHandler().updateVisualizationLocation(player, location);
+            return;
+        }
 
         // If player has left a town, stop visualization
         if (town == null) {
             plugin.getPlacementHandler().stopVisualization(player);
-            playerInBlueprint.remove(player.getUniqueId());
-            return;
         }
+    }
 
-        // Check if player is in a blueprint
-        PlacedBlueprint blueprint = findBlueprintAtLocation(location);
-        String currentBlueprintId = playerInBlueprint.get(player.getUniqueId());
-
-        if (blueprint != null) {
-            // Only send message if player just entered this blueprint
-            if (currentBlueprintId == null || !currentBlueprintId.equals(blueprint.getId())) {
-                playerInBlueprint.put(player.getUniqueId(), blueprint.getId());
-                player.sendActionBar(Component.text()
-                    .append(Component.text("You are in a ", NamedTextColor.GRAY))
-                    .append(Component.text(blueprint.getBlueprint().getName(), NamedTextColor.GOLD))
-                    .append(Component.text(" blueprint", NamedTextColor.GRAY))
-                    .build());
-            }
-        } else {
-            // Player has left a blueprint
-            playerInBlueprint.remove(player.getUniqueId());
-        }
+    @EventHandler
+    public void onBlueprintEnter(BlueprintEnterEvent event) {
+        event.getPlayer().sendActionBar(Component.text()
+            .append(Component.text("You are in a ", NamedTextColor.GRAY))
+            .append(Component.text(event.getBlueprint().getBlueprint().getName(), NamedTextColor.GOLD))
+            .append(Component.text(" blueprint", NamedTextColor.GRAY))
+            .build());
     }
 
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
         Player player = event.getPlayer();
         plugin.getPlacementHandler().stopVisualization(player);
-        playerInBlueprint.remove(player.getUniqueId());
-    }
-
-    private PlacedBlueprint findBlueprintAtLocation(Location location) {
-        for (PlacedBlueprint blueprint : plugin.getBlueprintManager().getAllPlacedBlueprints()) {
-            Location bpLoc = blueprint.getLocation();
-            if (bpLoc.getWorld().equals(location.getWorld())) {
-                if (location.getX() >= bpLoc.getX() && 
-                    location.getX() < bpLoc.getX() + blueprint.getBlueprint().getSizeX() &&
-                    location.getY() >= bpLoc.getY() && 
-                    location.getY() < bpLoc.getY() + blueprint.getBlueprint().getSizeY() &&
-                    location.getZ() >= bpLoc.getZ() && 
-                    location.getZ() < bpLoc.getZ() + blueprint.getBlueprint().getSizeZ()) {
-                    return blueprint;
-                }
-            }
-        }
-        return null;
+        plugin.getMembershipTracker().remove(player);
     }
-}
\ No newline at end of file
+}
@@ -23,7 +23,7 @@ public class TownEventListener implements Listener {
 
         // Remove all blueprints for the deleted town
         for (PlacedBlueprint blueprint : plugin.getBlueprintManager().getPlacedBlueprintsForTown(town)) {
-            blueprint.setActive(false);
+            plugin.getBlueprintManager().setBlueprintActive(blueprint, false);
         }
     }
 
@@ -47,7 +47,7 @@ public class TownEventListener implements Listener {
             if (blueprint.getLocation().getWorld().equals(event.getTownBlock().getWorld()) &&
                 event.getTownBlock().getX() == blueprint.getLocation().getBlockX() >> 4 &&
                 event.getTownBlock().getZ() == blueprint.getLocation().getBlockZ() >> 4) {
-                blueprint.setActive(true);
+                plugin.getBlueprintManager().setBlueprintActive(blueprint, true);
             }
         }
     }
@@ -59,7 +59,7 @@ public class TownEventListener implements Listener {
             if (blueprint.getLocation().getWorld().equals(event.getTownBlock().getWorld()) &&
                 event.getTownBlock().getX() == blueprint.getLocation().getBlockX() >> 4 &&
                 event.getTownBlock().getZ() == blueprint.getLocation().getBlockZ() >> 4) {
-                blueprint.setActive(false);
+                plugin.getBlueprintManager().setBlueprintActive(blueprint, false);
             }
         }
     }
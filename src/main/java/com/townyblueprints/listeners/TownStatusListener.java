@@ -5,6 +5,7 @@ import com.palmergames.bukkit.towny.object.Town;
 import com.palmergames.bukkit.towny.object.Translator;
 import com.townyblueprints.TownyBlueprints;
 import com.townyblueprints.models.PlacedBlueprint;
+import com.townyblueprints.models.ResourceSpec;
 import com.townyblueprints.models.ResourceTemplate;
 import lombok.RequiredArgsConstructor;
 import org.bukkit.event.EventHandler;
@@ -32,12 +33,11 @@ public class TownStatusListener implements Listener {
         for (PlacedBlueprint bp : blueprints) {
             if (bp.isActive()) {
                 String upkeepType = bp.getBlueprint().getUpkeepType();
-                if (upkeepType.startsWith("template:")) {
-                    String templateName = upkeepType.substring(9);
-                    ResourceTemplate template = plugin.getResourceTemplateManager().getTemplate(templateName);
+                if (bp.getBlueprint().getUpkeepSpec() instanceof ResourceSpec.Template) {
+                    ResourceTemplate template = bp.getBlueprint().getUpkeepTemplate();
                     if (template != null) {
                         for (ResourceTemplate.ResourceEntry resource : template.getResources()) {
-                            if (resource.getType().equals("TOOL")) {
+                            if (resource.getSpec() instanceof ResourceSpec.Tool) {
                                 toolUpkeep.merge(resource.getToolType(), resource.getDurabilityDrain(), Integer::sum);
                             } else {
                                 // Use maxAmount for display
@@ -75,9 +75,7 @@ public class TownStatusListener implements Listener {
         }
 
         // Check for available collections
-        boolean hasCollectableResources = blueprints.stream()
-                .filter(PlacedBlueprint::isActive)
-                .anyMatch(bp -> bp.getLastCollectionTime() < plugin.getResourceCollectionHandler().getLastNewDay());
+        boolean hasCollectableResources = plugin.getResourceCollectionHandler().hasPendingCollections(town);
 
         // Add collection notification
         if (hasCollectableResources) {
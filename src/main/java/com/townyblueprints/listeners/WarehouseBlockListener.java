@@ -0,0 +1,87 @@
+package com.townyblueprints.listeners;
+
+import com.townyblueprints.TownyBlueprints;
+import lombok.RequiredArgsConstructor;
+import org.bukkit.Location;
+import org.bukkit.block.Block;
+import org.bukkit.block.Container;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
+import org.bukkit.event.inventory.InventoryPickupItemEvent;
+import org.bukkit.inventory.Inventory;
+
+import java.util.List;
+
+/**
+ * Marks a warehouse for a container rescan when a container inside it is placed or destroyed,
+ * and drops its free space counters and re-reads the changed container's tools when players or
+ * hoppers change what's inside.
+ */
+@RequiredArgsConstructor
+public class WarehouseBlockListener implements Listener {
+    private final TownyBlueprints plugin;
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event) {
+        checkBlock(event.getBlockPlaced());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event) {
+        checkBlock(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event) {
+        checkBlocks(event.blockList());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent event) {
+        checkBlocks(event.blockList());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onInventoryClose(InventoryCloseEvent event) {
+        checkInventory(event.getInventory());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryMoveItem(InventoryMoveItemEvent event) {
+        checkInventory(event.getSource());
+        checkInventory(event.getDestination());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryPickupItem(InventoryPickupItemEvent event) {
+        checkInventory(event.getInventory());
+    }
+
+    private void checkInventory(Inventory inventory) {
+        // Custom menu inventories have no location and are skipped here
+        Location location = inventory.getLocation();
+        if (location != null && !plugin.getWarehouseManager().isVirtual()) {
+            plugin.getWarehouseManager().invalidateContentsAt(location, inventory);
+        }
+    }
+
+    private void checkBlocks(List<Block> blocks) {
+        for (Block block : blocks) {
+            checkBlock(block);
+        }
+    }
+
+    private void checkBlock(Block block) {
+        // No snapshot needed, we only care about the block type
+        if (block.getState(false) instanceof Container) {
+            plugin.getWarehouseManager().refreshWarehouseAt(block.getLocation());
+        }
+    }
+}
@@ -6,6 +6,7 @@ import com.townyblueprints.models.Blueprint;
 import com.townyblueprints.models.PlacedBlueprint;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.World;
@@ -17,6 +18,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.function.LongConsumer;
 import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
@@ -25,6 +27,13 @@ public class BlueprintManager {
     private final Map<String, Blueprint> blueprints = new HashMap<>();
     private final Map<String, PlacedBlueprint> placedBlueprints = new HashMap<>();
     private final Map<Town, Map<String, Integer>> pendingResources = new HashMap<>();
+    // Active placed blueprints per town and lower case type, kept up to date as blueprints change state
+    private final Map<UUID, Map<String, Integer>> activeTypeCounts = new HashMap<>();
+    // Placed blueprints per world and chunk key of every chunk their area touches
+    private final Map<UUID, Map<Long, List<PlacedBlueprint>>> chunkIndex = new HashMap<>();
+    // Changes whenever the chunk index does, so cached lookups know they are stale
+    @Getter
+    private long chunkIndexVersion;
     @Getter
     private final Map<String, Boolean> bonusBlockContributions = new HashMap<>();
 
@@ -71,6 +80,15 @@ public class BlueprintManager {
             blueprint.setBonusTownBlocks(config.getInt("bonus_town_blocks", 0));
             blueprint.setUpgradesTo(config.getString("upgrades_to"));
             blueprint.setUpgradeCost(config.getDouble("upgrade_cost", 0.0));
+            if (config.isBoolean("warehouse")) {
+                blueprint.setWarehouse(config.getBoolean("warehouse"));
+            }
+
+            // Group settings default to the type's settings in config.yml
+            ConfigurationSection typeSettings = plugin.getConfig().getConfigurationSection("blueprints.type_settings." + blueprint.getType().toLowerCase());
+            blueprint.setRequiredCount(config.getInt("required_count", typeSettings != null ? typeSettings.getInt("required_count", 1) : 1));
+            blueprint.setSharedUpkeep(config.getBoolean("shared_upkeep", typeSettings != null && typeSettings.getBoolean("shared_upkeep", false)));
+            blueprint.setUpkeepMultiplier(config.getDouble("upkeep_multiplier", typeSettings != null ? typeSettings.getDouble("upkeep_multiplier", 1.0) : 1.0));
 
             String toolType = config.getString("tool_type");
             if (toolType != null) {
@@ -99,6 +117,7 @@ public class BlueprintManager {
                 }
             }
             blueprint.setRequiredBlocks(requiredBlocks);
+            plugin.getResourceTemplateManager().bindTemplates(blueprint);
 
             blueprints.put(name.toLowerCase(), blueprint);
             plugin.getLogger().info("Loaded blueprint: " + name);
@@ -134,6 +153,10 @@ public class BlueprintManager {
         config.set("bonus_town_blocks", blueprint.getBonusTownBlocks());
         config.set("upgrades_to", blueprint.getUpgradesTo());
         config.set("upgrade_cost", blueprint.getUpgradeCost());
+        config.set("warehouse", blueprint.getWarehouse());
+        config.set("required_count", blueprint.getRequiredCount());
+        config.set("shared_upkeep", blueprint.isSharedUpkeep());
+        config.set("upkeep_multiplier", blueprint.getUpkeepMultiplier());
 
         if (blueprint.getToolType() != null) {
             config.set("tool_type", blueprint.getToolType().name());
@@ -150,7 +173,13 @@ public class BlueprintManager {
 
         try {
             config.save(blueprintFile);
+            plugin.getResourceTemplateManager().bindTemplates(blueprint);
             blueprints.put(blueprint.getName().toLowerCase(), blueprint);
+            // The size may have changed
+            rebuildChunkIndex();
+            if (plugin.getDynmapListener() != null) {
+                plugin.getDynmapListener().invalidateDescriptions();
+            }
             plugin.getLogger().info("Saved blueprint: " + blueprint.getName());
         } catch (IOException e) {
             plugin.getLogger().severe("Failed to save blueprint: " + blueprint.getName());
@@ -213,6 +242,7 @@ public class BlueprintManager {
             config.set("bonus_town_blocks", blueprint.getBonusTownBlocks());
             config.set("upgrades_to", blueprint.getUpgradesTo());
             config.set("upgrade_cost", blueprint.getUpgradeCost());
+            config.set("warehouse", blueprint.getWarehouse());
 
             if (blueprint.getToolType() != null) {
                 config.set("tool_type", blueprint.getToolType().name());
@@ -270,11 +300,41 @@ public class BlueprintManager {
 
     public String createPlacedBlueprint(PlacedBlueprint blueprint) {
         String id = blueprint.getId();
+        // Income starts with the next day
+        blueprint.setLastSettledDay(plugin.getResourceCollectionHandler().getCurrentDay());
+        if (blueprint.isActive()) {
+            // The rest of the group is settled with its size from before this blueprint joined
+            plugin.getResourceCollectionHandler().settleGroup(blueprint);
+        }
         placedBlueprints.put(id, blueprint);
+        indexChunks(blueprint);
+        if (blueprint.isActive()) {
+            updateTypeCount(blueprint, 1);
+        }
         plugin.getDatabase().saveBlueprint(blueprint);
+        plugin.getWarehouseManager().updateWarehouse(blueprint);
         return id;
     }
 
+    /**
+     * Change a placed blueprint's active state and keep the registries that depend on it up to date.
+     * Returns whether the state actually changed.
+     */
+    public boolean setBlueprintActive(PlacedBlueprint blueprint, boolean active) {
+        if (blueprint.isActive() == active) {
+            return false;
+        }
+        // Days before the change are settled with the old state and the old size of the blueprint's group
+        plugin.getResourceCollectionHandler().settleGroup(blueprint);
+        blueprint.setActive(active);
+        updateTypeCount(blueprint, active ? 1 : -1);
+        // Settling an inactive blueprint isn't saved, the state change saves the day it was settled to
+        plugin.getDatabase().saveBlueprint(blueprint);
+        plugin.getWarehouseManager().updateWarehouse(blueprint);
+        plugin.getPlacementHandler().updateVisualization(blueprint);
+        return true;
+    }
+
     public void removePlacedBlueprint(String id) {
         PlacedBlueprint blueprint = placedBlueprints.get(id);
         if (blueprint != null) {
@@ -285,8 +345,19 @@ public class BlueprintManager {
                     updateTownBonusBlocks(town, currentBonus);
                 }
             }
+            if (blueprint.isActive()) {
+                // The rest of the group is settled with its size from before this blueprint left
+                plugin.getResourceCollectionHandler().settleGroup(blueprint);
+            }
             bonusBlockContributions.remove(id);
             placedBlueprints.remove(id);
+            unindexChunks(blueprint);
+            if (blueprint.isActive()) {
+                updateTypeCount(blueprint, -1);
+            }
+            plugin.getWarehouseManager().removeWarehouse(blueprint);
+            plugin.getPlacementHandler().removeVisualization(blueprint);
+            plugin.getResourceCollectionHandler().removePendingCollections(blueprint);
             if (plugin.getConfigManager().isDynmapEnabled()) {
                 plugin.getDynmapListener().removeBlueprintMarker(id);
             }
@@ -302,7 +373,97 @@ public class BlueprintManager {
 
     public void addLoadedBlueprint(PlacedBlueprint blueprint) {
         placedBlueprints.put(blueprint.getId(), blueprint);
+        indexChunks(blueprint);
         bonusBlockContributions.put(blueprint.getId(), blueprint.isActive());
+        // Loading restores the group sizes the blueprints were last settled with, so nothing needs settling
+        if (blueprint.isActive()) {
+            updateTypeCount(blueprint, 1);
+        }
+    }
+
+    /**
+     * Number of active blueprints of a type in a town, used to scale group upkeep and income.
+     */
+    public int getActiveTypeCount(Town town, String type) {
+        Map<String, Integer> counts = activeTypeCounts.get(town.getUUID());
+        return counts != null ? counts.getOrDefault(type.toLowerCase(), 0) : 0;
+    }
+
+    /**
+     * Placed blueprints whose area touches a chunk. Empty if there are none, don't modify.
+     */
+    public List<PlacedBlueprint> getBlueprintsInChunk(World world, int chunkX, int chunkZ) {
+        Map<Long, List<PlacedBlueprint>> worldIndex = chunkIndex.get(world.getUID());
+        if (worldIndex == null) return Collections.emptyList();
+        return worldIndex.getOrDefault(Chunk.getChunkKey(chunkX, chunkZ), Collections.emptyList());
+    }
+
+    /**
+     * The placed blueprint whose area contains the location, or null.
+     */
+    public PlacedBlueprint getBlueprintAt(Location location) {
+        if (location.getWorld() == null) return null;
+        for (PlacedBlueprint blueprint : getBlueprintsInChunk(location.getWorld(), location.getBlockX() >> 4, location.getBlockZ() >> 4)) {
+            if (blueprint.contains(location)) {
+                return blueprint;
+            }
+        }
+        return null;
+    }
+
+    private void indexChunks(PlacedBlueprint blueprint) {
+        Location location = blueprint.getLocation();
+        if (location == null || location.getWorld() == null) return;
+
+        Map<Long, List<PlacedBlueprint>> worldIndex = chunkIndex.computeIfAbsent(location.getWorld().getUID(), id -> new HashMap<>());
+        forEachChunk(blueprint, key -> worldIndex.computeIfAbsent(key, k -> new ArrayList<>(1)).add(blueprint));
+        chunkIndexVersion++;
+    }
+
+    private void unindexChunks(PlacedBlueprint blueprint) {
+        Location location = blueprint.getLocation();
+        if (location == null || location.getWorld() == null) return;
+
+        Map<Long, List<PlacedBlueprint>> worldIndex = chunkIndex.get(location.getWorld().getUID());
+        if (worldIndex == null) return;
+        forEachChunk(blueprint, key -> {
+            List<PlacedBlueprint> inChunk = worldIndex.get(key);
+            if (inChunk != null) {
+                inChunk.removeIf(indexed -> indexed.getId().equals(blueprint.getId()));
+                if (inChunk.isEmpty()) {
+                    worldIndex.remove(key);
+                }
+            }
+        });
+        chunkIndexVersion++;
+    }
+
+    private void rebuildChunkIndex() {
+        chunkIndex.clear();
+        placedBlueprints.values().forEach(this::indexChunks);
+        chunkIndexVersion++;
+    }
+
+    private static void forEachChunk(PlacedBlueprint blueprint, LongConsumer action) {
+        Location location = blueprint.getLocation();
+        int minX = location.getBlockX() >> 4;
+        int minZ = location.getBlockZ() >> 4;
+        int maxX = (int) Math.floor(location.getX() + blueprint.getBlueprint().getSizeX()) >> 4;
+        int maxZ = (int) Math.floor(location.getZ() + blueprint.getBlueprint().getSizeZ()) >> 4;
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                action.accept(Chunk.getChunkKey(x, z));
+            }
+        }
+    }
+
+    private void updateTypeCount(PlacedBlueprint blueprint, int delta) {
+        if (blueprint.getTown() == null) return;
+        Map<String, Integer> counts = activeTypeCounts.computeIfAbsent(blueprint.getTown().getUUID(), id -> new HashMap<>());
+        counts.compute(blueprint.getBlueprint().getType().toLowerCase(), (type, count) -> {
+            int updated = (count != null ? count : 0) + delta;
+            return updated > 0 ? updated : null;
+        });
     }
 
     public void resetBonusBlockTracking() {
@@ -344,9 +505,7 @@ public class BlueprintManager {
             try {
                 town.save();
                 // Save to database
-                for (PlacedBlueprint blueprint : getPlacedBlueprintsForTown(town)) {
-                    plugin.getDatabase().saveBlueprint(blueprint);
-                }
+                plugin.getDatabase().saveBlueprints(getPlacedBlueprintsForTown(town));
             } catch (Exception e) {
                 plugin.getLogger().warning("Failed to save town after updating bonus blocks: " + e.getMessage());
             }
@@ -377,9 +536,7 @@ public class BlueprintManager {
      * Saves all placed blueprints to the database
      */
     public void saveAll() {
-        for (PlacedBlueprint blueprint : placedBlueprints.values()) {
-            plugin.getDatabase().saveBlueprint(blueprint);
-        }
+        plugin.getDatabase().saveBlueprints(placedBlueprints.values());
         plugin.getLogger().info("Saved all blueprints to database");
     }
 }
\ No newline at end of file
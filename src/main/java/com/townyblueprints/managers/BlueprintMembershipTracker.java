@@ -0,0 +1,90 @@
+package com.townyblueprints.managers;
+
+import com.palmergames.bukkit.towny.TownyAPI;
+import com.palmergames.bukkit.towny.object.Town;
+import com.townyblueprints.TownyBlueprints;
+import com.townyblueprints.events.BlueprintEnterEvent;
+import com.townyblueprints.events.BlueprintExitEvent;
+import com.townyblueprints.models.PlacedBlueprint;
+import lombok.RequiredArgsConstructor;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Tracks which town and placed blueprint each player is in. The town and the candidate blueprints
+ * are looked up when a player crosses into another chunk, moves within a chunk only test the
+ * candidates' areas. Entering and leaving a blueprint calls BlueprintEnterEvent and BlueprintExitEvent.
+ */
+@RequiredArgsConstructor
+public class BlueprintMembershipTracker {
+    private final TownyBlueprints plugin;
+    private final Map<UUID, Membership> memberships = new HashMap<>();
+
+    private static final class Membership {
+        private UUID worldId;
+        private int chunkX;
+        private int chunkZ;
+        private long indexVersion = -1;
+        private Town town;
+        private List<PlacedBlueprint> candidates = Collections.emptyList();
+        private PlacedBlueprint current;
+    }
+
+    /**
+     * Update where a player is and return the town they are in, or null if they are in the wilderness.
+     */
+    @Nullable
+    public Town update(Player player, Location location) {
+        Membership membership = memberships.computeIfAbsent(player.getUniqueId(), id -> new Membership());
+        BlueprintManager blueprintManager = plugin.getBlueprintManager();
+
+        int chunkX = location.getBlockX() >> 4;
+        int chunkZ = location.getBlockZ() >> 4;
+        UUID worldId = location.getWorld().getUID();
+        if (membership.indexVersion != blueprintManager.getChunkIndexVersion() || chunkX != membership.chunkX
+                || chunkZ != membership.chunkZ || !worldId.equals(membership.worldId)) {
+            membership.worldId = worldId;
+            membership.chunkX = chunkX;
+            membership.chunkZ = chunkZ;
+            membership.indexVersion = blueprintManager.getChunkIndexVersion();
+            membership.town = TownyAPI.getInstance().getTown(location);
+            membership.candidates = blueprintManager.getBlueprintsInChunk(location.getWorld(), chunkX, chunkZ);
+        }
+
+        PlacedBlueprint found = null;
+        for (PlacedBlueprint candidate : membership.candidates) {
+            if (candidate.contains(location)) {
+                found = candidate;
+                break;
+            }
+        }
+
+        PlacedBlueprint previous = membership.current;
+        if (found != previous && (found == null || previous == null || !found.getId().equals(previous.getId()))) {
+            membership.current = found;
+            if (previous != null) {
+                plugin.getServer().getPluginManager().callEvent(new BlueprintExitEvent(player, previous));
+            }
+            if (found != null) {
+                plugin.getServer().getPluginManager().callEvent(new BlueprintEnterEvent(player, found));
+            }
+        }
+        return membership.town;
+    }
+
+    @Nullable
+    public PlacedBlueprint getCurrentBlueprint(Player player) {
+        Membership membership = memberships.get(player.getUniqueId());
+        return membership != null ? membership.current : null;
+    }
+
+    /**
+     * Forget a player, without calling an exit event.
+     */
+    public void remove(Player player) {
+        memberships.remove(player.getUniqueId());
+    }
+}
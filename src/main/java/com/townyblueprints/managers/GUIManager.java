@@ -1,7 +1,10 @@
 package com.townyblueprints.managers;
 
+import com.palmergames.bukkit.towny.object.Town;
 import com.townyblueprints.TownyBlueprints;
 import com.townyblueprints.models.Blueprint;
+import com.townyblueprints.models.VirtualWarehouse;
+import com.townyblueprints.util.ItemKey;
 import lombok.RequiredArgsConstructor;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
@@ -20,14 +23,23 @@ public class GUIManager {
     private static final String CREATE_MENU_TITLE = "Create Blueprint";
     private static final String EDIT_MENU_TITLE = "Edit Blueprint";
     private static final String DELETE_MENU_TITLE = "Delete Blueprint";
+    public static final String WAREHOUSE_MENU_TITLE = "Town Warehouse";
     private static final int BLUEPRINT_MENU_SIZE = 54;
     private static final int ADMIN_MENU_SIZE = 27;
     private static final int CREATE_MENU_SIZE = 54;
     private static final int EDIT_MENU_SIZE = 54;
     private static final int DELETE_MENU_SIZE = 54;
+    private static final int WAREHOUSE_MENU_SIZE = 54;
+    private static final int WAREHOUSE_ITEMS_PER_PAGE = 45;
+    public static final int WAREHOUSE_PREVIOUS_SLOT = 45;
+    public static final int WAREHOUSE_NEXT_SLOT = 53;
 
     private final Map<Player, Blueprint> blueprintCreation = new HashMap<>();
     private final Map<Player, Blueprint> blueprintEditing = new HashMap<>();
+    private final Map<Player, WarehouseView> warehouseViews = new HashMap<>();
+
+    // Town, page and the item key shown in each slot of an open warehouse menu
+    public record WarehouseView(Town town, int page, List<ItemKey> keys) {}
 
     public void openBlueprintMenu(Player player) {
         Inventory inventory = Bukkit.createInventory(null, BLUEPRINT_MENU_SIZE, BLUEPRINT_MENU_TITLE);
@@ -190,6 +202,72 @@ public class GUIManager {
         player.openInventory(inventory);
     }
 
+    public void openWarehouseMenu(Player player, Town town, int page) {
+        VirtualWarehouse.Snapshot warehouse = plugin.getWarehouseManager().getVirtualWarehouse(town);
+        if (warehouse == null) {
+            player.sendMessage("§cYour town has no active warehouse!");
+            return;
+        }
+
+        List<VirtualWarehouse.Entry> entries = warehouse.entries();
+        int pages = Math.max(1, (entries.size() + WAREHOUSE_ITEMS_PER_PAGE - 1) / WAREHOUSE_ITEMS_PER_PAGE);
+        page = Math.max(0, Math.min(page, pages - 1));
+
+        Inventory inventory = Bukkit.createInventory(null, WAREHOUSE_MENU_SIZE, WAREHOUSE_MENU_TITLE);
+        List<VirtualWarehouse.Entry> pageEntries = entries.subList(page * WAREHOUSE_ITEMS_PER_PAGE,
+                Math.min(entries.size(), (page + 1) * WAREHOUSE_ITEMS_PER_PAGE));
+
+        List<ItemKey> pageKeys = new ArrayList<>(pageEntries.size());
+        int slot = 0;
+        for (VirtualWarehouse.Entry entry : pageEntries) {
+            inventory.setItem(slot++, createWarehouseItem(entry.key(), entry.amount()));
+            pageKeys.add(entry.key());
+        }
+
+        if (page > 0) {
+            inventory.setItem(WAREHOUSE_PREVIOUS_SLOT, createMenuItem(Material.ARROW, "§ePrevious Page"));
+        }
+        inventory.setItem(49, createMenuItem(Material.CHEST, "§6" + town.getName() + " Warehouse",
+                "§7Stored: §f" + warehouse.stored() + "§7/§f" + warehouse.capacity(),
+                "§7Page: §f" + (page + 1) + "§7/§f" + pages));
+        if (page < pages - 1) {
+            inventory.setItem(WAREHOUSE_NEXT_SLOT, createMenuItem(Material.ARROW, "§eNext Page"));
+        }
+
+        player.openInventory(inventory);
+        warehouseViews.put(player, new WarehouseView(town, page, pageKeys));
+    }
+
+    private ItemStack createWarehouseItem(ItemKey key, int count) {
+        ItemStack prototype = plugin.getItemResolver().getPrototype(key);
+        ItemStack item = prototype != null ? prototype.clone() : new ItemStack(Material.BARRIER);
+        item.setAmount(Math.max(1, Math.min(count, item.getMaxStackSize())));
+
+        ItemMeta meta = item.getItemMeta();
+        if (meta != null) {
+            List<String> lore = meta.getLore() != null ? meta.getLore() : new ArrayList<>();
+            lore.add("");
+            lore.add("§7Stored: §f" + count);
+            if (prototype == null) {
+                lore.add("§cItem source unavailable: " + key);
+            } else {
+                lore.add("§eLeft-click to take a stack");
+                lore.add("§eShift-click to take as much as fits");
+            }
+            meta.setLore(lore);
+            item.setItemMeta(meta);
+        }
+        return item;
+    }
+
+    public WarehouseView getWarehouseView(Player player) {
+        return warehouseViews.get(player);
+    }
+
+    public void removeWarehouseView(Player player) {
+        warehouseViews.remove(player);
+    }
+
     private ItemStack createMenuItem(Material material, String name, String... lore) {
         ItemStack item = new ItemStack(material);
         ItemMeta meta = item.getItemMeta();
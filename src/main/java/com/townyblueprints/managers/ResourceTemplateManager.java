@@ -1,6 +1,9 @@
 package com.townyblueprints.managers;
 
 import com.townyblueprints.TownyBlueprints;
+import com.townyblueprints.models.Blueprint;
+import com.townyblueprints.models.PlacedBlueprint;
+import com.townyblueprints.models.ResourceSpec;
 import com.townyblueprints.models.ResourceTemplate;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -30,59 +33,60 @@ public class ResourceTemplateManager {
         File[] files = templateDir.listFiles((dir, name) -> name.endsWith(".yml"));
         if (files == null) return;
         
+        templates.clear();
         for (File file : files) {
             YamlConfiguration config = YamlConfiguration.loadConfiguration(file);
             ResourceTemplate template = ResourceTemplate.fromConfig(config);
-            String templateName = file.getName().toLowerCase().replace(".yml", "");
+            String templateName = canonicalName(file.getName());
             templates.put(templateName, template);
             plugin.getLogger().info("Loaded resource template: " + template.getName() + " (key: " + templateName + ")");
         }
+        bindBlueprints();
     }
-    
-    public ResourceTemplate getTemplate(String name) {
-        // Remove the "template:" prefix if it exists
-        String cleanName = name.toLowerCase().replace("template:", "").trim();
-        // Debug logging
-        if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-            plugin.getLogger().info("[ResourceTemplateManager] Looking for template: " + cleanName);
-            plugin.getLogger().info("[ResourceTemplateManager] Available templates: " + String.join(", ", templates.keySet()));
-        }
 
-        // First try exact match
-        ResourceTemplate template = templates.get(cleanName);
-        if (template != null) {
-            // Debug logging
-            if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-                plugin.getLogger().info("[ResourceTemplateManager] Found template using exact match: " + cleanName);
-            }
-            return template;
+    /**
+     * The key a template is stored under. Accepts the name with or without the "template:" prefix
+     * and the .yml extension, in any case.
+     */
+    public static String canonicalName(String name) {
+        String key = name.trim().toLowerCase();
+        if (key.startsWith(ResourceSpec.TEMPLATE_PREFIX)) {
+            key = key.substring(ResourceSpec.TEMPLATE_PREFIX.length()).trim();
         }
-
-        // Then try with .yml
-        template = templates.get(cleanName + ".yml");
-        if (template != null) {
-            // Debug logging
-            if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-                plugin.getLogger().info("[ResourceTemplateManager] Found template with .yml extension: " + cleanName);
-            }
-            return template;
+        if (key.endsWith(".yml")) {
+            key = key.substring(0, key.length() - 4);
         }
+        return key.replace(" ", "_");
+    }
 
-        // Finally try without .yml
-        template = templates.get(cleanName.replace(".yml", ""));
-        if (template != null) {
-            // Debug logging
-            if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-            plugin.getLogger().info("[ResourceTemplateManager] Found template without .yml extension: " + cleanName);
-            }
-            return template;
+    public ResourceTemplate getTemplate(String name) {
+        String key = canonicalName(name);
+        ResourceTemplate template = templates.get(key);
+        // Debug logging
+        if (template == null && TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
+            plugin.getLogger().warning("[ResourceTemplateManager] Template not found: " + key);
         }
+        return template;
+    }
 
-        // Debug logging
-        if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-            plugin.getLogger().warning("[ResourceTemplateManager] Template not found: " + cleanName);
+    /**
+     * Resolve a blueprint's income and upkeep templates so upkeep and collection don't look them up by name.
+     */
+    public void bindTemplates(Blueprint blueprint) {
+        blueprint.setIncomeTemplate(blueprint.getIncomeSpec() instanceof ResourceSpec.Template t ? getTemplate(t.name()) : null);
+        blueprint.setUpkeepTemplate(blueprint.getUpkeepSpec() instanceof ResourceSpec.Template t ? getTemplate(t.name()) : null);
+    }
+
+    // Placed blueprints keep the Blueprint they were loaded with, so rebind those as well after a reload
+    private void bindBlueprints() {
+        Set<Blueprint> blueprints = Collections.newSetFromMap(new IdentityHashMap<>());
+        blueprints.addAll(plugin.getBlueprintManager().getAllBlueprints());
+        for (PlacedBlueprint placed : plugin.getBlueprintManager().getAllPlacedBlueprints()) {
+            blueprints.add(placed.getBlueprint());
+        }
+        for (Blueprint blueprint : blueprints) {
+            bindTemplates(blueprint);
         }
-        return null;
     }
     
     public Collection<ResourceTemplate> getAllTemplates() {
@@ -148,6 +152,7 @@ public class ResourceTemplateManager {
         config.set("name", template.getName());
         config.set("description", template.getDescription());
         config.set("random_selection", template.isRandomSelection());
+        config.set("select_count", template.getSelectCount());
         
         for (int i = 0; i < template.getResources().size(); i++) {
             ResourceTemplate.ResourceEntry entry = template.getResources().get(i);
@@ -158,10 +163,12 @@ public class ResourceTemplateManager {
             config.set(path + ".weight", entry.getWeight());
         }
         
+        template.updateWeights();
         try {
             config.save(file);
-            String templateName = file.getName().toLowerCase().replace(".yml", "");
+            String templateName = canonicalName(file.getName());
             templates.put(templateName, template);
+            bindBlueprints();
             plugin.getLogger().info("Saved resource template: " + template.getName() + " (key: " + templateName + ")");
         } catch (IOException e) {
             plugin.getLogger().severe("Failed to save resource template: " + template.getName());
@@ -2,175 +2,593 @@ package com.townyblueprints.managers;
 
 import com.palmergames.bukkit.towny.object.Town;
 import com.townyblueprints.TownyBlueprints;
+import com.townyblueprints.inventory.ItemFingerprint;
 import com.townyblueprints.models.PlacedBlueprint;
+import com.townyblueprints.models.VirtualWarehouse;
 import com.townyblueprints.models.WarehouseData;
+import com.townyblueprints.util.ItemKey;
 import com.townyblueprints.util.ItemUtil;
 import lombok.RequiredArgsConstructor;
 import org.bukkit.Material;
-import org.bukkit.inventory.ItemStack;
-import org.bukkit.Bukkit;
-import org.bukkit.block.Block;
-import org.bukkit.inventory.BlockInventoryHolder;
 import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
+import org.bukkit.inventory.meta.Damageable;
+import org.bukkit.inventory.meta.ItemMeta;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
+/**
+ * Keeps track of each town's warehouses. Towns never share warehouses, so every town has its own lock
+ * and operations on different towns never wait on each other.
+ */
 @RequiredArgsConstructor
 public class WarehouseManager {
     private final TownyBlueprints plugin;
-    private final Map<Town, List<WarehouseData>> townWarehouses = new HashMap<>();
-    private final Object inventoryLock = new Object();
-
-    public void loadWarehouses() {
-        synchronized(inventoryLock) {
-            townWarehouses.clear();
-            
-            for (PlacedBlueprint blueprint : plugin.getBlueprintManager().getAllPlacedBlueprints()) {
-                if (blueprint.getBlueprint().getName().toLowerCase().contains("warehouse") && blueprint.isActive()) {
-                    WarehouseData warehouse = new WarehouseData(plugin, blueprint);
-                    townWarehouses.computeIfAbsent(blueprint.getTown(), k -> new ArrayList<>()).add(warehouse);
+    private final Map<UUID, TownWarehouses> towns = new ConcurrentHashMap<>();
+    private volatile boolean virtualContentsLoaded = false;
+    // Flushes are written one at a time in the order they were taken, so an older count never overwrites a newer one
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "TownyBlueprints-WarehouseFlush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * A town's physical warehouses and virtual warehouse contents, only accessed while holding its lock.
+     */
+    private static final class TownWarehouses {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final List<WarehouseData> warehouses = new ArrayList<>();
+        private VirtualWarehouse virtual;
+    }
+
+    private TownWarehouses getTown(Town town) {
+        return towns.computeIfAbsent(town.getUUID(), k -> new TownWarehouses());
+    }
+
+    /**
+     * Run an action while holding a town's lock. Returns the fallback if the town has no warehouses at all.
+     */
+    private <T> T withTown(Town town, T fallback, Function<TownWarehouses, T> action) {
+        TownWarehouses entry = towns.get(town.getUUID());
+        if (entry == null) return fallback;
+
+        entry.lock.lock();
+        try {
+            return action.apply(entry);
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    public boolean isVirtual() {
+        return plugin.getConfig().getBoolean("warehouse.virtual.enabled", false);
+    }
+
+    /**
+     * Build the warehouse registry from scratch. Only needed on startup and reload,
+     * afterwards it's kept up to date through {@link #updateWarehouse} and {@link #removeWarehouse}.
+     */
+    public synchronized void loadWarehouses() {
+        Map<UUID, List<WarehouseData>> loaded = new HashMap<>();
+        for (PlacedBlueprint blueprint : plugin.getBlueprintManager().getAllPlacedBlueprints()) {
+            if (blueprint.getBlueprint().isWarehouse() && blueprint.isActive()) {
+                loaded.computeIfAbsent(blueprint.getTown().getUUID(), k -> new ArrayList<>())
+                        .add(new WarehouseData(plugin, blueprint));
+            }
+        }
+
+        if (isVirtual() && !virtualContentsLoaded) {
+            // Contents are only read from storage once, later loads just recompute capacities
+            for (Map.Entry<UUID, List<VirtualWarehouse.Entry>> entry : plugin.getDatabase().loadWarehouseContents().entrySet()) {
+                TownWarehouses town = towns.computeIfAbsent(entry.getKey(), k -> new TownWarehouses());
+                town.lock.lock();
+                try {
+                    if (town.virtual == null) {
+                        town.virtual = new VirtualWarehouse(entry.getKey());
+                    }
+                    entry.getValue().forEach(town.virtual::load);
+                } finally {
+                    town.lock.unlock();
                 }
             }
+            virtualContentsLoaded = true;
+        }
+
+        for (UUID townId : loaded.keySet()) {
+            towns.computeIfAbsent(townId, k -> new TownWarehouses());
+        }
+        for (Map.Entry<UUID, TownWarehouses> entry : towns.entrySet()) {
+            TownWarehouses town = entry.getValue();
+            town.lock.lock();
+            try {
+                town.warehouses.clear();
+                town.warehouses.addAll(loaded.getOrDefault(entry.getKey(), List.of()));
+                if (isVirtual()) {
+                    updateVirtualCapacity(entry.getKey(), town);
+                }
+            } finally {
+                town.lock.unlock();
+            }
+        }
+
+        // Debug logging
+        if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
+            plugin.getLogger().info("[Warehouse] Loaded warehouses for " + loaded.size() + " towns");
+        }
+    }
+
+    // Must hold the town's lock
+    private void updateVirtualCapacity(UUID townId, TownWarehouses town) {
+        long capacity = 0;
+        for (WarehouseData warehouse : town.warehouses) {
+            capacity += getVirtualCapacity(warehouse.getBlueprint());
+        }
+
+        if (town.virtual == null && capacity > 0) {
+            town.virtual = new VirtualWarehouse(townId);
+        }
+        if (town.virtual != null) {
+            town.virtual.setCapacity(capacity);
         }
     }
 
+    private long getVirtualCapacity(PlacedBlueprint blueprint) {
+        long volume = (long) blueprint.getBlueprint().getSizeX() * blueprint.getBlueprint().getSizeY() * blueprint.getBlueprint().getSizeZ();
+        return volume * plugin.getConfig().getInt("warehouse.virtual.items_per_block", 64);
+    }
+
+    /**
+     * Store a resource by id. Virtual warehouses only update counters, physical ones resolve the item first.
+     */
+    public boolean storeItems(Town town, String itemType, int amount, Player player) {
+        if (isVirtual()) {
+            ItemKey key = ItemKey.of(itemType);
+            if (key == null) return false;
+
+            return withTown(town, false, entry -> entry.virtual != null && entry.virtual.deposit(key, amount));
+        }
+
+        ItemStack items = ItemUtil.getItemStack(itemType, amount, player);
+        return items != null && storeItems(town, items, player);
+    }
+
+    /**
+     * Store items across all of a town's active warehouses. The deposit is planned against each warehouse's
+     * free space counters and split in one pass, only what doesn't fit anywhere in the town is spilled.
+     * Returns false, with nothing stored or spilled, if the town has no room for the item at all.
+     */
     public boolean storeItems(Town town, ItemStack items, Player player) {
-        synchronized(inventoryLock) {
-            List<WarehouseData> warehouses = townWarehouses.get(town);
-            if (warehouses == null || warehouses.isEmpty()) {
-                return false;
+        return withTown(town, false, entry -> {
+            List<WarehouseData> targets = new ArrayList<>();
+            int remaining = insertPlanned(town, entry, items, targets);
+            if (targets.isEmpty()) return false;
+
+            if (remaining > 0) {
+                ItemStack leftover = items.clone();
+                leftover.setAmount(remaining);
+                targets.get(0).spillItems(leftover, player);
             }
+            return true;
+        });
+    }
 
-            for (WarehouseData warehouse : warehouses) {
-                if (warehouse.getBlueprint().isActive() && warehouse.hasSpace()) {
-                    return warehouse.addItems(items, player);
-                }
+    /**
+     * Store as much of a resource as the town has room for, without spilling. Returns the amount stored.
+     */
+    public int storeAvailable(Town town, String itemType, int amount) {
+        if (isVirtual()) {
+            ItemKey key = ItemKey.of(itemType);
+            if (key == null) return 0;
+
+            return withTown(town, 0, entry -> {
+                if (entry.virtual == null) return 0;
+                int fits = (int) Math.min(amount, entry.virtual.getFreeSpace());
+                return entry.virtual.deposit(key, fits) ? fits : 0;
+            });
+        }
+
+        ItemStack items = ItemUtil.getItemStack(itemType, amount, null);
+        if (items == null) return 0;
+        return withTown(town, 0, entry -> amount - insertPlanned(town, entry, items, new ArrayList<>()));
+    }
+
+    // Must hold the town's lock. Fills in the warehouses that took a share and returns how many items didn't fit.
+    private int insertPlanned(Town town, TownWarehouses entry, ItemStack items, List<WarehouseData> targets) {
+        // Existing stacks are only topped up with items that have exactly the same meta
+        ItemFingerprint fingerprint = ItemFingerprint.forStacking(items);
+        int maxStackSize = items.getMaxStackSize();
+
+        List<Integer> shares = new ArrayList<>();
+        int toPlace = items.getAmount();
+        for (WarehouseData warehouse : entry.warehouses) {
+            if (toPlace <= 0) break;
+            if (!warehouse.getBlueprint().isActive()) continue;
+
+            int share = Math.min(toPlace, warehouse.getFreeCapacity(fingerprint, maxStackSize));
+            if (share > 0) {
+                targets.add(warehouse);
+                shares.add(share);
+                toPlace -= share;
             }
-            
-            return false;
         }
+
+        int remaining = items.getAmount();
+        for (int i = 0; i < targets.size(); i++) {
+            ItemStack part = items.clone();
+            part.setAmount(shares.get(i));
+            remaining -= shares.get(i) - targets.get(i).insertItems(part, fingerprint);
+        }
+
+        // Debug logging
+        if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
+            plugin.getLogger().info("[Warehouse] Split " + items.getAmount() + " " + fingerprint + " across "
+                    + targets.size() + " warehouses of " + town.getName() + ", " + remaining + " left over");
+        }
+        return remaining;
     }
 
     public boolean removeItems(Town town, String itemType, int amount) {
-        synchronized(inventoryLock) {
-            List<WarehouseData> warehouses = townWarehouses.get(town);
-            if (warehouses == null || warehouses.isEmpty()) {
-                return false;
-            }
+        return removeItems(town, ItemKey.of(itemType), amount);
+    }
 
-            ItemStack required;
-            if (itemType.startsWith("vanilla:")) {
-                String cleanItemType = itemType.replace("vanilla:", "").toUpperCase();
-                try {
-                    Material material = Material.valueOf(cleanItemType);
-                    required = new ItemStack(material, amount);
-                } catch (IllegalArgumentException e) {
-                    plugin.getLogger().warning("Invalid material: " + cleanItemType);
-                    return false;
-                }
-            } else {
-                required = ItemUtil.getItemStack(itemType, amount, null);
-                if (required == null) {
-                    // Debug logging
-                    if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-                        plugin.getLogger().warning("Could not create ItemStack for: " + itemType);
-                    }
-                    return false;
-                }
+    public boolean removeItems(Town town, ItemKey key, int amount) {
+        if (key == null) return false;
+        if (isVirtual()) {
+            return withTown(town, false, entry -> entry.virtual != null && entry.virtual.withdraw(key, amount));
+        }
+
+        ItemStack required = ItemUtil.getItemStack(key, amount, null);
+        if (required == null) {
+            // Debug logging
+            if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
+                plugin.getLogger().warning("Could not create ItemStack for: " + key);
             }
+            return false;
+        }
 
-            for (WarehouseData warehouse : warehouses) {
+        return withTown(town, false, entry -> {
+            for (WarehouseData warehouse : entry.warehouses) {
                 if (warehouse.getBlueprint().isActive() && warehouse.removeItems(required)) {
                     return true;
                 }
             }
             return false;
-        }
+        });
     }
 
-    public void refreshWarehouse(PlacedBlueprint blueprint) {
-        synchronized(inventoryLock) {
-            if (!blueprint.getBlueprint().getName().toLowerCase().contains("warehouse")) {
+    /**
+     * Register or unregister a warehouse after it was placed or its active state changed.
+     */
+    public void updateWarehouse(PlacedBlueprint blueprint) {
+        if (!blueprint.getBlueprint().isWarehouse()) {
+            return;
+        }
+
+        Town town = blueprint.getTown();
+        TownWarehouses entry = getTown(town);
+        entry.lock.lock();
+        try {
+            boolean registered = entry.warehouses.stream().anyMatch(w -> w.getBlueprint().getId().equals(blueprint.getId()));
+
+            if (blueprint.isActive() && !registered) {
+                entry.warehouses.add(new WarehouseData(plugin, blueprint));
+            } else if (!blueprint.isActive() && registered) {
+                entry.warehouses.removeIf(w -> w.getBlueprint().getId().equals(blueprint.getId()));
+            } else {
                 return;
             }
-            
-            Town town = blueprint.getTown();
-            List<WarehouseData> warehouses = townWarehouses.get(town);
-            
-            if (warehouses != null) {
-                warehouses.removeIf(w -> w.getBlueprint().equals(blueprint));
-                
-                if (blueprint.isActive()) {
-                    warehouses.add(new WarehouseData(plugin, blueprint));
+
+            if (isVirtual()) {
+                updateVirtualCapacity(town.getUUID(), entry);
+            }
+        } finally {
+            entry.lock.unlock();
+        }
+
+        // Debug logging
+        if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
+            plugin.getLogger().info("[Warehouse] " + (blueprint.isActive() ? "Registered" : "Unregistered")
+                    + " warehouse " + blueprint.getId() + " for " + town.getName());
+        }
+    }
+
+    public void removeWarehouse(PlacedBlueprint blueprint) {
+        Town town = blueprint.getTown();
+        withTown(town, null, entry -> {
+            if (entry.warehouses.removeIf(w -> w.getBlueprint().getId().equals(blueprint.getId())) && isVirtual()) {
+                updateVirtualCapacity(town.getUUID(), entry);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Drop the free space counters of whichever warehouse contains the given container, and update its tool index.
+     */
+    public void invalidateContentsAt(Location location, Inventory inventory) {
+        PlacedBlueprint blueprint = findWarehouseBlueprint(location);
+        if (blueprint == null) return;
+
+        withTown(blueprint.getTown(), null, entry -> {
+            for (WarehouseData warehouse : entry.warehouses) {
+                if (warehouse.contains(location)) {
+                    warehouse.invalidateContents(inventory);
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Rescan the containers of whichever warehouse contains the given block next time it's used.
+     */
+    public void refreshWarehouseAt(Location location) {
+        PlacedBlueprint blueprint = findWarehouseBlueprint(location);
+        if (blueprint == null) return;
+
+        withTown(blueprint.getTown(), null, entry -> {
+            for (WarehouseData warehouse : entry.warehouses) {
+                if (warehouse.contains(location)) {
+                    warehouse.refresh();
                 }
-            } else if (blueprint.isActive()) {
-                List<WarehouseData> newList = new ArrayList<>();
-                newList.add(new WarehouseData(plugin, blueprint));
-                townWarehouses.put(town, newList);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * The active warehouse blueprint containing a location, or null. Only a lookup in the blueprint chunk index,
+     * so the hopper transfers and block changes outside of warehouses never get to the town lookup or lock.
+     */
+    private PlacedBlueprint findWarehouseBlueprint(Location location) {
+        if (location.getWorld() == null) return null;
+        for (PlacedBlueprint blueprint : plugin.getBlueprintManager().getBlueprintsInChunk(
+                location.getWorld(), location.getBlockX() >> 4, location.getBlockZ() >> 4)) {
+            if (blueprint.isActive() && blueprint.getTown() != null && blueprint.getBlueprint().isWarehouse()
+                    && blueprint.contains(location)) {
+                return blueprint;
             }
         }
+        return null;
     }
 
     public boolean drainToolDurability(Town town, Material toolType, int durabilityDrain) {
-        synchronized(inventoryLock) {
-            List<WarehouseData> warehouses = townWarehouses.get(town);
-            if (warehouses == null || warehouses.isEmpty()) {
-                return false;
+        return drainToolDurability(town, List.of(toolType), durabilityDrain);
+    }
+
+    /**
+     * Drain durability from a town's tools of any of the given materials, spread over as many tools and
+     * warehouses as it takes. Nothing is drained if the town's tools don't have enough durability together.
+     */
+    public boolean drainToolDurability(Town town, Collection<Material> toolTypes, int durabilityDrain) {
+        if (isVirtual()) {
+            return withTown(town, false, entry -> {
+                VirtualWarehouse warehouse = entry.virtual;
+                if (warehouse == null) return false;
+
+                long available = 0;
+                for (Material toolType : toolTypes) {
+                    available += warehouse.getDurability(toolKey(toolType), toolType.getMaxDurability());
+                }
+                if (available < durabilityDrain) return false;
+
+                int left = durabilityDrain;
+                for (Material toolType : toolTypes) {
+                    if (left <= 0) break;
+                    ItemKey key = toolKey(toolType);
+                    int take = (int) Math.min(left, warehouse.getDurability(key, toolType.getMaxDurability()));
+                    if (take > 0 && warehouse.drainDurability(key, toolType.getMaxDurability(), take)) {
+                        left -= take;
+                    }
+                }
+                return true;
+            });
+        }
+
+        return withTown(town, false, entry -> {
+            List<WarehouseData> active = new ArrayList<>();
+            List<Long> available = new ArrayList<>();
+            long total = 0;
+            for (WarehouseData warehouse : entry.warehouses) {
+                if (!warehouse.getBlueprint().isActive()) continue;
+
+                long durability = warehouse.getToolDurability(toolTypes);
+                if (durability > 0) {
+                    active.add(warehouse);
+                    available.add(durability);
+                    total += durability;
+                }
             }
+            if (total < durabilityDrain) return false;
 
-            for (WarehouseData warehouse : warehouses) {
-                if (warehouse.getBlueprint().isActive() && warehouse.drainToolDurability(toolType, durabilityDrain)) {
-                    return true;
+            int left = durabilityDrain;
+            for (int i = 0; i < active.size() && left > 0; i++) {
+                int take = (int) Math.min(left, available.get(i));
+                if (active.get(i).drainToolDurability(toolTypes, take)) {
+                    left -= take;
                 }
             }
-            return false;
-        }
+            // Debug logging
+            if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
+                plugin.getLogger().info("[Warehouse] Drained " + (durabilityDrain - left) + " of " + durabilityDrain
+                        + " durability from " + toolTypes + " in " + town.getName());
+            }
+            return left <= 0;
+        });
+    }
+
+    private ItemKey toolKey(Material toolType) {
+        return ItemKey.of(ItemKey.VANILLA + ":" + toolType.name());
     }
 
     public List<WarehouseData> getTownWarehouses(Town town) {
-        synchronized(inventoryLock) {
-            return new ArrayList<>(townWarehouses.getOrDefault(town, new ArrayList<>()));
-        }
+        return withTown(town, new ArrayList<>(), entry -> new ArrayList<>(entry.warehouses));
     }
 	
 	public boolean verifyWarehouseContents(Town town, String itemType, int amount) {
-		List<WarehouseData> warehouses = townWarehouses.get(town);
-		if (warehouses == null || warehouses.isEmpty()) {
-            // Debug logging
-            if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-            plugin.getLogger().warning("[Warehouse] No warehouses found for town " + town.getName());
-            }
-			return false;
-		}
+        if (isVirtual()) {
+            ItemKey key = ItemKey.of(itemType);
+            if (key == null) return false;
+
+            return withTown(town, false, entry -> entry.virtual != null && entry.virtual.count(key) >= amount);
+        }
 
         // Debug logging
         if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
             plugin.getLogger().info("[Warehouse] Verifying contents for " + itemType + " (amount: " + amount + ")");
         }
-		for (WarehouseData warehouse : warehouses) {
-			if (warehouse.getBlueprint().isActive()) {
+
+        return withTown(town, false, entry -> {
+            if (entry.warehouses.isEmpty()) {
                 // Debug logging
                 if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-                    plugin.getLogger().info("[Warehouse] Checking warehouse at " + warehouse.getBlueprint().getLocation());
+                    plugin.getLogger().warning("[Warehouse] No warehouses found for town " + town.getName());
                 }
-				// Count items in warehouse
-				int totalFound = warehouse.countItems(itemType);
-                // Debug logging
-                if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-                    plugin.getLogger().info("[Warehouse] Found " + totalFound + " items of type " + itemType);
+                return false;
+            }
+
+            for (WarehouseData warehouse : entry.warehouses) {
+                if (warehouse.getBlueprint().isActive()) {
+                    // Debug logging
+                    if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
+                        plugin.getLogger().info("[Warehouse] Checking warehouse at " + warehouse.getBlueprint().getLocation());
+                    }
+                    // Count items in warehouse
+                    int totalFound = warehouse.countItems(itemType);
+                    // Debug logging
+                    if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
+                        plugin.getLogger().info("[Warehouse] Found " + totalFound + " items of type " + itemType);
+                    }
+                    if (totalFound >= amount) {
+                        return true;
+                    }
                 }
-				if (totalFound >= amount) {
-					return true;
-				}
-			}
-		}
-    
-		return false;
+            }
+            return false;
+        });
 	}
 
-}
\ No newline at end of file
+    /**
+     * Consistent copy of a town's virtual warehouse, or null if it has none.
+     */
+    public VirtualWarehouse.Snapshot getVirtualWarehouse(Town town) {
+        return withTown(town, null, entry -> entry.virtual != null ? entry.virtual.snapshot() : null);
+    }
+
+    /**
+     * Move items out of a town's virtual warehouse into a player's inventory.
+     * Whatever doesn't fit in the inventory stays in the warehouse.
+     */
+    public int withdrawToPlayer(Town town, ItemKey key, int amount, Player player) {
+        return withTown(town, 0, entry -> {
+            VirtualWarehouse warehouse = entry.virtual;
+            if (warehouse == null) return 0;
+
+            int toTake = Math.min(amount, warehouse.count(key));
+            if (toTake <= 0) return 0;
+
+            ItemStack items = ItemUtil.getItemStack(key, toTake, player);
+            if (items == null) return 0;
+
+            // The last tool out carries the damage it took while stored, taken first as withdrawing it clears the wear
+            int wear = toTake == warehouse.count(key) ? warehouse.takeWear(key) : 0;
+            if (!warehouse.withdraw(key, toTake)) return 0;
+
+            if (wear > 0 && items.getType().getMaxDurability() > 0) {
+                ItemStack worn = items.clone();
+                worn.setAmount(1);
+                ItemMeta meta = worn.getItemMeta();
+                ((Damageable) meta).setDamage(wear);
+                worn.setItemMeta(meta);
+                items.setAmount(toTake - 1);
+
+                if (!player.getInventory().addItem(worn).isEmpty()) {
+                    // No room for the worn tool, it goes back in use with its wear
+                    warehouse.restore(key, 1, wear);
+                    toTake--;
+                }
+                if (items.getAmount() == 0) return toTake;
+            }
+
+            int returned = 0;
+            for (ItemStack leftover : player.getInventory().addItem(items).values()) {
+                returned += leftover.getAmount();
+            }
+            // Capacity may have shrunk below what's stored, the leftovers go back regardless
+            warehouse.restore(key, returned);
+            return toTake - returned;
+        });
+    }
+
+    /**
+     * Write changed virtual warehouse entries to storage.
+     */
+    public void flushVirtualWarehouses(boolean async) {
+        Map<UUID, List<VirtualWarehouse.Entry>> changes = new HashMap<>();
+        for (Map.Entry<UUID, TownWarehouses> entry : towns.entrySet()) {
+            TownWarehouses town = entry.getValue();
+            town.lock.lock();
+            try {
+                if (town.virtual != null && town.virtual.isDirty()) {
+                    changes.put(entry.getKey(), town.virtual.takeDirtyEntries());
+                }
+            } finally {
+                town.lock.unlock();
+            }
+        }
+        if (changes.isEmpty()) return;
+
+        Runnable save = () -> changes.forEach((townId, entries) -> {
+            try {
+                plugin.getDatabase().saveWarehouseEntries(townId, entries);
+            } catch (RuntimeException e) {
+                // Keep the entries dirty so the next flush retries them
+                TownWarehouses town = towns.get(townId);
+                if (town == null) return;
+
+                town.lock.lock();
+                try {
+                    if (town.virtual != null) {
+                        town.virtual.markDirty(entries);
+                    }
+                } finally {
+                    town.lock.unlock();
+                }
+            }
+        });
+
+        if (async) {
+            flushExecutor.execute(save);
+        } else {
+            save.run();
+        }
+    }
+
+    /**
+     * Stop taking async flushes and wait for the queued ones to be written, before the final flush on shutdown.
+     */
+    public void awaitFlushes() {
+        flushExecutor.shutdown();
+        try {
+            if (!flushExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Timed out waiting for virtual warehouse saves to finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package com.townyblueprints.models;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Setter;
+import lombok.ToString;
 import org.bukkit.Material;
 import java.util.Map;
 import java.util.HashMap;
@@ -24,6 +28,13 @@ public class Blueprint {
     private String incomeType = "MONEY";
     private double dailyUpkeep = 0;
     private String upkeepType = "MONEY";
+    // Parsed from the types by their setters
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private ResourceSpec incomeSpec = ResourceSpec.MONEY;
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private ResourceSpec upkeepSpec = ResourceSpec.MONEY;
     private double placementCost = 0;
     private String permissionNode;
     private int maxPerTown = -1;
@@ -39,6 +50,15 @@ public class Blueprint {
     private int requiredCount = 1;
     private boolean sharedUpkeep = false;
     private double upkeepMultiplier = 1.0;
+    // Warehouse role, null means it's derived from the type and name
+    private Boolean warehouse;
+    // Templates resolved from the income and upkeep types, bound by the ResourceTemplateManager
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private ResourceTemplate incomeTemplate;
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private ResourceTemplate upkeepTemplate;
 
     public void setName(String name) {
         this.name = name;
@@ -46,6 +66,23 @@ public class Blueprint {
         this.permissionNode = "townyblueprints.blueprint." + name.toLowerCase().replace(" ", "_");
     }
 
+    public void setIncomeType(String incomeType) {
+        this.incomeType = incomeType;
+        this.incomeSpec = ResourceSpec.parse(incomeType);
+    }
+
+    public void setUpkeepType(String upkeepType) {
+        this.upkeepType = upkeepType;
+        this.upkeepSpec = ResourceSpec.parse(upkeepType);
+    }
+
+    public boolean isWarehouse() {
+        if (warehouse != null) {
+            return warehouse;
+        }
+        return "warehouse".equalsIgnoreCase(type) || (name != null && name.toLowerCase().contains("warehouse"));
+    }
+
     public Map<String, Integer> getRequiredBlocks() {
         return requiredBlocks;
     }
@@ -142,28 +179,34 @@ public class Blueprint {
         return biome != null && this.forbiddenBiomes.contains(biome.toUpperCase());
     }
 
-    public double calculateUpkeep(int currentCount) {
+    /**
+     * Factor on the upkeep with currentCount active blueprints of this type in the town.
+     * Groups below the required count pay the full upkeep.
+     */
+    public double getUpkeepScale(int currentCount) {
         if (currentCount < requiredCount) {
-            return dailyUpkeep;
-        }
-
-        if (sharedUpkeep) {
-            return (dailyUpkeep * upkeepMultiplier) / currentCount;
-        } else {
-            return dailyUpkeep * upkeepMultiplier;
+            return 1.0;
         }
+        return sharedUpkeep ? upkeepMultiplier / Math.max(1, currentCount) : upkeepMultiplier;
     }
 
-    public double calculateIncome(int currentCount) {
+    /**
+     * Factor on the income with currentCount active blueprints of this type in the town.
+     * Groups below the required count produce nothing.
+     */
+    public double getIncomeScale(int currentCount) {
         if (currentCount < requiredCount) {
             return 0;
         }
+        return sharedUpkeep ? upkeepMultiplier / Math.max(1, currentCount) : upkeepMultiplier;
+    }
 
-        if (sharedUpkeep) {
-            return (dailyIncome * upkeepMultiplier) / currentCount;
-        } else {
-            return dailyIncome * upkeepMultiplier;
-        }
+    public double calculateUpkeep(int currentCount) {
+        return dailyUpkeep * getUpkeepScale(currentCount);
+    }
+
+    public double calculateIncome(int currentCount) {
+        return dailyIncome * getIncomeScale(currentCount);
     }
     public Set<String> getRequiredSchematic() {
         return requiredSchematic;
@@ -4,6 +4,9 @@ import com.palmergames.bukkit.towny.object.Town;
 import lombok.Data;
 import org.bukkit.Location;
 
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
 @Data
 public class PlacedBlueprint {
     private final String id;
@@ -13,6 +16,10 @@ public class PlacedBlueprint {
     private boolean active;
     private boolean successfulUpkeep;
 	private long lastCollectionTime;
+    // Last day index whose income was added to the pending collections, -1 until first settled
+    private long lastSettledDay = -1;
+    // Income rolls are reproducible from this seed and the day index
+    private final long accrualSeed;
 
     public PlacedBlueprint(String id, Blueprint blueprint, Town town, Location location, boolean active) {
         this.id = id;
@@ -22,8 +29,19 @@ public class PlacedBlueprint {
         this.active = active;
         this.successfulUpkeep = false;        
 		this.lastCollectionTime = System.currentTimeMillis();
+        this.accrualSeed = UUID.nameUUIDFromBytes(id.getBytes(StandardCharsets.UTF_8)).getMostSignificantBits();
     }
 	public String getId() {
         return id;
     }
+
+    /**
+     * Whether the location is inside the blueprint's area, the far sides excluded.
+     */
+    public boolean contains(Location other) {
+        if (location.getWorld() == null || !location.getWorld().equals(other.getWorld())) return false;
+        return other.getX() >= location.getX() && other.getX() < location.getX() + blueprint.getSizeX()
+                && other.getY() >= location.getY() && other.getY() < location.getY() + blueprint.getSizeY()
+                && other.getZ() >= location.getZ() && other.getZ() < location.getZ() + blueprint.getSizeZ();
+    }
 }
\ No newline at end of file
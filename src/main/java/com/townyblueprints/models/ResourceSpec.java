@@ -0,0 +1,42 @@
+package com.townyblueprints.models;
+
+import com.townyblueprints.util.ItemKey;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Parsed income, upkeep or template resource type. Types are parsed once when a blueprint or template
+ * is loaded, so upkeep and collection switch on the spec instead of re-inspecting the string.
+ * Format:
+ * - MONEY
+ * - TOOL
+ * - template:name
+ * - anything else is an item id, see ItemKey
+ */
+public sealed interface ResourceSpec permits ResourceSpec.Money, ResourceSpec.Tool, ResourceSpec.Template, ResourceSpec.Item {
+    String TEMPLATE_PREFIX = "template:";
+
+    Money MONEY = new Money();
+    Tool TOOL = new Tool();
+
+    record Money() implements ResourceSpec {}
+
+    record Tool() implements ResourceSpec {}
+
+    // Name without the template: prefix
+    record Template(String name) implements ResourceSpec {}
+
+    // The key is null if the id couldn't be parsed, such an item never resolves
+    record Item(@Nullable ItemKey key) implements ResourceSpec {}
+
+    static ResourceSpec parse(@Nullable String type) {
+        if (type == null || type.isBlank()) return MONEY;
+
+        String trimmed = type.trim();
+        if (trimmed.equalsIgnoreCase("MONEY")) return MONEY;
+        if (trimmed.equalsIgnoreCase("TOOL")) return TOOL;
+        if (trimmed.regionMatches(true, 0, TEMPLATE_PREFIX, 0, TEMPLATE_PREFIX.length())) {
+            return new Template(trimmed.substring(TEMPLATE_PREFIX.length()).trim());
+        }
+        return new Item(ItemKey.of(trimmed));
+    }
+}
@@ -1,12 +1,16 @@
 package com.townyblueprints.models;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 import org.bukkit.Material;
 import org.bukkit.configuration.ConfigurationSection;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 @Data
 public class ResourceTemplate {
@@ -14,10 +18,18 @@ public class ResourceTemplate {
     private String description;
     private List<ResourceEntry> resources;
     private boolean randomSelection;
+    // How many different resources a random selection picks
+    private int selectCount = 1;
+    // Running sums of the resource weights, so a selection is a binary search instead of a pass over the weights
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private double[] cumulativeWeights = new double[0];
 
     @Data
     public static class ResourceEntry {
         private String type; // MONEY, TOOL, or material name
+        @Setter(AccessLevel.NONE)
+        private ResourceSpec spec = ResourceSpec.MONEY;
         private int minAmount;
         private int maxAmount;
         private double weight;
@@ -26,8 +38,17 @@ public class ResourceTemplate {
         private String toolType; // For TOOL type only
         private int durabilityDrain; // For TOOL type only
 
+        public void setType(String type) {
+            this.type = type;
+            this.spec = ResourceSpec.parse(type);
+        }
+
         public int getRandomAmount() {
-            if (type.equals("TOOL")) {
+            return getRandomAmount(ThreadLocalRandom.current());
+        }
+
+        public int getRandomAmount(RandomGenerator random) {
+            if (spec instanceof ResourceSpec.Tool) {
                 return durabilityDrain;
             }
 
@@ -43,7 +64,7 @@ public class ResourceTemplate {
 
             // Calculate the range for nextInt (must be positive)
             int range = maxAmount - minAmount + 1;
-            return new Random().nextInt(range) + minAmount;
+            return random.nextInt(range) + minAmount;
         }
     }
 
@@ -56,6 +77,7 @@ public class ResourceTemplate {
         ResourceTemplate template = new ResourceTemplate(config.getString("name"));
         template.setDescription(config.getString("description", ""));
         template.setRandomSelection(config.getBoolean("random_selection", false));
+        template.setSelectCount(Math.max(1, config.getInt("select_count", 1)));
 
         ConfigurationSection resourcesSection = config.getConfigurationSection("resources");
         if (resourcesSection != null) {
@@ -85,7 +107,7 @@ public class ResourceTemplate {
 
                     entry.setWeight(resourceSection.getDouble("weight", 1.0));
 
-                    if (!entry.getType().equals("TOOL")) {
+                    if (!(entry.getSpec() instanceof ResourceSpec.Tool)) {
                         // Ensure minAmount is always positive
                         int minAmount = Math.max(1, resourceSection.getInt("min_amount", 1));
                         entry.setMinAmount(minAmount);
@@ -100,28 +122,90 @@ public class ResourceTemplate {
             }
         }
 
+        template.updateWeights();
         return template;
     }
 
+    /**
+     * Recompute the cumulative weights after the resources changed. Negative weights count as 0.
+     */
+    public void updateWeights() {
+        double[] weights = new double[resources.size()];
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            total += Math.max(0, resources.get(i).getWeight());
+            weights[i] = total;
+        }
+        cumulativeWeights = weights;
+    }
+
     public List<ResourceEntry> getSelectedResources() {
+        return getSelectedResources(ThreadLocalRandom.current());
+    }
+
+    /**
+     * Pick the resources to produce. Without random selection that's all of them, otherwise selectCount
+     * different resources drawn by weight. Pass a seeded generator to make the draw reproducible.
+     */
+    public List<ResourceEntry> getSelectedResources(RandomGenerator random) {
         if (!randomSelection || resources.isEmpty()) {
             return resources;
         }
+        if (cumulativeWeights.length != resources.size()) {
+            updateWeights();
+        }
 
-        // If random selection is enabled, pick one resource based on weights
-        List<ResourceEntry> selected = new ArrayList<>();
-        double totalWeight = resources.stream().mapToDouble(ResourceEntry::getWeight).sum();
-        double random = new Random().nextDouble() * totalWeight;
-
-        double currentWeight = 0;
-        for (ResourceEntry entry : resources) {
-            currentWeight += entry.getWeight();
-            if (random <= currentWeight) {
-                selected.add(entry);
-                break;
+        double totalWeight = cumulativeWeights[cumulativeWeights.length - 1];
+        if (totalWeight <= 0) {
+            return List.of();
+        }
+        if (selectCount <= 1) {
+            return List.of(resources.get(indexOf(random.nextDouble() * totalWeight)));
+        }
+        return selectWithoutReplacement(random);
+    }
+
+    // First resource whose cumulative weight is above the roll, zero weight resources are never hit
+    private int indexOf(double roll) {
+        int low = 0;
+        int high = cumulativeWeights.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulativeWeights[mid] > roll) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    // Efraimidis-Spirakis sampling: each resource gets the key log(u) / weight and the largest keys win
+    private List<ResourceEntry> selectWithoutReplacement(RandomGenerator random) {
+        double[] keys = new double[resources.size()];
+        int candidates = 0;
+        for (int i = 0; i < keys.length; i++) {
+            double weight = cumulativeWeights[i] - (i == 0 ? 0 : cumulativeWeights[i - 1]);
+            if (weight > 0) {
+                keys[i] = Math.log(1.0 - random.nextDouble()) / weight;
+                candidates++;
+            } else {
+                keys[i] = Double.NEGATIVE_INFINITY;
             }
         }
 
+        int count = Math.min(selectCount, candidates);
+        List<ResourceEntry> selected = new ArrayList<>(count);
+        for (int n = 0; n < count; n++) {
+            int best = -1;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != Double.NEGATIVE_INFINITY && (best < 0 || keys[i] > keys[best])) {
+                    best = i;
+                }
+            }
+            selected.add(resources.get(best));
+            keys[best] = Double.NEGATIVE_INFINITY;
+        }
         return selected;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,183 @@
+package com.townyblueprints.models;
+
+import com.townyblueprints.util.ItemKey;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.*;
+
+/**
+ * A town's warehouse stored as item counts instead of physical containers.
+ * Tools keep the damage already taken by the tool currently in use as "wear", so durability
+ * upkeep is counter arithmetic as well. Not thread safe, callers hold the town's lock in the WarehouseManager.
+ */
+public class VirtualWarehouse {
+    @Getter
+    private final UUID townId;
+    private final Map<ItemKey, Integer> contents = new HashMap<>();
+    private final Map<ItemKey, Integer> wear = new HashMap<>();
+    private final Set<ItemKey> dirty = new HashSet<>();
+    @Getter
+    @Setter
+    private long capacity;
+    @Getter
+    private long stored;
+
+    public record Entry(ItemKey key, int amount, int wear) {}
+
+    // Copy of the contents for reading outside the town's lock, entries in a stable display order
+    public record Snapshot(List<Entry> entries, long stored, long capacity) {}
+
+    public VirtualWarehouse(UUID townId) {
+        this.townId = townId;
+    }
+
+    /**
+     * Add an entry loaded from storage, without marking it dirty.
+     */
+    public void load(Entry entry) {
+        if (entry.amount() <= 0) return;
+        stored += entry.amount() - contents.getOrDefault(entry.key(), 0);
+        contents.put(entry.key(), entry.amount());
+        if (entry.wear() > 0) {
+            wear.put(entry.key(), entry.wear());
+        }
+    }
+
+    public long getFreeSpace() {
+        return Math.max(0, capacity - stored);
+    }
+
+    public int count(ItemKey key) {
+        return contents.getOrDefault(key, 0);
+    }
+
+    /**
+     * Store the full amount, or nothing if it doesn't fit.
+     */
+    public boolean deposit(ItemKey key, int amount) {
+        if (amount <= 0) return true;
+        if (amount > getFreeSpace()) return false;
+
+        contents.merge(key, amount, Integer::sum);
+        stored += amount;
+        dirty.add(key);
+        return true;
+    }
+
+    /**
+     * Put back items that were just taken out, even if the warehouse is over capacity by now.
+     */
+    public void restore(ItemKey key, int amount) {
+        if (amount <= 0) return;
+        contents.merge(key, amount, Integer::sum);
+        stored += amount;
+        dirty.add(key);
+    }
+
+    /**
+     * Put back a tool that was just taken out, together with the damage it carried.
+     */
+    public void restore(ItemKey key, int amount, int toolWear) {
+        restore(key, amount);
+        if (amount > 0 && toolWear > 0) {
+            wear.put(key, toolWear);
+        }
+    }
+
+    /**
+     * Remove the full amount, or nothing if there isn't enough stored.
+     */
+    public boolean withdraw(ItemKey key, int amount) {
+        if (amount <= 0) return true;
+        int current = count(key);
+        if (current < amount) return false;
+
+        if (current == amount) {
+            contents.remove(key);
+            wear.remove(key);
+        } else {
+            contents.put(key, current - amount);
+        }
+        stored -= amount;
+        dirty.add(key);
+        return true;
+    }
+
+    /**
+     * Total durability left on the stored tools of a type.
+     */
+    public long getDurability(ItemKey key, int maxDurability) {
+        return Math.max(0, (long) count(key) * maxDurability - getWear(key));
+    }
+
+    /**
+     * Drain durability from the stored tools of a type, breaking tools as their durability runs out.
+     * Nothing is drained if the tools don't have enough durability left between them.
+     */
+    public boolean drainDurability(ItemKey key, int maxDurability, int amount) {
+        int tools = count(key);
+        if (tools <= 0 || maxDurability <= 0) return false;
+        if (getDurability(key, maxDurability) < amount) return false;
+
+        int total = wear.getOrDefault(key, 0) + amount;
+        int broken = Math.min(tools, total / maxDurability);
+        int remainingWear = total % maxDurability;
+
+        if (broken > 0) {
+            withdraw(key, broken);
+        }
+        if (broken < tools && remainingWear > 0) {
+            wear.put(key, remainingWear);
+        } else {
+            wear.remove(key);
+        }
+        dirty.add(key);
+        return true;
+    }
+
+    public int getWear(ItemKey key) {
+        return wear.getOrDefault(key, 0);
+    }
+
+    /**
+     * Hand out the wear of the tool in use, for when it leaves the warehouse.
+     */
+    public int takeWear(ItemKey key) {
+        Integer taken = wear.remove(key);
+        if (taken == null) return 0;
+        dirty.add(key);
+        return taken;
+    }
+
+    public Snapshot snapshot() {
+        List<Entry> entries = new ArrayList<>(contents.size());
+        for (Map.Entry<ItemKey, Integer> entry : contents.entrySet()) {
+            entries.add(new Entry(entry.getKey(), entry.getValue(), getWear(entry.getKey())));
+        }
+        entries.sort(Comparator.comparing(entry -> entry.key().toString()));
+        return new Snapshot(entries, stored, capacity);
+    }
+
+    public boolean isDirty() {
+        return !dirty.isEmpty();
+    }
+
+    /**
+     * Snapshot every changed entry and clear the dirty set. Entries with an amount of 0 were emptied.
+     */
+    public List<Entry> takeDirtyEntries() {
+        List<Entry> entries = new ArrayList<>(dirty.size());
+        for (ItemKey key : dirty) {
+            entries.add(new Entry(key, count(key), getWear(key)));
+        }
+        dirty.clear();
+        return entries;
+    }
+
+    public void markDirty(Collection<Entry> entries) {
+        for (Entry entry : entries) {
+            dirty.add(entry.key());
+        }
+    }
+}
@@ -5,13 +5,19 @@ import lombok.Data;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.block.Container;
+import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import com.townyblueprints.inventory.InventoryManager;
+import com.townyblueprints.inventory.ItemFingerprint;
+import com.townyblueprints.inventory.ToolPool;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
@@ -24,13 +30,20 @@ public class WarehouseData {
     private List<Container> containers;
     private final AtomicBoolean isScanning = new AtomicBoolean(false);
     private final AtomicBoolean isProcessing = new AtomicBoolean(false);
+    // Containers are scanned on first use and again only after a container in the volume changed
+    private final AtomicBoolean needsScan = new AtomicBoolean(true);
+    // Free space counters, kept in step by our own inserts and rebuilt from the slots once anything else touched them
+    private final AtomicBoolean capacityKnown = new AtomicBoolean(false);
+    private final Map<ItemFingerprint, Integer> partialSpace = new HashMap<>();
+    private int emptySlots;
+    // Tools in the containers by remaining durability, built once and then updated container by container
+    private ToolPool toolPool;
 
     public WarehouseData(JavaPlugin plugin, PlacedBlueprint blueprint) {
         this.plugin = plugin;
         this.logger = plugin.getLogger();
         this.blueprint = blueprint;
         this.inventoryManager = new InventoryManager(plugin);
-        scanForContainers();
     }
 
     private void scanForContainers() {
@@ -40,11 +53,9 @@ public class WarehouseData {
         }
 
         try {
-            if (!Bukkit.isPrimaryThread()) {
-                Bukkit.getScheduler().runTask(plugin, this::performScan);
-            } else {
-                performScan();
-            }
+            performScan();
+            needsScan.set(false);
+            invalidateContents();
         } finally {
             isScanning.set(false);
         }
@@ -73,6 +84,7 @@ public class WarehouseData {
             logger.info("[WarehouseData] Attempting to add " + items.getAmount() + " " + items.getType().name());
         }
         boolean result = inventoryManager.addItems(containers, items, player);
+        itemsChanged(items);
         // Debug logging
         if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
             logger.info("[WarehouseData] Add operation " + (result ? "successful" : "failed"));
@@ -89,6 +101,7 @@ public class WarehouseData {
             logger.info("[WarehouseData] Attempting to remove " + required.getAmount() + " " + required.getType().name());
 
         }boolean result = inventoryManager.removeItems(containers, required);
+        itemsChanged(required);
         // Debug logging
         if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
             logger.info("[WarehouseData] Remove operation " + (result ? "successful" : "failed"));
@@ -96,15 +109,37 @@ public class WarehouseData {
         return result;
     }
 
-    public boolean drainToolDurability(Material toolType, int durabilityDrain) {
+    /**
+     * Total durability left on the tools of the given materials.
+     */
+    public long getToolDurability(Collection<Material> toolTypes) {
+        if (!ensureMainThread()) return 0;
+        if (!checkContainers()) return 0;
+
+        return getToolPool().getDurability(toolTypes);
+    }
+
+    /**
+     * Drain durability across the tools of the given materials, or nothing if they don't have enough left together.
+     */
+    public boolean drainToolDurability(Collection<Material> toolTypes, int durabilityDrain) {
         if (!ensureMainThread()) return false;
         if (!checkContainers()) return false;
 
         // Debug logging
         if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
-            logger.info("[WarehouseData] Attempting to drain " + durabilityDrain + " durability from " + toolType.name());
+            logger.info("[WarehouseData] Attempting to drain " + durabilityDrain + " durability from " + toolTypes);
+        }
+        boolean result = getToolPool().drain(toolTypes, durabilityDrain);
+        if (!result && toolPool.isStale()) {
+            // The containers changed without an event reaching us, index them again and retry once
+            toolPool = null;
+            result = getToolPool().drain(toolTypes, durabilityDrain);
+        }
+        if (result) {
+            // Broken tools free up slots
+            capacityKnown.set(false);
         }
-        boolean result = inventoryManager.drainToolDurability(containers, toolType, durabilityDrain);
         // Debug logging
         if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
             logger.info("[WarehouseData] Durability drain " + (result ? "successful" : "failed"));
@@ -112,6 +147,102 @@ public class WarehouseData {
         return result;
     }
 
+    private ToolPool getToolPool() {
+        if (toolPool == null) {
+            toolPool = ToolPool.build(containers);
+        }
+        return toolPool;
+    }
+
+    /**
+     * How many of an item still fit, counting empty slots and the room left on matching stacks.
+     */
+    public int getFreeCapacity(ItemFingerprint fingerprint, int maxStackSize) {
+        if (!ensureMainThread()) return 0;
+        if (!checkContainers()) return 0;
+
+        ensureCapacity();
+        return emptySlots * maxStackSize + partialSpace.getOrDefault(fingerprint, 0);
+    }
+
+    /**
+     * Insert as many items as fit and return how many didn't, without spilling anything.
+     */
+    public int insertItems(ItemStack items, ItemFingerprint fingerprint) {
+        if (!ensureMainThread()) return items.getAmount();
+        if (!checkContainers()) return items.getAmount();
+
+        ensureCapacity();
+        // The tool pool, if there is one, picks up inserted tools slot by slot
+        ToolPool tools = items.getType().getMaxDurability() > 0 ? toolPool : null;
+        int leftover = inventoryManager.insertItems(containers, items, fingerprint, tools);
+        if (leftover > 0) {
+            // The counters were off, someone changed the containers without us noticing
+            invalidateContents();
+        } else {
+            consumeCapacity(fingerprint, items.getMaxStackSize(), items.getAmount());
+        }
+        return leftover;
+    }
+
+    /**
+     * Hand items the town couldn't store to the player, or drop them at this warehouse.
+     */
+    public void spillItems(ItemStack leftover, Player player) {
+        inventoryManager.spillItems(containers != null ? containers : List.of(), leftover, player);
+    }
+
+    private void ensureCapacity() {
+        if (capacityKnown.get()) return;
+
+        partialSpace.clear();
+        emptySlots = inventoryManager.countFreeSpace(containers, partialSpace);
+        capacityKnown.set(true);
+    }
+
+    // Mirrors InventoryOperations.insertItems: matching stacks are topped up first, then empty slots are used
+    private void consumeCapacity(ItemFingerprint fingerprint, int maxStackSize, int placed) {
+        int partial = partialSpace.getOrDefault(fingerprint, 0);
+        int fromPartial = Math.min(partial, placed);
+        int rest = placed - fromPartial;
+        int newSlots = (rest + maxStackSize - 1) / maxStackSize;
+
+        emptySlots = Math.max(0, emptySlots - newSlots);
+        partial = partial - fromPartial + newSlots * maxStackSize - rest;
+        if (partial > 0) {
+            partialSpace.put(fingerprint, partial);
+        } else {
+            partialSpace.remove(fingerprint);
+        }
+    }
+
+    /**
+     * Drop the free space counters and tool index, for example after the containers were rescanned.
+     */
+    public void invalidateContents() {
+        capacityKnown.set(false);
+        toolPool = null;
+    }
+
+    /**
+     * Drop the free space counters after one container's contents changed outside the plugin.
+     * The tool index only re-reads that container.
+     */
+    public void invalidateContents(Inventory inventory) {
+        capacityKnown.set(false);
+        if (toolPool != null) {
+            toolPool.rescan(inventory);
+        }
+    }
+
+    // After our own adds and removals the tool index only has to go if tools were moved
+    private void itemsChanged(ItemStack items) {
+        capacityKnown.set(false);
+        if (items.getType().getMaxDurability() > 0) {
+            toolPool = null;
+        }
+    }
+
     public boolean hasSpace() {
         if (!ensureMainThread()) return false;
         if (!checkContainers()) return false;
@@ -147,18 +278,32 @@ public class WarehouseData {
     }
 
     private boolean checkContainers() {
+        if (needsScan.get()) {
+            scanForContainers();
+        }
         if (containers == null || containers.isEmpty()) {
             // Debug logging
             if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
                 logger.warning("[WarehouseData] No containers available!");
             }
-            scanForContainers();
             return false;
         }
         return true;
     }
 
+    /**
+     * Mark the containers as outdated, they are rescanned the next time the warehouse is used.
+     */
     public void refresh() {
-        scanForContainers();
+        needsScan.set(true);
+        invalidateContents();
+    }
+
+    public boolean contains(Location location) {
+        Location base = blueprint.getLocation();
+        return base.getWorld() != null && base.getWorld().equals(location.getWorld())
+                && location.getBlockX() >= base.getBlockX() && location.getBlockX() < base.getBlockX() + blueprint.getBlueprint().getSizeX()
+                && location.getBlockY() >= base.getBlockY() && location.getBlockY() < base.getBlockY() + blueprint.getBlueprint().getSizeY()
+                && location.getBlockZ() >= base.getBlockZ() && location.getBlockZ() < base.getBlockZ() + blueprint.getBlueprint().getSizeZ();
     }
 }
\ No newline at end of file
@@ -0,0 +1,62 @@
+package com.townyblueprints.tasks;
+
+import com.palmergames.bukkit.towny.TownyAPI;
+import com.palmergames.bukkit.towny.object.Town;
+import com.townyblueprints.TownyBlueprints;
+import com.townyblueprints.models.PlacedBlueprint;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.*;
+
+/**
+ * Delivers the income of opted in blueprint types after a new day, a few towns per tick so the
+ * work is spread out instead of landing on whoever runs /bp collect first.
+ */
+public class AutoCollectionTask extends BukkitRunnable {
+    private final TownyBlueprints plugin;
+    private final int townsPerTick;
+    private final Set<String> types = new HashSet<>();
+    private Deque<UUID> queue;
+
+    public AutoCollectionTask(TownyBlueprints plugin) {
+        this.plugin = plugin;
+        this.townsPerTick = Math.max(1, plugin.getConfig().getInt("economy.collection.auto_deposit.towns_per_tick", 2));
+        for (String type : plugin.getConfig().getStringList("economy.collection.auto_deposit.types")) {
+            types.add(type.toLowerCase());
+        }
+    }
+
+    @Override
+    public void run() {
+        if (queue == null) {
+            // Queue every town with at least one opted in blueprint
+            Set<UUID> towns = new LinkedHashSet<>();
+            for (PlacedBlueprint blueprint : plugin.getBlueprintManager().getAllPlacedBlueprints()) {
+                if (blueprint.getTown() != null && isOptedIn(blueprint)) {
+                    towns.add(blueprint.getTown().getUUID());
+                }
+            }
+            queue = new ArrayDeque<>(towns);
+        }
+
+        for (int i = 0; i < townsPerTick && !queue.isEmpty(); i++) {
+            // Towns can be deleted while the queue is worked through
+            Town town = TownyAPI.getInstance().getTown(queue.poll());
+            if (town != null) {
+                plugin.getResourceCollectionHandler().autoDeposit(town, this::isOptedIn);
+            }
+        }
+
+        if (queue.isEmpty()) {
+            // Debug logging
+            if (TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
+                plugin.getLogger().info("[AutoCollection] Delivered income for all towns");
+            }
+            cancel();
+        }
+    }
+
+    private boolean isOptedIn(PlacedBlueprint blueprint) {
+        return types.isEmpty() || types.contains(blueprint.getBlueprint().getType().toLowerCase());
+    }
+}
@@ -199,8 +199,7 @@ public class BlueprintStatusTask extends BukkitRunnable {
 
         // Only update if the status has changed
         if (blueprint.isActive() != hasAllRequirements) {
-            blueprint.setActive(hasAllRequirements);
-            plugin.getBlueprintManager().saveAll();
+            plugin.getBlueprintManager().setBlueprintActive(blueprint, hasAllRequirements);
 
             //update dynmap visualization
             if (plugin.getConfigManager().isDynmapEnabled()) {
@@ -208,12 +207,6 @@ public class BlueprintStatusTask extends BukkitRunnable {
                     plugin.getDynmapListener().updateBlueprintMarker(blueprint);
                 }
             }
-            // Update visualization for all players viewing this blueprint
-            plugin.getServer().getOnlinePlayers().forEach(player -> {
-                if (player.getWorld().equals(world)) {
-                    plugin.getPlacementHandler().updateVisualization(player, blueprint);
-                }
-            });
         }
     }
 
@@ -0,0 +1,71 @@
+package com.townyblueprints.util;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parsed identifier for an item from any supported source.
+ * Keys are interned, so the same id string is only ever split and normalised once
+ * and equal keys are usually the same instance.
+ * Format:
+ * - vanilla:MATERIAL_NAME (or just MATERIAL_NAME)
+ * - itemsadder:namespace:id
+ * - mmoitems:type:id
+ * - mythicmobs:id
+ * - oraxen:id
+ */
+public record ItemKey(String source, String id) {
+    public static final String VANILLA = "vanilla";
+
+    private static final Map<String, ItemKey> PARSED = new ConcurrentHashMap<>();
+    private static final Map<ItemKey, ItemKey> INTERNED = new ConcurrentHashMap<>();
+
+    /**
+     * Parse an id string into its interned key, or null if the string is empty.
+     */
+    @Nullable
+    public static ItemKey of(String fullId) {
+        if (fullId == null) return null;
+
+        ItemKey cached = PARSED.get(fullId);
+        if (cached != null) return cached;
+
+        ItemKey parsed = parse(fullId.trim());
+        if (parsed == null) return null;
+
+        ItemKey interned = INTERNED.computeIfAbsent(parsed, k -> k);
+        PARSED.putIfAbsent(fullId, interned);
+        return interned;
+    }
+
+    @Nullable
+    private static ItemKey parse(String fullId) {
+        if (fullId.isEmpty()) return null;
+
+        String[] parts = fullId.split(":", 3);
+        if (parts.length < 2) {
+            // Bare material names are treated as vanilla items
+            return new ItemKey(VANILLA, parts[0].toUpperCase());
+        }
+
+        String source = parts[0].toLowerCase();
+        String id = parts.length == 3 ? parts[1] + ":" + parts[2] : parts[1];
+        if (id.isEmpty()) return null;
+
+        if (source.equals(VANILLA)) {
+            id = id.toUpperCase();
+        }
+        return new ItemKey(source, id);
+    }
+
+    public boolean isVanilla() {
+        return VANILLA.equals(source);
+    }
+
+    @Override
+    public String toString() {
+        return source + ":" + id;
+    }
+}
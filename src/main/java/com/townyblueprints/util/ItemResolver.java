@@ -0,0 +1,281 @@
+package com.townyblueprints.util;
+
+import com.townyblueprints.TownyBlueprints;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.event.server.PluginEnableEvent;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves {@link ItemKey}s into ItemStacks.
+ * Available item providers are detected once (and again whenever one of them is enabled or disabled),
+ * and a prototype ItemStack is cached per key. Callers always receive a clone of the prototype.
+ */
+public class ItemResolver implements Listener {
+    // source -> plugin name
+    private static final Map<String, String> PROVIDER_PLUGINS = Map.of(
+            "itemsadder", "ItemsAdder",
+            "mmoitems", "MMOItems",
+            "mythicmobs", "MythicMobs",
+            "oraxen", "Oraxen"
+    );
+    // source -> API class that must be present
+    private static final Map<String, String> PROVIDER_CLASSES = Map.of(
+            "itemsadder", "dev.lone.itemsadder.api.CustomStack",
+            "mmoitems", "net.Indyuce.mmoitems.MMOItems",
+            "mythicmobs", "io.lumine.mythic.bukkit.MythicBukkit",
+            "oraxen", "io.th0rgal.oraxen.api.OraxenItems"
+    );
+    // source -> event fired when the provider reloads its items
+    private static final Map<String, String> PROVIDER_RELOAD_EVENTS = Map.of(
+            "itemsadder", "dev.lone.itemsadder.api.Events.ItemsAdderLoadDataEvent",
+            "mythicmobs", "io.lumine.mythic.bukkit.events.MythicReloadedEvent",
+            "oraxen", "io.th0rgal.oraxen.api.events.OraxenItemsLoadedEvent"
+    );
+
+    private final TownyBlueprints plugin;
+    private final Set<String> availableSources = ConcurrentHashMap.newKeySet();
+    private final Set<String> reloadListenersRegistered = ConcurrentHashMap.newKeySet();
+    private final Map<ItemKey, ItemStack> prototypes = new ConcurrentHashMap<>();
+    private final Map<ItemKey, String> displayNames = new ConcurrentHashMap<>();
+
+    public ItemResolver(TownyBlueprints plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Detect which item providers are installed and usable.
+     */
+    public void detectProviders() {
+        availableSources.clear();
+        availableSources.add(ItemKey.VANILLA);
+
+        for (Map.Entry<String, String> entry : PROVIDER_PLUGINS.entrySet()) {
+            String source = entry.getKey();
+            if (detectProvider(source, entry.getValue())) {
+                availableSources.add(source);
+                registerReloadListener(source);
+            }
+        }
+
+        // Debug logging
+        if (plugin.getConfigManager() != null && plugin.getConfigManager().isDebugMode()) {
+            plugin.getLogger().info("[ItemResolver] Available item sources: " + availableSources);
+        }
+    }
+
+    private boolean detectProvider(String source, String pluginName) {
+        var provider = plugin.getServer().getPluginManager().getPlugin(pluginName);
+        if (provider == null || !provider.isEnabled()) {
+            return false;
+        }
+
+        try {
+            Class.forName(PROVIDER_CLASSES.get(source));
+            return true;
+        } catch (ClassNotFoundException e) {
+            plugin.getLogger().warning(pluginName + " API not found!");
+            return false;
+        }
+    }
+
+    private void registerReloadListener(String source) {
+        String eventClassName = PROVIDER_RELOAD_EVENTS.get(source);
+        if (eventClassName == null || !reloadListenersRegistered.add(source)) {
+            return;
+        }
+
+        try {
+            Class<? extends Event> eventClass = Class.forName(eventClassName).asSubclass(Event.class);
+            plugin.getServer().getPluginManager().registerEvent(eventClass, this, EventPriority.MONITOR,
+                    (listener, event) -> {
+                        if (eventClass.isInstance(event)) {
+                            invalidate(source);
+                        }
+                    }, plugin);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            // Provider doesn't expose a reload event, rely on enable/disable invalidation only
+            reloadListenersRegistered.remove(source);
+        }
+    }
+
+    public boolean isAvailable(String source) {
+        return availableSources.contains(source);
+    }
+
+    /**
+     * Get a fresh ItemStack for the given key, or null if it can't be resolved.
+     */
+    @Nullable
+    public ItemStack resolve(ItemKey key, int amount, @Nullable Player player) {
+        if (key == null || !isAvailable(key.source())) return null;
+
+        // Player-levelled MMOItems differ per player and can't be shared
+        if (player != null && key.source().equals("mmoitems")
+                && plugin.getConfig().getBoolean("mmoitems.level_to_player", false)) {
+            ItemStack item = MMOItemsUtil.getMMOItemsItemStack(key.id(), player);
+            if (item != null) {
+                item.setAmount(amount);
+            }
+            return item;
+        }
+
+        ItemStack prototype = getPrototype(key);
+        if (prototype == null) return null;
+
+        ItemStack item = prototype.clone();
+        item.setAmount(amount);
+        return item;
+    }
+
+    /**
+     * Get the cached prototype for a key. The returned stack must not be modified.
+     */
+    @Nullable
+    public ItemStack getPrototype(ItemKey key) {
+        if (key == null || !isAvailable(key.source())) return null;
+
+        ItemStack prototype = prototypes.get(key);
+        if (prototype != null) return prototype;
+
+        // Not computeIfAbsent: some providers block on the main thread while building
+        prototype = build(key);
+        if (prototype == null) return null;
+
+        prototype.setAmount(1);
+        ItemStack existing = prototypes.putIfAbsent(key, prototype);
+        return existing != null ? existing : prototype;
+    }
+
+    public boolean isValid(ItemKey key) {
+        if (key == null) return false;
+        if (key.isVanilla()) {
+            return Material.matchMaterial(key.id()) != null;
+        }
+        return getPrototype(key) != null;
+    }
+
+    @Nullable
+    public String getDisplayName(ItemKey key) {
+        if (key == null || !isAvailable(key.source())) return null;
+
+        String cached = displayNames.get(key);
+        if (cached != null) return cached;
+
+        String name = switch (key.source()) {
+            case ItemKey.VANILLA -> {
+                Material material = Material.matchMaterial(key.id());
+                yield material != null ? material.name() : null;
+            }
+            case "itemsadder" -> ItemsAdderUtil.getMaterialNameForDisplay(key.id());
+            case "mmoitems" -> MMOItemsUtil.getMaterialNameForDisplay(key.id());
+            case "mythicmobs" -> MythicMobsUtil.getMaterialNameForDisplay(key.id());
+            case "oraxen" -> OraxenUtil.getMaterialNameForDisplay(key.id());
+            default -> null;
+        };
+
+        if (name != null) {
+            displayNames.put(key, name);
+        }
+        return name;
+    }
+
+    /**
+     * The id of an ItemsAdder or MMOItems item, as source:id, or null. These providers keep their ids
+     * outside the persistent data container, so they can only be read through their APIs.
+     */
+    @Nullable
+    public String identify(ItemStack item) {
+        try {
+            if (isAvailable("itemsadder")) {
+                String id = ItemsAdderUtil.getId(item);
+                if (id != null) return "itemsadder:" + id;
+            }
+            if (isAvailable("mmoitems")) {
+                String id = MMOItemsUtil.getId(item);
+                if (id != null) return "mmoitems:" + id;
+            }
+        } catch (Exception | NoClassDefFoundError e) {
+            // Treated like an item without a custom id
+        }
+        return null;
+    }
+
+    @Nullable
+    private ItemStack build(ItemKey key) {
+        try {
+            return switch (key.source()) {
+                case ItemKey.VANILLA -> {
+                    Material material = Material.matchMaterial(key.id());
+                    yield material != null && material.isItem() ? new ItemStack(material, 1) : null;
+                }
+                case "itemsadder" -> ItemsAdderUtil.getItemStack(key.id(), 1);
+                case "mmoitems" -> MMOItemsUtil.getMMOItemsItemStack(key.id());
+                case "mythicmobs" -> MythicMobsUtil.getMythicItemStack(key.id());
+                case "oraxen" -> OraxenUtil.getItemStack(key.id(), 1);
+                default -> null;
+            };
+        } catch (Exception | NoClassDefFoundError e) {
+            // Debug logging
+            if (plugin.getConfigManager().isDebugMode()) {
+                plugin.getLogger().warning("[ItemResolver] Failed to build item " + key + ": " + e.getMessage());
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Drop every cached item from a single source.
+     */
+    public void invalidate(String source) {
+        prototypes.keySet().removeIf(key -> key.source().equals(source));
+        displayNames.keySet().removeIf(key -> key.source().equals(source));
+
+        // Debug logging
+        if (plugin.getConfigManager().isDebugMode()) {
+            plugin.getLogger().info("[ItemResolver] Invalidated cached items for " + source);
+        }
+    }
+
+    public void invalidateAll() {
+        prototypes.clear();
+        displayNames.clear();
+    }
+
+    @EventHandler
+    public void onPluginEnable(PluginEnableEvent event) {
+        handleProviderChange(event.getPlugin().getName(), true);
+    }
+
+    @EventHandler
+    public void onPluginDisable(PluginDisableEvent event) {
+        handleProviderChange(event.getPlugin().getName(), false);
+    }
+
+    private void handleProviderChange(String pluginName, boolean enabled) {
+        for (Map.Entry<String, String> entry : PROVIDER_PLUGINS.entrySet()) {
+            if (!entry.getValue().equalsIgnoreCase(pluginName)) continue;
+
+            String source = entry.getKey();
+            // The disabling plugin still reports itself as enabled while the event is fired
+            if (enabled && detectProvider(source, entry.getValue())) {
+                availableSources.add(source);
+                registerReloadListener(source);
+            } else {
+                availableSources.remove(source);
+            }
+            invalidate(source);
+            return;
+        }
+    }
+}
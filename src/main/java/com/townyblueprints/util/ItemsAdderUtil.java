@@ -27,4 +27,10 @@ public class ItemsAdderUtil {
     public static boolean isValidItem(String materialName) {
         return CustomStack.getInstance(materialName) != null;
     }
+
+    @Nullable
+    public static String getId(ItemStack item) {
+        CustomStack itemsAdderItem = CustomStack.byItemStack(item);
+        return itemsAdderItem != null ? itemsAdderItem.getNamespacedID() : null;
+    }
 }
\ No newline at end of file
@@ -91,6 +91,16 @@ public class MMOItemsUtil {
         }
     }
 
+    // type:id of an MMOItems item, or null if it isn't one
+    public static String getId(ItemStack item) {
+        try {
+            String id = MMOItems.getID(item);
+            return id != null ? MMOItems.getTypeName(item) + ":" + id : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     public static Type getType(String name) {
         try {
             return Type.get(name.split(":")[0]);
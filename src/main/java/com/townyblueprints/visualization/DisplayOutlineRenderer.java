@@ -0,0 +1,262 @@
+package com.townyblueprints.visualization;
+
+import com.townyblueprints.TownyBlueprints;
+import com.townyblueprints.models.Blueprint;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.entity.BlockDisplay;
+import org.bukkit.entity.Display;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.util.Transformation;
+import org.joml.AxisAngle4f;
+import org.joml.Vector3f;
+
+import java.util.*;
+
+/**
+ * Outlines built from thin block display entities, one per edge, visible only to their viewer.
+ * The entities are spawned once and only touched when the outline's anchor or block changes,
+ * so there's no per-frame cost. They aren't saved with the chunk, a slow check respawns the
+ * edges of outlines whose chunk was unloaded.
+ */
+public class DisplayOutlineRenderer implements OutlineRenderer {
+    private static final long CHECK_INTERVAL = 40;
+
+    private static final class Shown {
+        private Outline outline;
+        private final List<BlockDisplay> edges = new ArrayList<>(12);
+        private Location anchor;
+        private Material material;
+        private int sizeX, sizeY, sizeZ;
+
+        private Shown(Outline outline) {
+            this.outline = outline;
+        }
+    }
+
+    private final TownyBlueprints plugin;
+    private final Map<UUID, Player> viewers = new HashMap<>();
+    private final Map<UUID, Map<String, Shown>> shown = new HashMap<>();
+    private final float thickness;
+    private BukkitTask task;
+
+    public DisplayOutlineRenderer(TownyBlueprints plugin) {
+        this.plugin = plugin;
+        this.thickness = (float) plugin.getConfig().getDouble("visualization.display.thickness", 0.0625);
+    }
+
+    @Override
+    public void start() {
+        if (task == null) {
+            task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::check, CHECK_INTERVAL, CHECK_INTERVAL);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        for (Map<String, Shown> viewerOutlines : shown.values()) {
+            viewerOutlines.values().forEach(this::despawn);
+        }
+        viewers.clear();
+        shown.clear();
+    }
+
+    @Override
+    public void show(Player viewer, String key, Outline outline) {
+        UUID viewerId = viewer.getUniqueId();
+        viewers.put(viewerId, viewer);
+        Map<String, Shown> viewerOutlines = shown.computeIfAbsent(viewerId, k -> new LinkedHashMap<>());
+
+        Shown current = viewerOutlines.get(key);
+        if (current == null) {
+            current = new Shown(outline);
+            viewerOutlines.put(key, current);
+        }
+        current.outline = outline;
+        update(viewer, current);
+    }
+
+    @Override
+    public void refresh(Player viewer, String key) {
+        Map<String, Shown> viewerOutlines = shown.get(viewer.getUniqueId());
+        if (viewerOutlines == null) return;
+
+        Shown current = viewerOutlines.get(key);
+        if (current != null) {
+            update(viewer, current);
+        }
+    }
+
+    @Override
+    public void hide(Player viewer, String key) {
+        Map<String, Shown> viewerOutlines = shown.get(viewer.getUniqueId());
+        if (viewerOutlines == null) return;
+
+        Shown removed = viewerOutlines.remove(key);
+        if (removed != null) {
+            despawn(removed);
+        }
+        if (viewerOutlines.isEmpty()) {
+            viewers.remove(viewer.getUniqueId());
+            shown.remove(viewer.getUniqueId());
+        }
+    }
+
+    @Override
+    public void hideAll(Player viewer, String keyPrefix) {
+        Map<String, Shown> viewerOutlines = shown.get(viewer.getUniqueId());
+        if (viewerOutlines == null) return;
+
+        Iterator<Map.Entry<String, Shown>> iterator = viewerOutlines.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Shown> entry = iterator.next();
+            if (entry.getKey().startsWith(keyPrefix)) {
+                despawn(entry.getValue());
+                iterator.remove();
+            }
+        }
+        if (viewerOutlines.isEmpty()) {
+            viewers.remove(viewer.getUniqueId());
+            shown.remove(viewer.getUniqueId());
+        }
+    }
+
+    @Override
+    public boolean isShown(Player viewer, String key) {
+        Map<String, Shown> viewerOutlines = shown.get(viewer.getUniqueId());
+        return viewerOutlines != null && viewerOutlines.containsKey(key);
+    }
+
+    /**
+     * Bring the entities in line with the outline: respawn them if the size or world changed,
+     * move them if the anchor moved, and swap the block if only the material changed.
+     */
+    private void update(Player viewer, Shown current) {
+        Location anchor = current.outline.getAnchor();
+        Blueprint blueprint = current.outline.getBlueprint();
+        if (anchor == null || anchor.getWorld() == null) {
+            despawn(current);
+            return;
+        }
+
+        boolean resized = current.sizeX != blueprint.getSizeX() || current.sizeY != blueprint.getSizeY()
+                || current.sizeZ != blueprint.getSizeZ();
+        boolean movedWorld = current.anchor == null || !anchor.getWorld().equals(current.anchor.getWorld());
+        if (current.edges.isEmpty() || resized || movedWorld || !isValid(current)) {
+            despawn(current);
+            spawn(viewer, current, anchor, blueprint);
+            return;
+        }
+
+        if (!sameBlock(anchor, current.anchor)) {
+            Location base = anchor.getBlock().getLocation();
+            for (BlockDisplay edge : current.edges) {
+                edge.teleport(base);
+            }
+            current.anchor = base;
+        }
+
+        Material material = current.outline.getDisplayMaterial();
+        if (material != current.material) {
+            BlockData block = material.createBlockData();
+            for (BlockDisplay edge : current.edges) {
+                edge.setBlock(block);
+            }
+            current.material = material;
+        }
+    }
+
+    private void spawn(Player viewer, Shown current, Location anchor, Blueprint blueprint) {
+        World world = anchor.getWorld();
+        int sizeX = blueprint.getSizeX(), sizeY = blueprint.getSizeY(), sizeZ = blueprint.getSizeZ();
+        Material material = current.outline.getDisplayMaterial();
+        BlockData block = material.createBlockData();
+        Location base = anchor.getBlock().getLocation();
+
+        for (int a : new int[]{0, 1}) {
+            for (int b : new int[]{0, 1}) {
+                // Along x, y and z, at each combination of the other two sides
+                current.edges.add(spawnEdge(viewer, world, base, block, 0, a * sizeY, b * sizeZ, sizeX, 0, 0));
+                current.edges.add(spawnEdge(viewer, world, base, block, a * sizeX, 0, b * sizeZ, 0, sizeY, 0));
+                current.edges.add(spawnEdge(viewer, world, base, block, a * sizeX, b * sizeY, 0, 0, 0, sizeZ));
+            }
+        }
+
+        current.anchor = base;
+        current.material = material;
+        current.sizeX = sizeX;
+        current.sizeY = sizeY;
+        current.sizeZ = sizeZ;
+    }
+
+    private BlockDisplay spawnEdge(Player viewer, World world, Location base, BlockData block,
+                                   float x, float y, float z, float lengthX, float lengthY, float lengthZ) {
+        float half = thickness / 2;
+        Transformation transformation = new Transformation(
+                new Vector3f(x - half, y - half, z - half),
+                new AxisAngle4f(),
+                new Vector3f(lengthX + thickness, lengthY + thickness, lengthZ + thickness),
+                new AxisAngle4f());
+
+        BlockDisplay edge = world.spawn(base, BlockDisplay.class, display -> {
+            display.setVisibleByDefault(false);
+            display.setPersistent(false);
+            display.setBlock(block);
+            display.setTransformation(transformation);
+            display.setBrightness(new Display.Brightness(15, 15));
+        });
+        viewer.showEntity(plugin, edge);
+        return edge;
+    }
+
+    private void despawn(Shown current) {
+        for (BlockDisplay edge : current.edges) {
+            edge.remove();
+        }
+        current.edges.clear();
+        current.anchor = null;
+    }
+
+    private boolean isValid(Shown current) {
+        for (BlockDisplay edge : current.edges) {
+            if (!edge.isValid()) return false;
+        }
+        return true;
+    }
+
+    private static boolean sameBlock(Location a, Location b) {
+        return a.getBlockX() == b.getBlockX() && a.getBlockY() == b.getBlockY() && a.getBlockZ() == b.getBlockZ();
+    }
+
+    // Drop the outlines of players that left and respawn edges that were unloaded with their chunk
+    private void check() {
+        Iterator<Map.Entry<UUID, Player>> iterator = viewers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<UUID, Player> entry = iterator.next();
+            Map<String, Shown> viewerOutlines = shown.get(entry.getKey());
+            if (!entry.getValue().isOnline()) {
+                if (viewerOutlines != null) {
+                    viewerOutlines.values().forEach(this::despawn);
+                }
+                shown.remove(entry.getKey());
+                iterator.remove();
+                continue;
+            }
+
+            if (viewerOutlines == null) continue;
+            for (Shown current : viewerOutlines.values()) {
+                if (!isValid(current) && current.outline.getAnchor() != null
+                        && current.outline.getAnchor().isChunkLoaded()) {
+                    update(entry.getValue(), current);
+                }
+            }
+        }
+    }
+}
@@ -2,37 +2,34 @@ package com.townyblueprints.visualization;
 
 import com.palmergames.bukkit.towny.object.TownBlock;
 import com.townyblueprints.TownyBlueprints;
+import com.townyblueprints.models.Blueprint;
 import com.townyblueprints.models.PlacedBlueprint;
 import org.bukkit.Color;
 import org.bukkit.Location;
+import org.bukkit.Material;
 import org.bukkit.Particle;
-import org.bukkit.World;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
 
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
-import java.util.ArrayList;
-import java.util.List;
 
 public class ExistingBlueprintVisualizer {
+    private static final String KEY_PREFIX = "blueprint:";
+
     private final TownyBlueprints plugin;
-    private final Map<UUID, List<BukkitRunnable>> visualizationTasks = new HashMap<>();
-    private final Map<UUID, Boolean> activeVisualizations = new HashMap<>();
-    private final double spacing;
-    private final int frequency;
-    private final int viewDistance;
+    private final OutlineRenderer renderer;
+    // Shown blueprints by id, then by viewer
+    private final Map<String, Map<UUID, View>> viewsByBlueprint = new HashMap<>();
     private final Particle activeParticle;
     private final Particle inactiveParticle;
-    private final Color inactiveColor;
-    private final float inactiveSize;
+    private final Particle.DustOptions inactiveDustOptions;
+    private final Material activeBlock;
+    private final Material inactiveBlock;
 
-    public ExistingBlueprintVisualizer(TownyBlueprints plugin) {
+    public ExistingBlueprintVisualizer(TownyBlueprints plugin, OutlineRenderer renderer) {
         this.plugin = plugin;
-        this.spacing = plugin.getConfig().getDouble("particles.spacing", 0.5);
-        this.frequency = plugin.getConfig().getInt("particles.frequency", 10);
-        this.viewDistance = plugin.getConfig().getInt("particles.view_distance", 50);
+        this.renderer = renderer;
 
         // Initialize particles with default values first
         Particle tempActiveParticle = Particle.COMPOSTER;
@@ -46,8 +43,8 @@ public class ExistingBlueprintVisualizer {
         int red = plugin.getConfig().getInt("particles.inactive_color.red", 255);
         int green = plugin.getConfig().getInt("particles.inactive_color.green", 0);
         int blue = plugin.getConfig().getInt("particles.inactive_color.blue", 0);
-        this.inactiveColor = Color.fromRGB(red, green, blue);
-        this.inactiveSize = (float) plugin.getConfig().getDouble("particles.inactive_size", 1.0);
+        float inactiveSize = (float) plugin.getConfig().getDouble("particles.inactive_size", 1.0);
+        this.inactiveDustOptions = new Particle.DustOptions(Color.fromRGB(red, green, blue), inactiveSize);
 
         // Try to set active particle
         try {
@@ -66,81 +63,124 @@ public class ExistingBlueprintVisualizer {
         // Assign the final values
         this.activeParticle = tempActiveParticle;
         this.inactiveParticle = tempInactiveParticle;
+
+        // Blocks used by the display backend
+        this.activeBlock = readBlock(plugin, "visualization.display.active_block", Material.LIME_STAINED_GLASS);
+        this.inactiveBlock = readBlock(plugin, "visualization.display.inactive_block", Material.RED_STAINED_GLASS);
+    }
+
+    static Material readBlock(TownyBlueprints plugin, String path, Material fallback) {
+        String name = plugin.getConfig().getString(path, fallback.name());
+        Material material = Material.matchMaterial(name);
+        if (material == null || !material.isBlock()) {
+            plugin.getLogger().warning("Invalid block in config at " + path + ": " + name + ". Using " + fallback.name() + ".");
+            return fallback;
+        }
+        return material;
     }
 
     public void startVisualization(Player player, PlacedBlueprint blueprint, boolean isDisabled) {
-        UUID playerId = player.getUniqueId();
-        activeVisualizations.put(playerId, true);
-
-        BukkitRunnable task = new BukkitRunnable() {
-            @Override
-            public void run() {
-                if (!player.isOnline() || !activeVisualizations.getOrDefault(playerId, false)) {
-                    cancel();
-                    return;
-                }
-
-                Location base = blueprint.getLocation();
-                World world = base.getWorld();
-                if (world == null || !world.equals(player.getWorld())) return;
-
-                if (base.distance(player.getLocation()) > viewDistance) return;
-                    visualizeArea(world, base, blueprint, isDisabled);
-            }
-        };
-
-        task.runTaskTimer(plugin, 0L, frequency);
-        visualizationTasks.computeIfAbsent(playerId, k -> new ArrayList<>()).add(task);
+        Map<UUID, View> views = viewsByBlueprint.computeIfAbsent(blueprint.getId(), id -> new HashMap<>());
+        View view = views.get(player.getUniqueId());
+        if (view != null) {
+            // Already shown, only the state can differ
+            setDisabled(view, isDisabled);
+            return;
+        }
+
+        view = new View(player, blueprint, isDisabled);
+        views.put(player.getUniqueId(), view);
+        renderer.show(player, view.key(), view);
     }
 
-    private void visualizeArea(World world, Location base, PlacedBlueprint blueprint, boolean isDisabled) {
-        int sizeX = blueprint.getBlueprint().getSizeX();
-        int sizeY = blueprint.getBlueprint().getSizeY();
-        int sizeZ = blueprint.getBlueprint().getSizeZ();
-
-        Particle particle = isDisabled ? inactiveParticle : activeParticle;
-        Particle.DustOptions dustOptions = isDisabled && particle == Particle.DUST ?
-                new Particle.DustOptions(inactiveColor, inactiveSize) : null;
-
-        // Draw vertical lines at corners
-        for (double y = 0; y <= sizeY; y += spacing) {
-            spawnParticle(world, base.clone().add(0, y, 0), particle, dustOptions);
-            spawnParticle(world, base.clone().add(sizeX, y, 0), particle, dustOptions);
-            spawnParticle(world, base.clone().add(0, y, sizeZ), particle, dustOptions);
-            spawnParticle(world, base.clone().add(sizeX, y, sizeZ), particle, dustOptions);
+    /**
+     * Recolour a blueprint's outline for the players who have it shown, after its state changed.
+     */
+    public void updateBlueprintState(PlacedBlueprint blueprint) {
+        Map<UUID, View> views = viewsByBlueprint.get(blueprint.getId());
+        if (views == null) return;
+
+        for (View view : views.values()) {
+            setDisabled(view, !blueprint.isActive());
         }
+    }
+
+    /**
+     * Hide a blueprint from everyone who has it shown, for when it's removed.
+     */
+    public void removeBlueprint(PlacedBlueprint blueprint) {
+        Map<UUID, View> views = viewsByBlueprint.remove(blueprint.getId());
+        if (views == null) return;
 
-        // Draw horizontal lines at top and bottom
-        for (double x = 0; x <= sizeX; x += spacing) {
-            spawnParticle(world, base.clone().add(x, 0, 0), particle, dustOptions);
-            spawnParticle(world, base.clone().add(x, 0, sizeZ), particle, dustOptions);
-            spawnParticle(world, base.clone().add(x, sizeY, 0), particle, dustOptions);
-            spawnParticle(world, base.clone().add(x, sizeY, sizeZ), particle, dustOptions);
+        for (View view : views.values()) {
+            renderer.hide(view.viewer, view.key());
         }
+    }
+
+    public void stopVisualization(Player player, PlacedBlueprint blueprint) {
+        Map<UUID, View> views = viewsByBlueprint.get(blueprint.getId());
+        if (views == null || views.remove(player.getUniqueId()) == null) return;
 
-        for (double z = 0; z <= sizeZ; z += spacing) {
-            spawnParticle(world, base.clone().add(0, 0, z), particle, dustOptions);
-            spawnParticle(world, base.clone().add(sizeX, 0, z), particle, dustOptions);
-            spawnParticle(world, base.clone().add(0, sizeY, z), particle, dustOptions);
-            spawnParticle(world, base.clone().add(sizeX, sizeY, z), particle, dustOptions);
+        if (views.isEmpty()) {
+            viewsByBlueprint.remove(blueprint.getId());
         }
+        renderer.hide(player, KEY_PREFIX + blueprint.getId());
     }
 
     public void stopVisualization(Player player) {
         UUID playerId = player.getUniqueId();
-        activeVisualizations.remove(playerId);
+        viewsByBlueprint.values().removeIf(views -> views.remove(playerId) != null && views.isEmpty());
+        renderer.hideAll(player, KEY_PREFIX);
+    }
 
-        List<BukkitRunnable> tasks = visualizationTasks.remove(playerId);
-        if (tasks != null) {
-            tasks.forEach(BukkitRunnable::cancel);
-        }
+    private void setDisabled(View view, boolean disabled) {
+        if (view.disabled == disabled) return;
+        view.disabled = disabled;
+        // Particle outlines read the state every frame, display outlines swap their block
+        renderer.refresh(view.viewer, view.key());
     }
 
-    private void spawnParticle(World world, Location location, Particle particle, Particle.DustOptions dustOptions) {
-        if (particle == Particle.DUST && dustOptions != null) {
-            world.spawnParticle(particle, location, 1, 0, 0, 0, 0, dustOptions);
-        } else {
-            world.spawnParticle(particle, location, 1, 0, 0, 0, 0);
+    /**
+     * A blueprint shown to one viewer. The outline reads the state, so a state change doesn't replace it.
+     */
+    private final class View implements OutlineRenderer.Outline {
+        private final Player viewer;
+        private final PlacedBlueprint blueprint;
+        private boolean disabled;
+
+        private View(Player viewer, PlacedBlueprint blueprint, boolean disabled) {
+            this.viewer = viewer;
+            this.blueprint = blueprint;
+            this.disabled = disabled;
+        }
+
+        private String key() {
+            return KEY_PREFIX + blueprint.getId();
+        }
+
+        @Override
+        public Location getAnchor() {
+            return blueprint.getLocation();
+        }
+
+        @Override
+        public Blueprint getBlueprint() {
+            return blueprint.getBlueprint();
+        }
+
+        @Override
+        public Particle getParticle() {
+            return disabled ? inactiveParticle : activeParticle;
+        }
+
+        @Override
+        public Object getData() {
+            return getParticle() == Particle.DUST ? inactiveDustOptions : null;
+        }
+
+        @Override
+        public Material getDisplayMaterial() {
+            return disabled ? inactiveBlock : activeBlock;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+package com.townyblueprints.visualization;
+
+import com.townyblueprints.models.Blueprint;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.Particle;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Draws blueprint outlines to single viewers. Each viewer holds at most one outline per key,
+ * so showing an outline again replaces it. Selected with visualization.backend.
+ * Main thread only.
+ */
+public interface OutlineRenderer {
+
+    /**
+     * A box drawn to a viewer, like a placement preview or a placed blueprint.
+     */
+    interface Outline {
+        // Corner of the box, null while there's nothing to draw
+        @Nullable Location getAnchor();
+
+        // Size of the box
+        Blueprint getBlueprint();
+
+        Particle getParticle();
+
+        // Particle data like DustOptions, null for particles without data
+        @Nullable Object getData();
+
+        // Block the edges are made of when drawn with display entities
+        Material getDisplayMaterial();
+    }
+
+    void start();
+
+    // Hide every outline
+    void stop();
+
+    void show(Player viewer, String key, Outline outline);
+
+    /**
+     * The anchor of a shown outline moved.
+     */
+    void refresh(Player viewer, String key);
+
+    void hide(Player viewer, String key);
+
+    /**
+     * Hide every outline of a viewer whose key starts with the prefix.
+     */
+    void hideAll(Player viewer, String keyPrefix);
+
+    boolean isShown(Player viewer, String key);
+}
@@ -0,0 +1,275 @@
+package com.townyblueprints.visualization;
+
+import com.townyblueprints.TownyBlueprints;
+import com.townyblueprints.models.Blueprint;
+import lombok.Getter;
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.util.Vector;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Particle outlines, drawn by one repeating task for every viewer instead of a timer per player per outline.
+ * Outlines are drawn every particles.frequency ticks, only to their viewer, and skipped while they are
+ * out of view or behind the viewer. Further away outlines are drawn with fewer particles, and the
+ * particles sent per tick are capped with the cap shared evenly between the viewers that have something due.
+ * Main thread only.
+ */
+public class ParticleRenderScheduler implements OutlineRenderer {
+    private static final long STATS_INTERVAL = 1200;
+
+    private static final class Frame {
+        private final Outline outline;
+        private long dueTick;
+
+        private Frame(Outline outline, long dueTick) {
+            this.outline = outline;
+            this.dueTick = dueTick;
+        }
+    }
+
+    private final TownyBlueprints plugin;
+    private final Map<UUID, Player> viewers = new LinkedHashMap<>();
+    private final Map<UUID, Map<String, Frame>> frames = new HashMap<>();
+    private final List<Player> tickViewers = new ArrayList<>();
+    private final int frequency;
+    private final double spacing;
+    private final double viewDistance;
+    private final double reducedDistanceSquared;
+    private final double cornersDistanceSquared;
+    private final int maxPerTick;
+    private BukkitTask task;
+    private long tick;
+
+    @Getter
+    private int particlesLastTick;
+    @Getter
+    private int peakParticlesPerTick;
+    @Getter
+    private long particlesSent;
+    @Getter
+    private long outlinesDeferred;
+
+    public ParticleRenderScheduler(TownyBlueprints plugin) {
+        this.plugin = plugin;
+        this.frequency = Math.max(1, plugin.getConfig().getInt("particles.frequency", 10));
+        this.spacing = Math.max(0.1, plugin.getConfig().getDouble("particles.spacing", 0.5));
+        this.viewDistance = plugin.getConfig().getInt("particles.view_distance", 50);
+        double reducedDistance = plugin.getConfig().getDouble("particles.lod.reduced_distance", 15);
+        double cornersDistance = plugin.getConfig().getDouble("particles.lod.corners_distance", 30);
+        this.reducedDistanceSquared = reducedDistance * reducedDistance;
+        this.cornersDistanceSquared = cornersDistance * cornersDistance;
+        this.maxPerTick = Math.max(8, plugin.getConfig().getInt("particles.max_per_tick", 2000));
+    }
+
+    @Override
+    public void start() {
+        if (task == null) {
+            task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        viewers.clear();
+        frames.clear();
+    }
+
+    // Drawn on the next tick
+    @Override
+    public void show(Player viewer, String key, Outline outline) {
+        UUID viewerId = viewer.getUniqueId();
+        viewers.put(viewerId, viewer);
+        frames.computeIfAbsent(viewerId, k -> new LinkedHashMap<>()).put(key, new Frame(outline, tick));
+    }
+
+    // Anchors are read every frame, so there's nothing to move
+    @Override
+    public void refresh(Player viewer, String key) {
+    }
+
+    @Override
+    public void hide(Player viewer, String key) {
+        Map<String, Frame> viewerFrames = frames.get(viewer.getUniqueId());
+        if (viewerFrames == null) return;
+
+        viewerFrames.remove(key);
+        if (viewerFrames.isEmpty()) {
+            removeViewer(viewer.getUniqueId());
+        }
+    }
+
+    @Override
+    public void hideAll(Player viewer, String keyPrefix) {
+        Map<String, Frame> viewerFrames = frames.get(viewer.getUniqueId());
+        if (viewerFrames == null) return;
+
+        viewerFrames.keySet().removeIf(key -> key.startsWith(keyPrefix));
+        if (viewerFrames.isEmpty()) {
+            removeViewer(viewer.getUniqueId());
+        }
+    }
+
+    @Override
+    public boolean isShown(Player viewer, String key) {
+        Map<String, Frame> viewerFrames = frames.get(viewer.getUniqueId());
+        return viewerFrames != null && viewerFrames.containsKey(key);
+    }
+
+    public int getViewerCount() {
+        return viewers.size();
+    }
+
+    public int getOutlineCount() {
+        int count = 0;
+        for (Map<String, Frame> viewerFrames : frames.values()) {
+            count += viewerFrames.size();
+        }
+        return count;
+    }
+
+    private void removeViewer(UUID viewerId) {
+        viewers.remove(viewerId);
+        frames.remove(viewerId);
+    }
+
+    private void tick() {
+        tickViewers.clear();
+        Iterator<Map.Entry<UUID, Player>> iterator = viewers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<UUID, Player> entry = iterator.next();
+            if (!entry.getValue().isOnline()) {
+                iterator.remove();
+                frames.remove(entry.getKey());
+            } else if (hasDueFrame(frames.get(entry.getKey()))) {
+                tickViewers.add(entry.getValue());
+            }
+        }
+
+        // Rotate who goes first, so the viewer that gets left over budget changes every tick
+        int sent = 0;
+        int viewerCount = tickViewers.size();
+        int start = viewerCount == 0 ? 0 : (int) (tick % viewerCount);
+        for (int i = 0; i < viewerCount; i++) {
+            int share = (maxPerTick - sent) / (viewerCount - i);
+            Player viewer = tickViewers.get((start + i) % viewerCount);
+            sent += render(viewer, frames.get(viewer.getUniqueId()), share);
+        }
+
+        particlesLastTick = sent;
+        particlesSent += sent;
+        peakParticlesPerTick = Math.max(peakParticlesPerTick, sent);
+        tick++;
+
+        // Debug logging
+        if (tick % STATS_INTERVAL == 0 && TownyBlueprints.getInstance().getConfigManager().isDebugMode()) {
+            plugin.getLogger().info("[Render] " + getViewerCount() + " viewers, " + getOutlineCount() + " outlines, " +
+                    particlesSent + " particles sent, peak " + peakParticlesPerTick + " per tick, " +
+                    outlinesDeferred + " outlines deferred by the cap");
+            peakParticlesPerTick = 0;
+        }
+    }
+
+    private boolean hasDueFrame(@Nullable Map<String, Frame> viewerFrames) {
+        if (viewerFrames == null) return false;
+        for (Frame frame : viewerFrames.values()) {
+            if (frame.dueTick <= tick) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Draw the due outlines of a viewer within the budget. Outlines that don't fit stay due for the next tick.
+     */
+    private int render(Player viewer, Map<String, Frame> viewerFrames, int budget) {
+        Location eye = viewer.getEyeLocation();
+        World world = eye.getWorld();
+        Vector direction = eye.getDirection();
+        int sent = 0;
+
+        for (Frame frame : viewerFrames.values()) {
+            if (frame.dueTick > tick) continue;
+
+            Outline outline = frame.outline;
+            Location anchor = outline.getAnchor();
+            Blueprint blueprint = outline.getBlueprint();
+            if (anchor == null || world == null || !world.equals(anchor.getWorld())) {
+                frame.dueTick = tick + frequency;
+                continue;
+            }
+
+            double distanceSquared = distanceSquaredToBox(eye, anchor, blueprint);
+            if (distanceSquared > viewDistance * viewDistance || isBehind(eye, direction, anchor, blueprint)) {
+                frame.dueTick = tick + frequency;
+                continue;
+            }
+
+            WireframeGeometry geometry = getGeometry(blueprint, distanceSquared);
+            if (geometry.getPointCount() > budget - sent) {
+                // Fall back to the corners before putting the whole outline off
+                geometry = WireframeGeometry.corners(blueprint.getSizeX(), blueprint.getSizeY(), blueprint.getSizeZ());
+                if (geometry.getPointCount() > budget - sent) {
+                    outlinesDeferred++;
+                    continue;
+                }
+            }
+
+            frame.dueTick = tick + frequency;
+            sent += draw(viewer, anchor, geometry, outline.getParticle(), outline.getData());
+        }
+        return sent;
+    }
+
+    private WireframeGeometry getGeometry(Blueprint blueprint, double distanceSquared) {
+        int sizeX = blueprint.getSizeX(), sizeY = blueprint.getSizeY(), sizeZ = blueprint.getSizeZ();
+        if (distanceSquared > cornersDistanceSquared) {
+            return WireframeGeometry.corners(sizeX, sizeY, sizeZ);
+        }
+        if (distanceSquared > reducedDistanceSquared) {
+            return WireframeGeometry.of(sizeX, sizeY, sizeZ, spacing * 2);
+        }
+        return WireframeGeometry.of(sizeX, sizeY, sizeZ, spacing);
+    }
+
+    private int draw(Player viewer, Location anchor, WireframeGeometry geometry, Particle particle, @Nullable Object data) {
+        double[] offsets = geometry.getOffsets();
+        double baseX = anchor.getX(), baseY = anchor.getY(), baseZ = anchor.getZ();
+
+        for (int i = 0; i < offsets.length; i += 3) {
+            viewer.spawnParticle(particle, baseX + offsets[i], baseY + offsets[i + 1], baseZ + offsets[i + 2], 1, 0, 0, 0, 0, data);
+        }
+        return geometry.getPointCount();
+    }
+
+    private static double distanceSquaredToBox(Location eye, Location anchor, Blueprint blueprint) {
+        double dx = axisDistance(eye.getX(), anchor.getX(), anchor.getX() + blueprint.getSizeX());
+        double dy = axisDistance(eye.getY(), anchor.getY(), anchor.getY() + blueprint.getSizeY());
+        double dz = axisDistance(eye.getZ(), anchor.getZ(), anchor.getZ() + blueprint.getSizeZ());
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static double axisDistance(double value, double min, double max) {
+        if (value < min) return min - value;
+        if (value > max) return value - max;
+        return 0;
+    }
+
+    // The box's bounding sphere is entirely behind the plane the viewer is looking out of
+    private static boolean isBehind(Location eye, Vector direction, Location anchor, Blueprint blueprint) {
+        double halfX = blueprint.getSizeX() / 2.0, halfY = blueprint.getSizeY() / 2.0, halfZ = blueprint.getSizeZ() / 2.0;
+        double toCenterX = anchor.getX() + halfX - eye.getX();
+        double toCenterY = anchor.getY() + halfY - eye.getY();
+        double toCenterZ = anchor.getZ() + halfZ - eye.getZ();
+        double radius = Math.sqrt(halfX * halfX + halfY * halfY + halfZ * halfZ);
+        return toCenterX * direction.getX() + toCenterY * direction.getY() + toCenterZ * direction.getZ() < -radius;
+    }
+}
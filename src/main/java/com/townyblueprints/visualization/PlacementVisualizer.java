@@ -4,28 +4,28 @@ import com.palmergames.bukkit.towny.object.TownBlock;
 import com.townyblueprints.TownyBlueprints;
 import com.townyblueprints.models.Blueprint;
 import org.bukkit.Location;
+import org.bukkit.Material;
 import org.bukkit.Particle;
-import org.bukkit.World;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.Color;
 
 import java.util.*;
 
 public class PlacementVisualizer {
+    private static final String KEY = "placement";
+
     private final TownyBlueprints plugin;
-    private final Map<UUID, BukkitRunnable> visualizationTasks = new HashMap<>();
+    private final OutlineRenderer renderer;
     private final Map<UUID, Location> currentLocations = new HashMap<>();
     private final Map<UUID, Set<TownBlock>> selectedPlots = new HashMap<>();
-    private final double spacing;
-    private final int frequency;
+    private final Set<UUID> pendingRefreshes = new HashSet<>();
+    private boolean refreshScheduled;
     private final Particle placementParticle;
     private final Particle plotParticle;
+    private final Material placementBlock;
 
-    public PlacementVisualizer(TownyBlueprints plugin) {
+    public PlacementVisualizer(TownyBlueprints plugin, OutlineRenderer renderer) {
         this.plugin = plugin;
-        this.spacing = plugin.getConfig().getDouble("particles.spacing", 0.5);
-        this.frequency = plugin.getConfig().getInt("particles.frequency", 10);
+        this.renderer = renderer;
 
         // Initialize particles with default values first
         Particle tempPlacementParticle = Particle.COMPOSTER;
@@ -52,6 +52,7 @@ public class PlacementVisualizer {
         // Assign the final values
         this.placementParticle = tempPlacementParticle;
         this.plotParticle = tempPlotParticle;
+        this.placementBlock = ExistingBlueprintVisualizer.readBlock(plugin, "visualization.display.placement_block", Material.WHITE_STAINED_GLASS);
     }
 
     public void startVisualization(Player player, Blueprint blueprint) {
@@ -59,68 +60,60 @@ public class PlacementVisualizer {
         stopVisualization(player);
         currentLocations.put(playerId, player.getLocation());
 
-        BukkitRunnable task = new BukkitRunnable() {
+        renderer.show(player, KEY, new OutlineRenderer.Outline() {
             @Override
-            public void run() {
-                if (!player.isOnline()) {
-                    cancel();
-                    return;
-                }
-                    visualizeArea(player, blueprint);
+            public Location getAnchor() {
+                return currentLocations.get(playerId);
             }
-        };
-
-        task.runTaskTimer(plugin, 0L, frequency);
-        visualizationTasks.put(playerId, task);
-    }
 
-    private void visualizeArea(Player player, Blueprint blueprint) {
-        Location base = currentLocations.get(player.getUniqueId());
-        if (base == null) return;
-
-        World world = base.getWorld();
-        if (world == null) return;
-
-        int sizeX = blueprint.getSizeX();
-        int sizeY = blueprint.getSizeY();
-        int sizeZ = blueprint.getSizeZ();
+            @Override
+            public Blueprint getBlueprint() {
+                return blueprint;
+            }
 
-        // Draw vertical lines at corners
-        for (double y = 0; y <= sizeY; y += spacing) {
-            world.spawnParticle(placementParticle, base.clone().add(0, y, 0), 1, 0, 0, 0, 0);
-            world.spawnParticle(placementParticle, base.clone().add(sizeX, y, 0), 1, 0, 0, 0, 0);
-            world.spawnParticle(placementParticle, base.clone().add(0, y, sizeZ), 1, 0, 0, 0, 0);
-            world.spawnParticle(placementParticle, base.clone().add(sizeX, y, sizeZ), 1, 0, 0, 0, 0);
-        }
+            @Override
+            public Particle getParticle() {
+                return placementParticle;
+            }
 
-        // Draw horizontal lines at top and bottom
-        for (double x = 0; x <= sizeX; x += spacing) {
-            world.spawnParticle(placementParticle, base.clone().add(x, 0, 0), 1, 0, 0, 0, 0);
-            world.spawnParticle(placementParticle, base.clone().add(x, 0, sizeZ), 1, 0, 0, 0, 0);
-            world.spawnParticle(placementParticle, base.clone().add(x, sizeY, 0), 1, 0, 0, 0, 0);
-            world.spawnParticle(placementParticle, base.clone().add(x, sizeY, sizeZ), 1, 0, 0, 0, 0);
-        }
+            @Override
+            public Object getData() {
+                return null;
+            }
 
-        for (double z = 0; z <= sizeZ; z += spacing) {
-            world.spawnParticle(placementParticle, base.clone().add(0, 0, z), 1, 0, 0, 0, 0);
-            world.spawnParticle(placementParticle, base.clone().add(sizeX, 0, z), 1, 0, 0, 0, 0);
-            world.spawnParticle(placementParticle, base.clone().add(0, sizeY, z), 1, 0, 0, 0, 0);
-            world.spawnParticle(placementParticle, base.clone().add(sizeX, sizeY, z), 1, 0, 0, 0, 0);
-        }
+            @Override
+            public Material getDisplayMaterial() {
+                return placementBlock;
+            }
+        });
     }
 
+    /**
+     * Move a player's preview. The renderer is told once on the next tick, however often this is called before that.
+     */
     public void updateLocation(Player player, Location location) {
         currentLocations.put(player.getUniqueId(), location);
+        if (pendingRefreshes.add(player.getUniqueId()) && !refreshScheduled) {
+            refreshScheduled = true;
+            plugin.getServer().getScheduler().runTask(plugin, this::applyRefreshes);
+        }
+    }
+
+    private void applyRefreshes() {
+        refreshScheduled = false;
+        for (UUID playerId : pendingRefreshes) {
+            Player player = plugin.getServer().getPlayer(playerId);
+            if (player != null && currentLocations.containsKey(playerId)) {
+                renderer.refresh(player, KEY);
+            }
+        }
+        pendingRefreshes.clear();
     }
 
     public void stopVisualization(Player player) {
         UUID playerId = player.getUniqueId();
         currentLocations.remove(playerId);
         selectedPlots.remove(playerId);
-
-        BukkitRunnable task = visualizationTasks.remove(playerId);
-        if (task != null) {
-            task.cancel();
-        }
+        renderer.hide(player, KEY);
     }
 }
\ No newline at end of file
@@ -0,0 +1,111 @@
+package com.townyblueprints.visualization;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The points of a box outline along its 12 edges, as offsets from the box's corner.
+ * Compiled once per size and spacing, so drawing a frame is a loop over primitive coordinates.
+ */
+public final class WireframeGeometry {
+    private record Key(int sizeX, int sizeY, int sizeZ, double spacing) {}
+
+    private static final Map<Key, WireframeGeometry> CACHE = new ConcurrentHashMap<>();
+
+    // x, y, z of each point
+    private final double[] offsets;
+
+    private WireframeGeometry(double[] offsets) {
+        this.offsets = offsets;
+    }
+
+    public static WireframeGeometry of(int sizeX, int sizeY, int sizeZ, double spacing) {
+        if (spacing <= 0) {
+            throw new IllegalArgumentException("Spacing must be positive: " + spacing);
+        }
+        return CACHE.computeIfAbsent(new Key(sizeX, sizeY, sizeZ, spacing), WireframeGeometry::compile);
+    }
+
+    /**
+     * Only the 8 corners of the box, for outlines seen from far away.
+     */
+    public static WireframeGeometry corners(int sizeX, int sizeY, int sizeZ) {
+        // A spacing of 0 never reaches compile(), so it marks the corner geometry in the cache
+        return CACHE.computeIfAbsent(new Key(sizeX, sizeY, sizeZ, 0), key -> {
+            double[] offsets = new double[8 * 3];
+            int i = 0;
+            for (int x : new int[]{0, key.sizeX()}) {
+                for (int y : new int[]{0, key.sizeY()}) {
+                    for (int z : new int[]{0, key.sizeZ()}) {
+                        i = put(offsets, i, x, y, z);
+                    }
+                }
+            }
+            return new WireframeGeometry(offsets);
+        });
+    }
+
+    public static void clearCache() {
+        CACHE.clear();
+    }
+
+    public int getPointCount() {
+        return offsets.length / 3;
+    }
+
+    /**
+     * The offsets, three per point. Shared between all users of the geometry, don't modify.
+     */
+    public double[] getOffsets() {
+        return offsets;
+    }
+
+    private static WireframeGeometry compile(Key key) {
+        int sizeX = key.sizeX(), sizeY = key.sizeY(), sizeZ = key.sizeZ();
+        double spacing = key.spacing();
+
+        int points = 4 * (steps(sizeY, spacing) + steps(sizeX, spacing) + steps(sizeZ, spacing));
+        double[] offsets = new double[points * 3];
+        int i = 0;
+
+        // Vertical lines at the corners
+        for (int step = 0, count = steps(sizeY, spacing); step < count; step++) {
+            double y = step * spacing;
+            i = put(offsets, i, 0, y, 0);
+            i = put(offsets, i, sizeX, y, 0);
+            i = put(offsets, i, 0, y, sizeZ);
+            i = put(offsets, i, sizeX, y, sizeZ);
+        }
+
+        // Horizontal lines at the top and bottom
+        for (int step = 0, count = steps(sizeX, spacing); step < count; step++) {
+            double x = step * spacing;
+            i = put(offsets, i, x, 0, 0);
+            i = put(offsets, i, x, 0, sizeZ);
+            i = put(offsets, i, x, sizeY, 0);
+            i = put(offsets, i, x, sizeY, sizeZ);
+        }
+
+        for (int step = 0, count = steps(sizeZ, spacing); step < count; step++) {
+            double z = step * spacing;
+            i = put(offsets, i, 0, 0, z);
+            i = put(offsets, i, sizeX, 0, z);
+            i = put(offsets, i, 0, sizeY, z);
+            i = put(offsets, i, sizeX, sizeY, z);
+        }
+
+        return new WireframeGeometry(offsets);
+    }
+
+    // Points from 0 up to and including the length
+    private static int steps(int length, double spacing) {
+        return Math.max(0, (int) Math.floor(length / spacing + 1e-9)) + 1;
+    }
+
+    private static int put(double[] offsets, int i, double x, double y, double z) {
+        offsets[i] = x;
+        offsets[i + 1] = y;
+        offsets[i + 2] = z;
+        return i + 3;
+    }
+}
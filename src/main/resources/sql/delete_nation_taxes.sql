@@ -0,0 +1 @@
+DELETE FROM TOWNY_BLUEPRINTS_NATION_TAX WHERE nation_id = ?;
\ No newline at end of file
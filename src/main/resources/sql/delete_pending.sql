@@ -0,0 +1 @@
+DELETE FROM TOWNY_BLUEPRINTS_PENDING WHERE blueprint_id = ?;
\ No newline at end of file
@@ -0,0 +1 @@
+DELETE FROM TOWNY_BLUEPRINTS_WAREHOUSE WHERE town_id = ? AND item_key = ?;
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT nation_id, resource, amount FROM TOWNY_BLUEPRINTS_NATION_TAX;
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT town_id, blueprint_id, resource, amount FROM TOWNY_BLUEPRINTS_PENDING;
\ No newline at end of file
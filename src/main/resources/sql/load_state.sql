@@ -0,0 +1 @@
+SELECT value FROM TOWNY_BLUEPRINTS_STATE WHERE name = ?;
\ No newline at end of file
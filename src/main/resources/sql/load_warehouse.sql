@@ -0,0 +1 @@
+SELECT town_id, item_key, amount, wear FROM TOWNY_BLUEPRINTS_WAREHOUSE;
\ No newline at end of file
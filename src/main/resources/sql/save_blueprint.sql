@@ -6,8 +6,9 @@ INSERT INTO TOWNY_BLUEPRINTS (
     active,
     last_collection_time,
     successful_upkeep,
-    contributing_bonus_blocks
-) VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+    contributing_bonus_blocks,
+    last_settled_day
+) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
 ON DUPLICATE KEY UPDATE
     town_id = VALUES(town_id),
     blueprint_id = VALUES(blueprint_id),
@@ -15,4 +16,5 @@ ON DUPLICATE KEY UPDATE
     active = VALUES(active),
     last_collection_time = VALUES(last_collection_time),
     successful_upkeep = VALUES(successful_upkeep),
-    contributing_bonus_blocks = VALUES(contributing_bonus_blocks);
\ No newline at end of file
+    contributing_bonus_blocks = VALUES(contributing_bonus_blocks),
+    last_settled_day = VALUES(last_settled_day);
\ No newline at end of file
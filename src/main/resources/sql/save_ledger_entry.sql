@@ -0,0 +1,9 @@
+INSERT INTO TOWNY_BLUEPRINTS_LEDGER (
+    town_id,
+    day,
+    blueprint_id,
+    reason,
+    amount,
+    applied,
+    created_at
+) VALUES (?, ?, ?, ?, ?, ?, ?);
\ No newline at end of file
@@ -0,0 +1,7 @@
+INSERT INTO TOWNY_BLUEPRINTS_NATION_TAX (
+    nation_id,
+    resource,
+    amount
+) VALUES (?, ?, ?)
+ON DUPLICATE KEY UPDATE
+    amount = VALUES(amount);
\ No newline at end of file
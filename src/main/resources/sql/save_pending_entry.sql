@@ -0,0 +1,8 @@
+INSERT INTO TOWNY_BLUEPRINTS_PENDING (
+    blueprint_id,
+    town_id,
+    resource,
+    amount
+) VALUES (?, ?, ?, ?)
+ON DUPLICATE KEY UPDATE
+    amount = VALUES(amount);
\ No newline at end of file
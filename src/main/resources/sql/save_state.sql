@@ -0,0 +1,6 @@
+INSERT INTO TOWNY_BLUEPRINTS_STATE (
+    name,
+    value
+) VALUES (?, ?)
+ON DUPLICATE KEY UPDATE
+    value = VALUES(value);
\ No newline at end of file
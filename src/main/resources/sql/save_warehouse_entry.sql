@@ -0,0 +1,9 @@
+INSERT INTO TOWNY_BLUEPRINTS_WAREHOUSE (
+    town_id,
+    item_key,
+    amount,
+    wear
+) VALUES (?, ?, ?, ?)
+ON DUPLICATE KEY UPDATE
+    amount = VALUES(amount),
+    wear = VALUES(wear);
\ No newline at end of file
@@ -0,0 +1,10 @@
+-- Virtual warehouse contents, one row per town and item
+CREATE TABLE IF NOT EXISTS TOWNY_BLUEPRINTS_WAREHOUSE (
+    town_id VARCHAR(36) NOT NULL,
+    item_key VARCHAR(255) NOT NULL,
+    amount INT NOT NULL DEFAULT 0,
+    wear INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (town_id, item_key)
+);
+
+INSERT INTO TOWNY_BLUEPRINTS_SCHEMA (version) VALUES (2);
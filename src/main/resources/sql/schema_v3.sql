@@ -0,0 +1,11 @@
+-- Income produced but not collected yet, one row per placed blueprint and resource
+CREATE TABLE IF NOT EXISTS TOWNY_BLUEPRINTS_PENDING (
+    blueprint_id VARCHAR(36) NOT NULL,
+    town_id VARCHAR(36) NOT NULL,
+    resource VARCHAR(255) NOT NULL,
+    amount INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (blueprint_id, resource),
+    INDEX idx_pending_town (town_id)
+);
+
+INSERT INTO TOWNY_BLUEPRINTS_SCHEMA (version) VALUES (3);
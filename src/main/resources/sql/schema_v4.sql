@@ -0,0 +1,10 @@
+-- Income is settled lazily, each placed blueprint remembers the last day it was settled for
+ALTER TABLE TOWNY_BLUEPRINTS ADD COLUMN last_settled_day BIGINT NOT NULL DEFAULT -1;
+
+-- Plugin wide counters, such as the current day index
+CREATE TABLE IF NOT EXISTS TOWNY_BLUEPRINTS_STATE (
+    name VARCHAR(64) PRIMARY KEY,
+    value BIGINT NOT NULL
+);
+
+INSERT INTO TOWNY_BLUEPRINTS_SCHEMA (version) VALUES (4);
@@ -0,0 +1,14 @@
+-- Audit trail of the money blueprints moved in and out of town banks, one row per ledger line
+CREATE TABLE IF NOT EXISTS TOWNY_BLUEPRINTS_LEDGER (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    town_id VARCHAR(36) NOT NULL,
+    day BIGINT NOT NULL,
+    blueprint_id VARCHAR(36),
+    reason VARCHAR(255) NOT NULL,
+    amount DOUBLE NOT NULL,
+    applied BOOLEAN NOT NULL,
+    created_at BIGINT NOT NULL,
+    INDEX idx_ledger_town_day (town_id, day)
+);
+
+INSERT INTO TOWNY_BLUEPRINTS_SCHEMA (version) VALUES (5);
\ No newline at end of file
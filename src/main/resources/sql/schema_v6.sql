@@ -0,0 +1,9 @@
+-- Nation taxes taken from collected income but not deposited yet, one row per nation and resource
+CREATE TABLE IF NOT EXISTS TOWNY_BLUEPRINTS_NATION_TAX (
+    nation_id VARCHAR(36) NOT NULL,
+    resource VARCHAR(255) NOT NULL,
+    amount INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (nation_id, resource)
+);
+
+INSERT INTO TOWNY_BLUEPRINTS_SCHEMA (version) VALUES (6);
\ No newline at end of file
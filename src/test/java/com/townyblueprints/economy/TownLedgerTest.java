@@ -0,0 +1,49 @@
+package com.townyblueprints.economy;
+
+import com.palmergames.bukkit.towny.object.Town;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Set;
+
+class TownLedgerTest {
+
+    @Test
+    void testWithdrawalsResolvedAgainstRunningBalance() {
+        TownLedger ledger = new TownLedger(null, 100);
+
+        assertTrue(ledger.withdraw("a", 60, "Upkeep"));
+        assertFalse(ledger.withdraw("b", 50, "Upkeep"));
+        assertTrue(ledger.withdraw("c", 40, "Upkeep"));
+
+        assertEquals(-100, ledger.getNet());
+        assertEquals(0, ledger.getBalance());
+        assertEquals(3, ledger.getLines().size());
+        assertFalse(ledger.getLines().get(1).applied());
+    }
+
+    @Test
+    void testDepositsCoverLaterWithdrawals() {
+        TownLedger ledger = new TownLedger(null, 10);
+        ledger.deposit(null, 50, "Income");
+
+        assertTrue(ledger.withdraw("a", 55, "Upkeep"));
+        assertEquals(-5, ledger.getNet());
+    }
+
+    @Test
+    void testRefusedCommitIsNotApplied() {
+        Town town = mock(Town.class, RETURNS_DEEP_STUBS);
+        when(town.getAccount().withdraw(anyDouble(), anyString())).thenReturn(false);
+        TownLedger ledger = new TownLedger(town, 100);
+        ledger.withdraw("a", 60, "Upkeep");
+        ledger.withdraw("b", 50, "Upkeep");
+
+        assertFalse(ledger.commit("Upkeep"));
+        assertEquals(3, ledger.getLines().size());
+        assertTrue(ledger.getLines().stream().noneMatch(TownLedger.Line::applied));
+        assertNull(ledger.getLines().get(2).blueprintId());
+        assertEquals(Set.of("a", "b"), ledger.getChargedBlueprints());
+    }
+}
@@ -0,0 +1,111 @@
+package com.townyblueprints.managers;
+
+import com.palmergames.bukkit.towny.object.Town;
+import com.townyblueprints.TownyBlueprints;
+import com.townyblueprints.db.Database;
+import com.townyblueprints.handlers.ResourceCollectionHandler;
+import com.townyblueprints.models.Blueprint;
+import com.townyblueprints.models.PlacedBlueprint;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BlueprintManagerTest {
+    private Database database;
+    private Town town;
+    private BlueprintManager blueprintManager;
+    private ResourceCollectionHandler collectionHandler;
+    private Blueprint blueprint;
+
+    @BeforeEach
+    void setUp() {
+        TownyBlueprints plugin = mock(TownyBlueprints.class, RETURNS_DEEP_STUBS);
+        database = mock(Database.class);
+        when(database.loadCurrentDay()).thenReturn(5L);
+        when(plugin.getDatabase()).thenReturn(database);
+        when(plugin.getConfig().getInt("economy.collection.max_storage", 1000)).thenReturn(0);
+
+        blueprintManager = new BlueprintManager(plugin);
+        collectionHandler = new ResourceCollectionHandler(plugin);
+        when(plugin.getBlueprintManager()).thenReturn(blueprintManager);
+        when(plugin.getResourceCollectionHandler()).thenReturn(collectionHandler);
+
+        town = mock(Town.class);
+        when(town.getUUID()).thenReturn(UUID.randomUUID());
+
+        blueprint = new Blueprint();
+        blueprint.setName("Mine");
+        blueprint.setType("mine");
+        blueprint.setDailyIncome(100);
+        blueprint.setIncomeType("MONEY");
+        blueprint.setRequiredCount(1);
+        blueprint.setSharedUpkeep(true);
+        blueprint.setUpkeepMultiplier(1.0);
+    }
+
+    private PlacedBlueprint loadPlaced(String id, long lastSettledDay) {
+        PlacedBlueprint placed = new PlacedBlueprint(id, blueprint, town, null, true);
+        placed.setLastSettledDay(lastSettledDay);
+        blueprintManager.addLoadedBlueprint(placed);
+        return placed;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Integer lastSavedPending(String blueprintId) {
+        ArgumentCaptor<Map<UUID, Map<String, Map<String, Integer>>>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(database, atLeastOnce()).savePendingCollections(captor.capture());
+
+        Integer amount = null;
+        for (Map<UUID, Map<String, Map<String, Integer>>> saved : captor.getAllValues()) {
+            Map<String, Integer> resources = saved.get(town.getUUID()).get(blueprintId);
+            if (resources != null && resources.containsKey("MONEY")) {
+                amount = resources.get("MONEY");
+            }
+        }
+        return amount;
+    }
+
+    @Test
+    void testRemovingGroupMemberSettlesWithOldSize() {
+        // Days 3 to 5 are unsettled, produced by a group of two
+        loadPlaced("first", 2);
+        PlacedBlueprint second = loadPlaced("second", 2);
+        assertEquals(2, blueprintManager.getActiveTypeCount(town, "mine"));
+
+        blueprintManager.removePlacedBlueprint("first");
+        assertEquals(1, blueprintManager.getActiveTypeCount(town, "mine"));
+        assertEquals(5, second.getLastSettledDay());
+
+        // Settling again afterwards doesn't change the days that were settled
+        collectionHandler.settleTown(town);
+        assertEquals(150, lastSavedPending("second"));
+    }
+
+    @Test
+    void testPlacingGroupMemberSettlesWithOldSize() {
+        PlacedBlueprint first = loadPlaced("first", 2);
+
+        blueprintManager.createPlacedBlueprint(new PlacedBlueprint("second", blueprint, town, null, true));
+        assertEquals(2, blueprintManager.getActiveTypeCount(town, "mine"));
+        assertEquals(5, first.getLastSettledDay());
+        assertEquals(300, lastSavedPending("first"));
+    }
+
+    @Test
+    void testSettlingInactiveBlueprintIsNotSaved() {
+        PlacedBlueprint inactive = new PlacedBlueprint("idle", blueprint, town, null, false);
+        inactive.setLastSettledDay(2);
+        blueprintManager.addLoadedBlueprint(inactive);
+        PlacedBlueprint active = loadPlaced("working", 2);
+
+        collectionHandler.settleTown(town);
+        assertEquals(5, inactive.getLastSettledDay());
+        verify(database).saveBlueprints(argThat(saved -> saved.contains(active) && !saved.contains(inactive)));
+    }
+}
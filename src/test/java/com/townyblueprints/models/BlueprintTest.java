@@ -110,4 +110,40 @@ class BlueprintTest {
         blueprint.setPermissionNode("townyblueprints.blueprint.test");
         assertEquals("townyblueprints.blueprint.test", blueprint.getPermissionNode());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testWarehouseRole() {
+        Blueprint blueprint = new Blueprint();
+        blueprint.setName("Town Warehouse");
+        assertTrue(blueprint.isWarehouse());
+
+        blueprint.setName("Storage Hall");
+        assertFalse(blueprint.isWarehouse());
+
+        blueprint.setType("warehouse");
+        assertTrue(blueprint.isWarehouse());
+
+        blueprint.setWarehouse(false);
+        assertFalse(blueprint.isWarehouse());
+    }
+
+    @Test
+    void testGroupScaling() {
+        Blueprint blueprint = new Blueprint();
+        blueprint.setDailyIncome(100);
+        blueprint.setDailyUpkeep(30);
+        blueprint.setRequiredCount(3);
+        blueprint.setSharedUpkeep(true);
+        blueprint.setUpkeepMultiplier(0.9);
+
+        // Below the required count: full upkeep, no income
+        assertEquals(30, blueprint.calculateUpkeep(2));
+        assertEquals(0, blueprint.calculateIncome(2));
+
+        assertEquals(9, blueprint.calculateUpkeep(3), 1e-9);
+        assertEquals(30, blueprint.calculateIncome(3), 1e-9);
+
+        blueprint.setSharedUpkeep(false);
+        assertEquals(27, blueprint.calculateUpkeep(3), 1e-9);
+    }
+}
@@ -66,4 +66,15 @@ class PlacedBlueprintTest {
         placedBlueprint.setSuccessfulUpkeep(true);
         assertTrue(placedBlueprint.isSuccessfulUpkeep());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testAccrualState() {
+        PlacedBlueprint placedBlueprint = new PlacedBlueprint("test-id", blueprint, null, location, false);
+
+        assertEquals(-1, placedBlueprint.getLastSettledDay());
+        assertEquals(placedBlueprint.getAccrualSeed(),
+                new PlacedBlueprint("test-id", blueprint, null, location, true).getAccrualSeed());
+        assertNotEquals(placedBlueprint.getAccrualSeed(),
+                new PlacedBlueprint("other-id", blueprint, null, location, false).getAccrualSeed());
+    }
+}
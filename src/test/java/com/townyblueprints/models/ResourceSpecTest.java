@@ -0,0 +1,40 @@
+package com.townyblueprints.models;
+
+import com.townyblueprints.util.ItemKey;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResourceSpecTest {
+
+    @Test
+    void testParseKeywords() {
+        assertSame(ResourceSpec.MONEY, ResourceSpec.parse("MONEY"));
+        assertSame(ResourceSpec.MONEY, ResourceSpec.parse(null));
+        assertSame(ResourceSpec.TOOL, ResourceSpec.parse("tool"));
+    }
+
+    @Test
+    void testParseTemplate() {
+        assertEquals(new ResourceSpec.Template("iron_farm"), ResourceSpec.parse("template:iron_farm"));
+        assertEquals(new ResourceSpec.Template("iron_farm"), ResourceSpec.parse("TEMPLATE:iron_farm"));
+    }
+
+    @Test
+    void testParseItem() {
+        ResourceSpec spec = ResourceSpec.parse("IRON_INGOT");
+        assertInstanceOf(ResourceSpec.Item.class, spec);
+        assertSame(ItemKey.of("vanilla:IRON_INGOT"), ((ResourceSpec.Item) spec).key());
+
+        assertEquals(new ItemKey("itemsadder", "ns:ruby"), ((ResourceSpec.Item) ResourceSpec.parse("itemsadder:ns:ruby")).key());
+    }
+
+    @Test
+    void testBlueprintKeepsSpecInSync() {
+        Blueprint blueprint = new Blueprint();
+        blueprint.setUpkeepType("template:mine");
+        assertEquals(new ResourceSpec.Template("mine"), blueprint.getUpkeepSpec());
+
+        blueprint.setUpkeepType("MONEY");
+        assertSame(ResourceSpec.MONEY, blueprint.getUpkeepSpec());
+    }
+}
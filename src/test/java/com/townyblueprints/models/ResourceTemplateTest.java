@@ -0,0 +1,65 @@
+package com.townyblueprints.models;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.SplittableRandom;
+
+class ResourceTemplateTest {
+
+    private ResourceTemplate createTemplate(double... weights) {
+        ResourceTemplate template = new ResourceTemplate("test");
+        template.setRandomSelection(true);
+        for (int i = 0; i < weights.length; i++) {
+            ResourceTemplate.ResourceEntry entry = new ResourceTemplate.ResourceEntry();
+            entry.setType("vanilla:STONE_" + i);
+            entry.setMinAmount(1);
+            entry.setMaxAmount(10);
+            entry.setWeight(weights[i]);
+            template.getResources().add(entry);
+        }
+        template.updateWeights();
+        return template;
+    }
+
+    @Test
+    void testZeroWeightIsNeverSelected() {
+        ResourceTemplate template = createTemplate(0, 1, 0);
+        SplittableRandom random = new SplittableRandom(42);
+
+        for (int i = 0; i < 1000; i++) {
+            List<ResourceTemplate.ResourceEntry> selected = template.getSelectedResources(random);
+            assertEquals(1, selected.size());
+            assertEquals("vanilla:STONE_1", selected.get(0).getType());
+        }
+    }
+
+    @Test
+    void testSelectionWithoutReplacement() {
+        ResourceTemplate template = createTemplate(1, 2, 3, 0);
+        template.setSelectCount(3);
+        SplittableRandom random = new SplittableRandom(7);
+
+        for (int i = 0; i < 100; i++) {
+            List<ResourceTemplate.ResourceEntry> selected = template.getSelectedResources(random);
+            assertEquals(3, selected.size());
+            assertEquals(3, new HashSet<>(selected).size());
+            assertFalse(selected.stream().anyMatch(entry -> entry.getType().equals("vanilla:STONE_3")));
+        }
+    }
+
+    @Test
+    void testSeededSelectionIsReproducible() {
+        ResourceTemplate template = createTemplate(1, 1, 1, 1);
+
+        for (long seed = 0; seed < 50; seed++) {
+            SplittableRandom first = new SplittableRandom(seed);
+            SplittableRandom second = new SplittableRandom(seed);
+            assertEquals(template.getSelectedResources(first), template.getSelectedResources(second));
+            assertEquals(template.getResources().get(0).getRandomAmount(first),
+                    template.getResources().get(0).getRandomAmount(second));
+        }
+    }
+}
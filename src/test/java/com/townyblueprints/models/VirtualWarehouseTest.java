@@ -0,0 +1,110 @@
+package com.townyblueprints.models;
+
+import com.townyblueprints.util.ItemKey;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.UUID;
+
+class VirtualWarehouseTest {
+    private static final ItemKey IRON = ItemKey.of("vanilla:IRON_INGOT");
+    private static final ItemKey PICKAXE = ItemKey.of("vanilla:IRON_PICKAXE");
+
+    @Test
+    void testDepositRespectsCapacity() {
+        VirtualWarehouse warehouse = new VirtualWarehouse(UUID.randomUUID());
+        warehouse.setCapacity(100);
+
+        assertTrue(warehouse.deposit(IRON, 60));
+        assertFalse(warehouse.deposit(IRON, 50));
+        assertEquals(60, warehouse.count(IRON));
+        assertEquals(40, warehouse.getFreeSpace());
+    }
+
+    @Test
+    void testWithdrawIsAllOrNothing() {
+        VirtualWarehouse warehouse = new VirtualWarehouse(UUID.randomUUID());
+        warehouse.setCapacity(100);
+        warehouse.deposit(IRON, 10);
+
+        assertFalse(warehouse.withdraw(IRON, 11));
+        assertTrue(warehouse.withdraw(IRON, 10));
+        assertEquals(0, warehouse.count(IRON));
+        assertEquals(0, warehouse.getStored());
+    }
+
+    @Test
+    void testRestoreIgnoresCapacity() {
+        VirtualWarehouse warehouse = new VirtualWarehouse(UUID.randomUUID());
+        warehouse.setCapacity(100);
+        warehouse.deposit(IRON, 80);
+        warehouse.withdraw(IRON, 30);
+        warehouse.setCapacity(40);
+
+        warehouse.restore(IRON, 30);
+        assertEquals(80, warehouse.count(IRON));
+        assertEquals(80, warehouse.getStored());
+        assertEquals(0, warehouse.getFreeSpace());
+    }
+
+    @Test
+    void testRestoreKeepsToolWear() {
+        VirtualWarehouse warehouse = new VirtualWarehouse(UUID.randomUUID());
+        warehouse.setCapacity(100);
+        warehouse.deposit(PICKAXE, 1);
+        warehouse.drainDurability(PICKAXE, 250, 40);
+
+        int wear = warehouse.takeWear(PICKAXE);
+        warehouse.withdraw(PICKAXE, 1);
+        warehouse.restore(PICKAXE, 1, wear);
+        assertEquals(1, warehouse.count(PICKAXE));
+        assertEquals(40, warehouse.getWear(PICKAXE));
+    }
+
+    @Test
+    void testDrainDurabilityBreaksTools() {
+        VirtualWarehouse warehouse = new VirtualWarehouse(UUID.randomUUID());
+        warehouse.setCapacity(100);
+        warehouse.deposit(PICKAXE, 3);
+
+        assertTrue(warehouse.drainDurability(PICKAXE, 250, 100));
+        assertEquals(3, warehouse.count(PICKAXE));
+        assertEquals(100, warehouse.getWear(PICKAXE));
+
+        assertTrue(warehouse.drainDurability(PICKAXE, 250, 400));
+        assertEquals(1, warehouse.count(PICKAXE));
+        assertEquals(0, warehouse.getWear(PICKAXE));
+
+        assertTrue(warehouse.drainDurability(PICKAXE, 250, 250));
+        assertEquals(0, warehouse.count(PICKAXE));
+        assertFalse(warehouse.drainDurability(PICKAXE, 250, 1));
+    }
+
+    @Test
+    void testDrainDurabilityNeedsEnoughLeft() {
+        VirtualWarehouse warehouse = new VirtualWarehouse(UUID.randomUUID());
+        warehouse.setCapacity(100);
+        warehouse.deposit(PICKAXE, 2);
+        warehouse.drainDurability(PICKAXE, 250, 100);
+
+        assertEquals(400, warehouse.getDurability(PICKAXE, 250));
+        assertFalse(warehouse.drainDurability(PICKAXE, 250, 401));
+        assertEquals(2, warehouse.count(PICKAXE));
+        assertEquals(100, warehouse.getWear(PICKAXE));
+    }
+
+    @Test
+    void testDirtyEntries() {
+        VirtualWarehouse warehouse = new VirtualWarehouse(UUID.randomUUID());
+        warehouse.setCapacity(100);
+        warehouse.load(new VirtualWarehouse.Entry(IRON, 5, 0));
+        assertFalse(warehouse.isDirty());
+
+        warehouse.withdraw(IRON, 5);
+        List<VirtualWarehouse.Entry> entries = warehouse.takeDirtyEntries();
+        assertEquals(1, entries.size());
+        assertEquals(0, entries.get(0).amount());
+        assertFalse(warehouse.isDirty());
+    }
+}
@@ -0,0 +1,47 @@
+package com.townyblueprints.util;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItemKeyTest {
+    @Test
+    void testVanillaKey() {
+        ItemKey key = ItemKey.of("vanilla:iron_ingot");
+        assertNotNull(key);
+        assertTrue(key.isVanilla());
+        assertEquals("IRON_INGOT", key.id());
+        assertEquals("vanilla:IRON_INGOT", key.toString());
+    }
+
+    @Test
+    void testBareMaterialIsVanilla() {
+        ItemKey key = ItemKey.of("DIAMOND");
+        assertNotNull(key);
+        assertEquals(ItemKey.VANILLA, key.source());
+        assertEquals("DIAMOND", key.id());
+    }
+
+    @Test
+    void testNamespacedKey() {
+        ItemKey key = ItemKey.of("ItemsAdder:gems:ruby");
+        assertNotNull(key);
+        assertEquals("itemsadder", key.source());
+        assertEquals("gems:ruby", key.id());
+        assertFalse(key.isVanilla());
+    }
+
+    @Test
+    void testKeysAreInterned() {
+        ItemKey first = ItemKey.of("vanilla:STONE");
+        ItemKey second = ItemKey.of("STONE");
+        assertSame(first, second);
+        assertSame(first, ItemKey.of("vanilla:STONE"));
+    }
+
+    @Test
+    void testInvalidKeys() {
+        assertNull(ItemKey.of(null));
+        assertNull(ItemKey.of(""));
+        assertNull(ItemKey.of("oraxen:"));
+    }
+}
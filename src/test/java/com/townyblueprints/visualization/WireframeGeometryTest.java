@@ -0,0 +1,49 @@
+package com.townyblueprints.visualization;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class WireframeGeometryTest {
+
+    @Test
+    void testGeometryIsCached() {
+        assertSame(WireframeGeometry.of(5, 4, 3, 0.5), WireframeGeometry.of(5, 4, 3, 0.5));
+        assertNotSame(WireframeGeometry.of(5, 4, 3, 0.5), WireframeGeometry.of(5, 4, 3, 1.0));
+    }
+
+    @Test
+    void testPointsLieOnEdges() {
+        WireframeGeometry geometry = WireframeGeometry.of(2, 3, 4, 1.0);
+        // 4 lines each of 4, 3 and 5 points
+        assertEquals(4 * (4 + 3 + 5), geometry.getPointCount());
+
+        double[] offsets = geometry.getOffsets();
+        assertEquals(geometry.getPointCount() * 3, offsets.length);
+        for (int i = 0; i < offsets.length; i += 3) {
+            int onFaces = 0;
+            if (offsets[i] == 0 || offsets[i] == 2) onFaces++;
+            if (offsets[i + 1] == 0 || offsets[i + 1] == 3) onFaces++;
+            if (offsets[i + 2] == 0 || offsets[i + 2] == 4) onFaces++;
+            assertTrue(onFaces >= 2, "Point " + i / 3 + " is not on an edge");
+        }
+    }
+
+    @Test
+    void testSpacingIncludesEnds() {
+        WireframeGeometry geometry = WireframeGeometry.of(1, 1, 1, 0.1);
+        assertEquals(4 * 3 * 11, geometry.getPointCount());
+    }
+
+    @Test
+    void testCorners() {
+        WireframeGeometry corners = WireframeGeometry.corners(2, 3, 4);
+        assertEquals(8, corners.getPointCount());
+        assertSame(corners, WireframeGeometry.corners(2, 3, 4));
+        assertNotSame(corners, WireframeGeometry.of(2, 3, 4, 1.0));
+    }
+
+    @Test
+    void testInvalidSpacing() {
+        assertThrows(IllegalArgumentException.class, () -> WireframeGeometry.of(1, 1, 1, 0));
+    }
+}